@@ -0,0 +1,54 @@
+package com.blurnest.imageuploader.benchmark;
+
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.CellLayout;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorIndex;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ImageSplitter;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.IntegralImage;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.TileAssigner;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.TileAssignment;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assigning the 40k cells of a 2000x2000 target in 10x10 tiles to a 1000-tile library under
+ * each {@link TileAssignment} mode, against plain nearest matching ("nearest").
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class AssignmentBenchmark {
+
+    @Param({"nearest", "uses", "radius", "dither", "all"})
+    public String mode;
+
+    private int[] targetColors;
+    private int[] libraryColors;
+    private ColorIndex index;
+    private TileAssignment assignment;
+
+    @Setup
+    public void setup() {
+        BufferedImage target = SyntheticImages.gradient(2000, 2000, BufferedImage.TYPE_INT_RGB, 42L);
+        targetColors = ImageSplitter.tileColors(IntegralImage.of(target), CellLayout.grid(2000, 2000, 10, 10));
+        libraryColors = new SplittableRandom(7L).ints(1000, 0, 0x1000000).toArray();
+        index = ColorIndex.KD_TREE.build(libraryColors);
+        assignment = switch (mode) {
+            case "uses" -> TileAssignment.NEAREST.withMaxUses(60);
+            case "radius" -> TileAssignment.NEAREST.withExclusionRadius(2);
+            case "dither" -> TileAssignment.NEAREST.withDither(true);
+            case "all" -> new TileAssignment(60, 2, true);
+            default -> TileAssignment.NEAREST;
+        };
+    }
+
+    @Benchmark
+    public int[] assign() {
+        return TileAssigner.assign(targetColors, 200, index, ColorIndex.KD_TREE, libraryColors, assignment);
+    }
+}
@@ -0,0 +1,69 @@
+package com.blurnest.imageuploader.benchmark;
+
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorAverager;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-pixel {@code new Color(getRGB)} averaging against the raster kernel.
+ * Run with {@code -prof gc} to compare the allocation rate (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AverageColorBenchmark {
+
+    @Param({"1024", "4096"})
+    public int size;
+
+    // 1 = TYPE_INT_RGB, 5 = TYPE_3BYTE_BGR (what ImageIO returns for most JPEGs)
+    @Param({"1", "5"})
+    public int imageType;
+
+    private BufferedImage image;
+
+    @Setup
+    public void setup() {
+        image = SyntheticImages.gradient(size, size, imageType, 42L);
+    }
+
+    @Benchmark
+    public int legacyPerPixelColor() {
+        long sumRed = 0, sumGreen = 0, sumBlue = 0;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                Color pixel = new Color(image.getRGB(x, y));
+                sumRed += pixel.getRed();
+                sumGreen += pixel.getGreen();
+                sumBlue += pixel.getBlue();
+            }
+        }
+        long total = (long) width * height;
+        return (int) ((sumRed / total) << 16 | (sumGreen / total) << 8 | (sumBlue / total));
+    }
+
+    @Benchmark
+    public int rasterKernel() {
+        return ColorAverager.averageRGB(image);
+    }
+
+    // 10x10 sub-images, as produced by ImageSplitter
+    @Benchmark
+    public long rasterKernelSubimageTiles() {
+        long acc = 0;
+        for (int y = 0; y + 10 <= size; y += 10) {
+            for (int x = 0; x + 10 <= size; x += 10) {
+                acc += ColorAverager.averageRGB(image.getSubimage(x, y, 10, 10));
+            }
+        }
+        return acc;
+    }
+}
@@ -0,0 +1,97 @@
+package com.blurnest.imageuploader.benchmark;
+
+import com.blurnest.imageuploader.model.image.codec.DeflateCodec;
+import com.blurnest.imageuploader.model.image.codec.EncoderSettings;
+import com.blurnest.imageuploader.model.image.codec.ImageEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * op=compress / op=decompress on a 2000x1500 image (9 MB as BMP). Lossless runs at level 1
+ * and 6; "unpooled" is the usual DeflaterOutputStream with a fresh Deflater per call. Divide
+ * the BMP size by the time per op for throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"1", "6"})
+    public int level;
+
+    private BufferedImage image;
+    private byte[] bmp;
+    private byte[] container;
+
+    // discards output but keeps the writes from being optimised away
+    private static final class CountingStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        image = SyntheticImages.gradient(2000, 1500, BufferedImage.TYPE_3BYTE_BGR, 3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "bmp", out);
+        bmp = out.toByteArray();
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        DeflateCodec.compress(new ByteArrayInputStream(bmp), compressed, "bmp", level);
+        container = compressed.toByteArray();
+        System.out.printf("%nbmp %d bytes -> bnz %d bytes at level %d%n", bmp.length, container.length, level);
+    }
+
+    @Benchmark
+    public long losslessCompress() throws Exception {
+        CountingStream out = new CountingStream();
+        DeflateCodec.compress(new ByteArrayInputStream(bmp), out, "bmp", level);
+        return out.count;
+    }
+
+    @Benchmark
+    public long losslessCompressUnpooled() throws Exception {
+        CountingStream out = new CountingStream();
+        Deflater deflater = new Deflater(level);
+        try (DeflaterOutputStream deflating = new DeflaterOutputStream(out, deflater)) {
+            new ByteArrayInputStream(bmp).transferTo(deflating);
+        } finally {
+            deflater.end();
+        }
+        return out.count;
+    }
+
+    @Benchmark
+    public long losslessDecompress() throws Exception {
+        CountingStream out = new CountingStream();
+        DeflateCodec.decompress(new ByteArrayInputStream(container), out);
+        return out.count;
+    }
+
+    @Benchmark
+    public long lossyJpeg() throws Exception {
+        CountingStream out = new CountingStream();
+        ImageEncoder.write(image, "jpg", EncoderSettings.DEFAULT, out);
+        return out.count;
+    }
+}
@@ -0,0 +1,55 @@
+package com.blurnest.imageuploader.benchmark;
+
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorIndex;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ImageMatcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Linear scan against the k-d tree for a 200k-cell target across library sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ColorIndexBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int librarySize;
+
+    @Param({"200000"})
+    public int targetTiles;
+
+    private int[] libraryColors;
+    private int[] targetColors;
+    private ColorIndex linear;
+    private ColorIndex kdTree;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42L);
+        libraryColors = random.ints(librarySize, 0, 0x1000000).toArray();
+        targetColors = random.ints(targetTiles, 0, 0x1000000).toArray();
+        linear = ColorIndex.LINEAR.build(libraryColors);
+        kdTree = ColorIndex.KD_TREE.build(libraryColors);
+    }
+
+    @Benchmark
+    public int[] linearScan() {
+        return ImageMatcher.matchColors(targetColors, linear);
+    }
+
+    @Benchmark
+    public int[] kdTree() {
+        return ImageMatcher.matchColors(targetColors, kdTree);
+    }
+
+    @Benchmark
+    public ColorIndex kdTreeBuild() {
+        return ColorIndex.KD_TREE.build(libraryColors);
+    }
+}
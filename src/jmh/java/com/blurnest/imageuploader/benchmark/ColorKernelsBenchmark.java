@@ -0,0 +1,57 @@
+package com.blurnest.imageuploader.benchmark;
+
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorKernels;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar against SIMD kernels: the linear nearest-color scan over a library, and channel sums
+ * of a 2000-pixel row. "current" is whatever {@link ColorKernels#current()} selects, the vector
+ * kernels only when run with both profiles: -Pjmh,vector.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ColorKernelsBenchmark {
+
+    @Param({"scalar", "current"})
+    public String kernels;
+
+    @Param({"100", "1000"})
+    public int librarySize;
+
+    private ColorKernels selected;
+    private int[] red, green, blue;
+    private int[] queries;
+    private int[] row;
+    private final long[] sums = new long[3];
+    private int next;
+
+    @Setup
+    public void setup() {
+        selected = kernels.equals("scalar") ? ColorKernels.SCALAR : ColorKernels.current();
+        SplittableRandom random = new SplittableRandom(42L);
+        red = random.ints(librarySize, 0, 256).toArray();
+        green = random.ints(librarySize, 0, 256).toArray();
+        blue = random.ints(librarySize, 0, 256).toArray();
+        queries = random.ints(1024, 0, 0x1000000).toArray();
+        row = random.ints(2000, 0, 0x1000000).toArray();
+    }
+
+    @Benchmark
+    public int nearest() {
+        int rgb = queries[next++ & 1023];
+        return selected.nearest(red, green, blue, librarySize, rgb);
+    }
+
+    @Benchmark
+    public long[] sumRow() {
+        selected.sumPacked(row, 0, row.length, 16, 0, sums);
+        return sums;
+    }
+}
@@ -0,0 +1,73 @@
+package com.blurnest.imageuploader.benchmark;
+
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorIndex;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorMetric;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ImageMatcher;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.LabColor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching 40k cells (a 2000x2000 target in 10x10 tiles) against a 1000-tile library with
+ * the k-d tree of each metric, against the RGB tree. "labConversion*" converts every target
+ * color once, with the gamma table and with {@code Math.pow} per channel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ColorMetricBenchmark {
+
+    @Param({"RGB", "REDMEAN", "LAB_DE76", "CIEDE2000"})
+    public ColorMetric metric;
+
+    @Param({"1000"})
+    public int librarySize;
+
+    private int[] targetColors;
+    private ColorIndex index;
+    private final float[] lab = new float[3];
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42L);
+        int[] libraryColors = random.ints(librarySize, 0, 0x1000000).toArray();
+        targetColors = random.ints(40_000, 0, 0x1000000).toArray();
+        index = metric.indexFactory(ColorIndex.KD_TREE).build(libraryColors);
+    }
+
+    @Benchmark
+    public int[] match() {
+        return ImageMatcher.matchColors(targetColors, index);
+    }
+
+    @Benchmark
+    public float labConversionTable() {
+        float acc = 0;
+        for (int rgb : targetColors) {
+            LabColor.toLab(rgb, lab, 0);
+            acc += lab[0];
+        }
+        return acc;
+    }
+
+    @Benchmark
+    public double labConversionPow() {
+        double acc = 0;
+        for (int rgb : targetColors) {
+            double r = linear((rgb >>> 16) & 0xff), g = linear((rgb >>> 8) & 0xff), b = linear(rgb & 0xff);
+            double y = 0.2126729 * r + 0.7151522 * g + 0.0721750 * b;
+            acc += 116 * Math.cbrt(y) - 16;
+        }
+        return acc;
+    }
+
+    private static double linear(int v) {
+        double c = v / 255.0;
+        return c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+    }
+}
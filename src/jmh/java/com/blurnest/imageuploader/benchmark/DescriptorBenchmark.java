@@ -0,0 +1,91 @@
+package com.blurnest.imageuploader.benchmark;
+
+import com.blurnest.imageuploader.model.image.engine.library.TileLibrary;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.CellLayout;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorIndex;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorMetric;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ImageMatcher;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ImageSplitter;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.IntegralImage;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.TileDescriptors;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Split and match of a 2000x2000 target in 10x10 tiles (40k cells) against a 1000-tile library:
+ * "meanColor" is the single-color path, "descriptors" adds grid x grid block colors per cell
+ * and re-ranks the {@code candidates} neighbours of the nearest mean color by them.
+ * "exactCandidates" re-ranks the exact k nearest mean colors of each cell instead (a k-nearest
+ * k-d tree search per cell). "libraryDescriptors" is the one-off cost per library.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class DescriptorBenchmark {
+
+    @Param({"2", "4"})
+    public int grid;
+
+    @Param({"4", "8"})
+    public int candidates;
+
+    private IntegralImage table;
+    private CellLayout layout;
+    private TileLibrary library;
+    private TileDescriptors libraryDescriptors;
+    private int[] neighbours;
+
+    @Setup
+    public void setup() {
+        BufferedImage target = SyntheticImages.gradient(2000, 2000, BufferedImage.TYPE_INT_RGB, 42L);
+        table = IntegralImage.of(target);
+        layout = CellLayout.grid(2000, 2000, 10, 10);
+        library = TileLibrary.of("bench", SyntheticImages.tiles(1000, 10, 10, 7L), 10, 10, ColorIndex.KD_TREE);
+        libraryDescriptors = TileDescriptors.of(library, grid, ColorMetric.RGB);
+        neighbours = ImageMatcher.neighbourTable(library.getColors(), library.getIndex(), candidates);
+    }
+
+    @Benchmark
+    public int[] meanColor() {
+        int[] targetColors = ImageSplitter.tileColors(table, layout);
+        return ImageMatcher.matchColors(targetColors, library.getIndex());
+    }
+
+    @Benchmark
+    public int[] descriptors() {
+        int[] targetColors = ImageSplitter.tileColors(table, layout);
+        TileDescriptors cells = TileDescriptors.ofCells(table, layout, grid, ColorMetric.RGB);
+        return ImageMatcher.matchDescriptors(targetColors, cells, library.getIndex(), libraryDescriptors,
+                neighbours, null, 1);
+    }
+
+    @Benchmark
+    public int[] exactCandidates() {
+        int[] targetColors = ImageSplitter.tileColors(table, layout);
+        TileDescriptors cells = TileDescriptors.ofCells(table, layout, grid, ColorMetric.RGB);
+        int[] matches = new int[targetColors.length];
+        int[] nearest = new int[candidates];
+        for (int t = 0; t < targetColors.length; t++) {
+            int n = library.getIndex().nearest(targetColors[t], candidates, nearest);
+            float bestDistance = Float.MAX_VALUE;
+            for (int c = 0; c < n; c++) {
+                float dist = cells.distance(t, libraryDescriptors, nearest[c]);
+                if (dist < bestDistance) {
+                    bestDistance = dist;
+                    matches[t] = nearest[c];
+                }
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public TileDescriptors libraryDescriptors() {
+        return TileDescriptors.of(library, grid, ColorMetric.RGB);
+    }
+}
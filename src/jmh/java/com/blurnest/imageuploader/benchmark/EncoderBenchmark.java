@@ -0,0 +1,71 @@
+package com.blurnest.imageuploader.benchmark;
+
+import com.blurnest.imageuploader.model.image.codec.ChannelOutputStream;
+import com.blurnest.imageuploader.model.image.codec.EncoderSettings;
+import com.blurnest.imageuploader.model.image.codec.ImageEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a 2000x1500 mosaic-like image to a file. "imageIO" is {@code ImageIO.write} through a
+ * buffered file stream (new writer, whole image cached in memory); "encoder" is
+ * {@link ImageEncoder} with a per-thread writer writing into the file channel. The setting is
+ * format plus JPEG quality/subsampling or PNG level; use -prof gc to compare allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncoderBenchmark {
+
+    @Param({"jpg:q75-420", "jpg:q90-444", "png:l1", "png:l4", "png:l9"})
+    public String setting;
+
+    private BufferedImage image;
+    private String format;
+    private EncoderSettings settings;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        image = SyntheticImages.gradient(2000, 1500, BufferedImage.TYPE_INT_RGB, 4);
+        format = setting.substring(0, 3);
+        String value = setting.substring(4);
+        settings = format.equals("jpg")
+                ? EncoderSettings.DEFAULT.withJpegQuality(Integer.parseInt(value.substring(1, 3)))
+                        .withChromaSubsampling(value.endsWith("420"))
+                : EncoderSettings.DEFAULT.withPngLevel(Integer.parseInt(value.substring(1)));
+        file = Files.createTempFile("encoder-bench", "." + format);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        System.out.printf("%n%s: %d bytes%n", setting, Files.size(file));
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long imageIO() throws Exception {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            ImageIO.write(image, format, out);
+        }
+        return Files.size(file);
+    }
+
+    @Benchmark
+    public long encoder() throws Exception {
+        try (OutputStream out = ChannelOutputStream.create(file)) {
+            ImageEncoder.write(image, format, settings, out);
+        }
+        return Files.size(file);
+    }
+}
@@ -0,0 +1,95 @@
+package com.blurnest.imageuploader.benchmark;
+
+import com.blurnest.imageuploader.model.image.engine.MosaicModelEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MosaicModelEngine#preprocess_test} from encoded bytes to encoded mosaic, as one
+ * upload request runs it. "coldLibrary" uses a fresh engine so every call decodes and indexes
+ * the tiles; "warmLibrary" repeats the same upload, so the tile library comes from the cache.
+ * Run on the target hardware with {@code -prof gc} to size memory and throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    @Param({"500", "2000"})
+    public int size;
+
+    @Param({"100", "1000"})
+    public int librarySize;
+
+    @Param({"1"})
+    public int parallelism;
+
+    private byte[][] inputs;
+    private File workDir;
+    private MosaicModelEngine warmEngine;
+    private ForkJoinPool pool; // shared, so cold engines do not each start their own
+
+    @Setup
+    public void setup() throws Exception {
+        // tile uploads are photos, larger than the 10x10 cells they end up in
+        List<BufferedImage> tiles = SyntheticImages.tiles(librarySize, 64, 64, 7L);
+        inputs = new byte[librarySize + 1][];
+        inputs[0] = SyntheticImages.encode(SyntheticImages.gradient(size, size, BufferedImage.TYPE_3BYTE_BGR, 42L), "jpg");
+        for (int i = 0; i < librarySize; i++) {
+            inputs[i + 1] = SyntheticImages.encode(tiles.get(i), "jpg");
+        }
+        workDir = Files.createTempDirectory("mosaic-bench").toFile();
+        pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        warmEngine = engine();
+    }
+
+    @TearDown
+    public void tearDown() {
+        warmEngine.close();
+        if (pool != null) {
+            pool.shutdown();
+        }
+        deleteRecursively(workDir);
+    }
+
+    private MosaicModelEngine engine() {
+        return MosaicModelEngine.builder()
+                .tileSize(10, 10)
+                .workDir(workDir)
+                .useAtlas(false)
+                .parallelism(parallelism)
+                .executor(pool)
+                .build();
+    }
+
+    @Benchmark
+    public byte[] coldLibrary() throws Exception {
+        try (MosaicModelEngine engine = engine()) {
+            return engine.preprocess_test(inputs);
+        }
+    }
+
+    @Benchmark
+    public byte[] warmLibrary() throws Exception {
+        return warmEngine.preprocess_test(inputs);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
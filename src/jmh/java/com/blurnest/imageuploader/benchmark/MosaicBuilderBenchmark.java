@@ -0,0 +1,72 @@
+package com.blurnest.imageuploader.benchmark;
+
+import com.blurnest.imageuploader.model.image.engine.library.TileLibrary;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.CellLayout;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorIndex;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.MosaicBuilder;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.TileSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering a 2000x2000 mosaic of 10x10 tiles from a 1000-tile heap library: rows copied into
+ * the output raster ("rasterCopy") against drawImage per cell ("graphics"); same pixels.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class MosaicBuilderBenchmark {
+
+    @Param({"10", "40"})
+    public int tile;
+
+    private TileLibrary library;
+    private int[] matches;
+    private int cols;
+    private int rows;
+
+    @Setup
+    public void setup() {
+        library = TileLibrary.of("bench", SyntheticImages.tiles(1000, tile, tile, 7L), tile, tile, ColorIndex.KD_TREE);
+        cols = 2000 / tile;
+        rows = 2000 / tile;
+        matches = new SplittableRandom(42L).ints(cols * rows, 0, library.size()).toArray();
+    }
+
+    @Benchmark
+    public BufferedImage rasterCopy() {
+        return MosaicBuilder.buildMosaic(matches, library, CellLayout.grid(2000, 2000, tile, tile), null, 1);
+    }
+
+    @Benchmark
+    public BufferedImage graphics() {
+        return buildWithGraphics(matches, library, cols, rows);
+    }
+
+    // how MosaicBuilder drew the mosaic before the raster copy: one drawImage per cell
+    private static BufferedImage buildWithGraphics(int[] matches, TileSource tileSource, int cols, int rows) {
+        int tileWidth = tileSource.getTileWidth();
+        int tileHeight = tileSource.getTileHeight();
+        BufferedImage mosaic = new BufferedImage(cols * tileWidth, rows * tileHeight, BufferedImage.TYPE_INT_RGB);
+        BufferedImage scratch = new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_INT_RGB);
+        int[] scratchPixels = ((DataBufferInt) scratch.getRaster().getDataBuffer()).getData();
+
+        Graphics g = mosaic.getGraphics();
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                tileSource.readTile(matches[row * cols + col], scratchPixels, 0);
+                g.drawImage(scratch, col * tileWidth, row * tileHeight, null);
+            }
+        }
+        g.dispose();
+        return mosaic;
+    }
+}
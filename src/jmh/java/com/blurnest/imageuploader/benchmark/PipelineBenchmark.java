@@ -0,0 +1,111 @@
+package com.blurnest.imageuploader.benchmark;
+
+import com.blurnest.imageuploader.model.image.engine.library.TileLibrary;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.BlurredTileSource;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.BoxBlur;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.CellLayout;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorIndex;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorUtils;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ImageConverter;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ImageMatcher;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ImageSplitter;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.IntegralImage;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.MosaicBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The mosaic pipeline one stage at a time, single-threaded, with 10x10 tiles: averaging,
+ * splitting the target, matching against the library, drawing the mosaic and the JPG
+ * encode/decode at the edges. Target size and library cardinality are parameters, so the
+ * stage that dominates at a given size is visible; add {@code -prof gc} for allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    private static final int TILE = 10;
+
+    @Param({"500", "2000"})
+    public int size;
+
+    @Param({"100", "1000"})
+    public int librarySize;
+
+    private BufferedImage target;
+    private byte[] targetJpg;
+    private List<BufferedImage> library;
+    private TileLibrary tiles;
+    private List<BufferedImage> targetTiles;
+    private int[] targetColors;
+    private int[] libraryColors;
+    private int[] matches;
+    private int cols;
+    private int rows;
+    private CellLayout layout;
+
+    @Setup
+    public void setup() {
+        target = SyntheticImages.gradient(size, size, BufferedImage.TYPE_3BYTE_BGR, 42L);
+        targetJpg = SyntheticImages.encode(target, "jpg");
+        library = SyntheticImages.tiles(librarySize, TILE, TILE, 7L);
+        tiles = TileLibrary.of("bench", library, TILE, TILE, ColorIndex.KD_TREE);
+        cols = size / TILE;
+        rows = size / TILE;
+        layout = CellLayout.grid(size, size, TILE, TILE);
+        targetTiles = ImageSplitter.splitImage(target, TILE, TILE);
+        targetColors = ImageMatcher.averageColors(targetTiles);
+        libraryColors = ImageMatcher.averageColors(library);
+        matches = ImageMatcher.matchColors(targetColors, libraryColors);
+    }
+
+    @Benchmark
+    public Color averageColor() {
+        return ColorUtils.getAverageColor(target);
+    }
+
+    @Benchmark
+    public List<BufferedImage> splitImage() {
+        return ImageSplitter.splitImage(target, TILE, TILE);
+    }
+
+    // what the engine does instead of splitting: one summed-area table, then one lookup per cell
+    @Benchmark
+    public int[] tileColorsIntegral() {
+        return ImageSplitter.tileColors(IntegralImage.of(target), layout);
+    }
+
+    @Benchmark
+    public List<BufferedImage> matchTiles() {
+        return ImageMatcher.matchTiles(targetTiles, library);
+    }
+
+    @Benchmark
+    public BufferedImage buildMosaic() {
+        return MosaicBuilder.buildMosaic(matches, tiles, layout, null, 1);
+    }
+
+    // a fresh view every time, so that every matched tile is blurred again as in one request
+    @Benchmark
+    public BufferedImage buildMosaicBlurred() {
+        return MosaicBuilder.buildMosaic(matches, new BlurredTileSource(tiles, BoxBlur.DEFAULT_RADIUS), layout, null, 1);
+    }
+
+    @Benchmark
+    public byte[] encodeJpg() {
+        return ImageConverter.bufferedImageToBytes(target, "jpg");
+    }
+
+    @Benchmark
+    public BufferedImage decodeJpg() {
+        return ImageConverter.bytesToBufferedImage(targetJpg);
+    }
+}
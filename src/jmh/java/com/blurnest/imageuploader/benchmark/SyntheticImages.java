@@ -0,0 +1,68 @@
+package com.blurnest.imageuploader.benchmark;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generated images so benchmark runs are comparable across machines.
+ */
+public class SyntheticImages {
+
+    // Smooth gradient with per-pixel noise, roughly what a decoded photo looks like to the kernels
+    public static BufferedImage gradient(int width, int height, int imageType, long seed) {
+        BufferedImage image = new BufferedImage(width, height, imageType);
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = clamp(x * 255 / Math.max(1, width - 1) + random.nextInt(-16, 17));
+                int g = clamp(y * 255 / Math.max(1, height - 1) + random.nextInt(-16, 17));
+                int b = clamp((x + y) * 255 / Math.max(1, width + height - 2) + random.nextInt(-16, 17));
+                row[x] = (r << 16) | (g << 8) | b;
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+
+    // count tile-sized images spread over the color cube, a stand-in for a tile library
+    public static List<BufferedImage> tiles(int count, int width, int height, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<BufferedImage> tiles = new ArrayList<>(count);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < count; i++) {
+            int base = random.nextInt(0x1000000);
+            for (int p = 0; p < pixels.length; p++) {
+                int jitter = random.nextInt(-8, 9);
+                pixels[p] = clamp((base >>> 16 & 0xff) + jitter) << 16
+                        | clamp((base >>> 8 & 0xff) + jitter) << 8
+                        | clamp((base & 0xff) + jitter);
+            }
+            BufferedImage tile = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            tile.setRGB(0, 0, width, height, pixels, 0, width);
+            tiles.add(tile);
+        }
+        return tiles;
+    }
+
+    // encoded bytes, as an upload would arrive
+    public static byte[] encode(BufferedImage image, String format) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, format, out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int clamp(int v) {
+        return Math.max(0, Math.min(255, v));
+    }
+}
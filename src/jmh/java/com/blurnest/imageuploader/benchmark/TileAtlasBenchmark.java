@@ -0,0 +1,54 @@
+package com.blurnest.imageuploader.benchmark;
+
+import com.blurnest.imageuploader.model.image.engine.library.TileAtlas;
+import com.blurnest.imageuploader.model.image.engine.library.TileLibrary;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold open of an existing atlas (header, color table, mappings and k-d tree build),
+ * i.e. what a restart costs instead of decoding every tile again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileAtlasBenchmark {
+
+    @Param({"50000"})
+    public int tiles;
+
+    private File dir;
+    private File atlas;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("atlas-bench").toFile();
+        atlas = TileAtlas.fileFor(dir, "bench", 10, 10);
+        try (TileAtlas.Writer writer = new TileAtlas.Writer(atlas, 10, 10, "bench")) {
+            for (int i = 0; i < tiles; i++) {
+                BufferedImage tile = SyntheticImages.gradient(10, 10, BufferedImage.TYPE_INT_RGB, i);
+                writer.add(tile);
+            }
+            writer.commit();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        atlas.delete();
+        dir.delete();
+    }
+
+    @Benchmark
+    public TileLibrary openAtlas() throws Exception {
+        return TileAtlas.open(atlas, "bench", ColorIndex.KD_TREE);
+    }
+}
@@ -0,0 +1,50 @@
+package com.blurnest.imageuploader.benchmark;
+
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ImageScaler;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.TileDecoder;
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One camera-sized JPEG turned into a 10x10 tile: full decode then scale, versus a
+ * subsampled centre-region decode through {@link TileDecoder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileDecodeBenchmark {
+
+    @Param({"1920x1080", "4000x3000"})
+    public String size;
+
+    private byte[] jpeg;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        String[] wh = size.split("x");
+        BufferedImage image = SyntheticImages.gradient(
+                Integer.parseInt(wh[0]), Integer.parseInt(wh[1]), BufferedImage.TYPE_3BYTE_BGR, 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        jpeg = out.toByteArray();
+    }
+
+    @Benchmark
+    public BufferedImage fullDecode() throws Exception {
+        BufferedImage full = ImageIO.read(new ByteArrayInputStream(jpeg));
+        return ImageScaler.scaleToFill(full, 10, 10);
+    }
+
+    @Benchmark
+    public BufferedImage subsampledDecode() throws Exception {
+        return TileDecoder.decode(new ByteArrayInputStream(jpeg), 10, 10);
+    }
+}
@@ -1,6 +1,8 @@
 package com.blurnest.imageuploader;
 
 import com.blurnest.imageuploader.controller.ImageController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
@@ -9,10 +11,12 @@ import org.springframework.boot.autoconfigure.domain.EntityScan;
 @EntityScan(basePackages = "com.blurnest.imageuploader.entity")
 public class Application {
 
+    private static final Logger log = LoggerFactory.getLogger(Application.class);
+
     private ImageController imageController;
 
     public static void main(String[] args) {
             SpringApplication.run(Application.class, args);
-            System.out.println("Application started successfully!");
+            log.info("Application started successfully!");
     }
 }
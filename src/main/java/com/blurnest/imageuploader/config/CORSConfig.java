@@ -1,5 +1,7 @@
 package com.blurnest.imageuploader.config;// CORSConfig.java
 import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
@@ -8,13 +10,15 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 public class CORSConfig implements WebMvcConfigurer {
 
+    private static final Logger log = LoggerFactory.getLogger(CORSConfig.class);
+
     //inject from YAML file
     @Value("${app.cors.origins}")
     private String[] allowOrigins;
 
     @PostConstruct
     public void init() {
-        System.out.println("My test value: " + allowOrigins[0]);
+        log.debug("CORS allowed origin: {}", allowOrigins[0]);
     }
 
     @Override
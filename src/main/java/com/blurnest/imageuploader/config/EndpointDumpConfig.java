@@ -1,6 +1,9 @@
 package com.blurnest.imageuploader.config;
 
 import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -11,20 +14,26 @@ import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandl
 @Configuration
 public class EndpointDumpConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(EndpointDumpConfig.class);
+
     @Bean
     CommandLineRunner dumpMappings(
             ApplicationContext ctx,
-            RequestMappingHandlerMapping mvc) {
+            @Qualifier("requestMappingHandlerMapping") RequestMappingHandlerMapping mvc) { //actuator adds its own mapping
 
         return args -> {
-            System.out.println("\n── MVC ENDPOINTS ───────────");
-            mvc.getHandlerMethods().forEach((info, mh) -> System.out.println(info));
+            if (!log.isDebugEnabled()) {
+                return;
+            }
+            StringBuilder dump = new StringBuilder("\n── MVC ENDPOINTS ───────────\n");
+            mvc.getHandlerMethods().forEach((info, mh) -> dump.append(info).append('\n'));
 
-            System.out.println("\n── RESOURCE HANDLERS ───────");
+            dump.append("\n── RESOURCE HANDLERS ───────\n");
             ctx.getBeansOfType(SimpleUrlHandlerMapping.class).values()
                     .forEach(mapping -> mapping.getHandlerMap()
                             .forEach((pat, handler) ->
-                                    System.out.println(pat + "  →  " + handler)));
+                                    dump.append(pat).append("  →  ").append(handler).append('\n')));
+            log.debug(dump.toString());
         };
     }
 }
@@ -0,0 +1,27 @@
+package com.blurnest.imageuploader.controller;
+
+import com.blurnest.imageuploader.service.DownloadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+public class DownloadController {
+
+    private final DownloadService downloadService;
+
+    public DownloadController(DownloadService downloadService) {
+        this.downloadService = downloadService;
+    }
+
+    // matches /download/<name>           → the result, with Range / ETag / long caching
+    // matches /download/<name>?preview   → a smaller copy in the best format the Accept header allows
+    // matches /download/<name>_files/... → tiles of a Deep Zoom (.dzi) result
+    @GetMapping("/download/**")
+    public void download(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        downloadService.serve(request, response);
+    }
+}
@@ -1,48 +1,101 @@
 package com.blurnest.imageuploader.controller;
 
+import com.blurnest.imageuploader.service.ImageJobService;
 import com.blurnest.imageuploader.service.ImageProcessingService;
+import com.blurnest.imageuploader.service.TileLibraryService;
 //import com.blurnest.imageuploader.service.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/images")
 public class ImageController {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageController.class);
     // here can add service and utils for real calling handle, controller only assign the endpoint
     // job to each component
     //private final StorageService storageService;
     private final ImageProcessingService imageProcessingService;
+    private final TileLibraryService tileLibraryService;
+    private final ImageJobService imageJobService;
 
     public ImageController(//StorageService storageService,
-                           ImageProcessingService imageProcessingService
+                           ImageProcessingService imageProcessingService,
+                           TileLibraryService tileLibraryService,
+                           ImageJobService imageJobService
     ) {
         //this.storageService = storageService;
         this.imageProcessingService = imageProcessingService;
+        this.tileLibraryService = tileLibraryService;
+        this.imageJobService = imageJobService;
     }
 
     // matches /process                   → op = "compress"  (default)
     // matches /process?op=compress       → op = "compress"
     // matches /process?op=decompress     → op = "decompress"
     // matches /process?op=mosaic         → op = "mosaic"
+    // matches /process?op=mosaic&library=<id> → mosaic of image[0] with a registered tile library
+    // matches /process?op=mosaic&output=dzi → Deep Zoom pyramid, imageUrl is its .dzi manifest
     @PostMapping("/process")
     public ResponseEntity<?> processAndDownloadImage(@RequestParam("image") MultipartFile[] files,//for postgrel key value
-                                                     @RequestParam(defaultValue = "compress") String op)
+                                                     @RequestParam(defaultValue = "compress") String op,
+                                                     @RequestParam Map<String, String> params)
             throws IOException {
 
         //sanitization
-        System.out.println("op: " + op);
-        if(!op.equals("compress") && !op.equals("decompress") && !op.equals("mosaic")) {
+        log.debug("op: {}", op);
+        if(!imageProcessingService.supports(op)) {
+            return  ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Invalid operation");
+        }
+        return imageProcessingService.handleOneShot(files, op, params);
+    }
+
+    // same parameters as /process, but returns 202 {jobId, statusUrl, eventsUrl} right away
+    // (429 when the job queue is full); the result URL comes from the status or the events
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(@RequestParam("image") MultipartFile[] files,
+                                       @RequestParam(defaultValue = "compress") String op,
+                                       @RequestParam Map<String, String> params)
+            throws IOException {
+        if(!imageProcessingService.supports(op)) {
             return  ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body("Invalid operation");
         }
-        System.out.println("finish processAndDownloadImage");
-        return imageProcessingService.handleOneShot(files, op);
+        return imageJobService.submit(files, op, params);
+    }
+
+    // {jobId, status, stage, progress, imageUrl once done}
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<?> jobStatus(@PathVariable String id) {
+        return imageJobService.status(id);
+    }
+
+    // server-sent "progress" events, then one "done" or "failed" event
+    @GetMapping(path = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> jobEvents(@PathVariable String id) {
+        SseEmitter emitter = imageJobService.subscribe(id);
+        if (emitter == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    // register tiles once, returns {libraryId} to use as /process?op=mosaic&library=<id>
+    @PostMapping("/libraries")
+    public ResponseEntity<?> registerTileLibrary(@RequestParam("image") MultipartFile[] files)
+            throws IOException {
+        return tileLibraryService.register(files);
     }
 
 //    @DeleteMapping("/download/{fileName}")
@@ -0,0 +1,42 @@
+package com.blurnest.imageuploader.model.image.codec;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Small bounded pool for objects that are costly to create, such as Deflaters (native zlib
+ * state) or I/O buffers. An empty pool creates a new object; a full pool disposes of the
+ * returned one, so the pool never blocks and never grows past its capacity.
+ */
+public class BufferPool<T> {
+
+    private final ArrayBlockingQueue<T> idle;
+    private final Supplier<T> factory;
+    private final Consumer<T> reset;
+    private final Consumer<T> dispose;
+
+    public BufferPool(int capacity, Supplier<T> factory, Consumer<T> reset, Consumer<T> dispose) {
+        this.idle = new ArrayBlockingQueue<>(capacity);
+        this.factory = factory;
+        this.reset = reset;
+        this.dispose = dispose;
+    }
+
+    // byte buffers of a fixed size, nothing to reset or dispose
+    public static BufferPool<byte[]> ofBytes(int capacity, int size) {
+        return new BufferPool<>(capacity, () -> new byte[size], b -> { }, b -> { });
+    }
+
+    public T borrow() {
+        T item = idle.poll();
+        return item != null ? item : factory.get();
+    }
+
+    public void release(T item) {
+        reset.accept(item);
+        if (!idle.offer(item)) {
+            dispose.accept(item);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.blurnest.imageuploader.model.image.codec;
+
+import javax.imageio.stream.ImageOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Buffered output to a file that also lets {@link ImageEncoder} write into the underlying
+ * channel directly, seeking where the image format needs it.
+ * <p>
+ * Optionally keeps a SHA-256 of the file as it is written: bytes written here are hashed on
+ * their way to the channel, and a region the encoder wrote (and may have patched) is read
+ * back once when it is done with it, while those pages are still in the page cache.
+ */
+public class ChannelOutputStream extends OutputStream {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    private final MessageDigest digest; // null = not hashed
+
+    public ChannelOutputStream(FileChannel channel) {
+        this(channel, null);
+    }
+
+    private ChannelOutputStream(FileChannel channel, MessageDigest digest) {
+        this.channel = channel;
+        this.digest = digest;
+    }
+
+    // new or truncated file at path
+    public static ChannelOutputStream create(Path path) throws IOException {
+        return new ChannelOutputStream(open(path));
+    }
+
+    // same, hashing what is written, see digest()
+    public static ChannelOutputStream createDigesting(Path path) throws IOException {
+        try {
+            return new ChannelOutputStream(open(path), MessageDigest.getInstance("SHA-256"));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE, StandardOpenOption.READ);
+    }
+
+    /**
+     * SHA-256 (hex) of everything written, once writing is done; the stream is flushed but
+     * stays open. Only for streams from {@link #createDigesting}, and only once.
+     */
+    public String digest() throws IOException {
+        if (digest == null) {
+            throw new IllegalStateException("Stream was not created with a digest");
+        }
+        flush();
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // everything written so far is flushed; close the returned stream before writing here again
+    ImageOutputStream imageOutputStream() throws IOException {
+        flush();
+        if (digest == null) {
+            return new FileChannelImageOutputStream(channel);
+        }
+        long start = channel.position();
+        return new FileChannelImageOutputStream(channel) {
+            @Override
+            public void close() throws IOException {
+                super.close(); // leaves the channel positioned after the image
+                digestRange(start, channel.position());
+            }
+        };
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len > buffer.remaining()) {
+            flush();
+            if (len > buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(b, off, len));
+                return;
+            }
+        }
+        buffer.put(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeFully(ByteBuffer src) throws IOException {
+        if (digest != null) {
+            digest.update(src.duplicate());
+        }
+        while (src.hasRemaining()) {
+            channel.write(src);
+        }
+    }
+
+    private void digestRange(long from, long to) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(buffer.capacity());
+        for (long at = from; at < to; ) {
+            chunk.clear().limit((int) Math.min(chunk.capacity(), to - at));
+            int n = channel.read(chunk, at);
+            if (n < 0) {
+                throw new IOException("File ended at " + at + " while hashing up to " + to);
+            }
+            at += n;
+            digest.update(chunk.flip());
+        }
+    }
+}
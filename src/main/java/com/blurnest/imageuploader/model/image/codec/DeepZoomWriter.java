@@ -0,0 +1,218 @@
+package com.blurnest.imageuploader.model.image.codec;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Writes an image as a Deep Zoom (DZI) pyramid: {@code <level>/<col>_<row>.<format>} tiles
+ * under the files directory, level {@link #maxLevel} at full size and every level below
+ * half the size of the one above, down to 1x1, plus an XML manifest. Viewers such as
+ * OpenSeadragon load the manifest from {@code name.dzi} and the tiles from {@code name_files/}.
+ * <p>
+ * The image is read one strip of tile rows at a time through {@link RenderedImage#getData},
+ * so a {@code BandedImage} is rendered band by band exactly once. Every finished strip is
+ * encoded and averaged 2x2 into the strip of the level below, which is written as soon as it
+ * is full, so memory stays at about two strips per level whatever the image size. Tiles do not
+ * overlap. Tiles of one strip are encoded concurrently on the executor if there is one.
+ */
+public final class DeepZoomWriter {
+
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    private final Path filesDir;
+    private final int tileSize;
+    private final String format;
+    private final EncoderSettings settings;
+    private final Executor executor; // null = encode on the calling thread
+
+    private int width;
+    private int height;
+    private Level[] levels;
+
+    public DeepZoomWriter(Path filesDir, int tileSize, String format, EncoderSettings settings, Executor executor) {
+        if (tileSize < 2 || tileSize % 2 != 0) {
+            throw new IllegalArgumentException("Tile size must be even and at least 2: " + tileSize);
+        }
+        this.filesDir = filesDir;
+        this.tileSize = tileSize;
+        this.format = format.toLowerCase();
+        this.settings = settings;
+        this.executor = executor;
+    }
+
+    // one strip of tile rows of a level, filled from the level above
+    private final class Level {
+        final int level;
+        final int width;
+        final int height;
+        final int[] strip;
+        int rows;    // rows filled in strip
+        int stripY;  // first row of strip in the level
+        int written; // rows of the level passed on so far
+
+        Level(int level, int width, int height) {
+            this.level = level;
+            this.width = width;
+            this.height = height;
+            this.strip = new int[width * Math.min(tileSize, height)];
+        }
+    }
+
+    // highest level of a width x height image, the one at full size
+    public static int maxLevel(int width, int height) {
+        int size = Math.max(width, height);
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /**
+     * Write every level of the pyramid. The image must have TYPE_INT_RGB pixels, as a
+     * BufferedImage of that type or a BandedImage.
+     */
+    public void write(RenderedImage image) throws IOException {
+        checkPixels(image);
+        width = image.getWidth();
+        height = image.getHeight();
+        int max = maxLevel(width, height);
+        levels = new Level[max + 1];
+        for (int l = max; l >= 0; l--) {
+            int shift = max - l;
+            levels[l] = new Level(l, ceilShift(width, shift), ceilShift(height, shift));
+            Files.createDirectories(filesDir.resolve(Integer.toString(l)));
+        }
+
+        Level top = levels[max];
+        try {
+            for (int y = 0; y < height; y += tileSize) {
+                int h = Math.min(tileSize, height - y);
+                Raster strip = image.getData(new Rectangle(0, y, width, h));
+                strip.getDataElements(0, y, width, h, top.strip);
+                top.rows = h;
+                top.written += h;
+                flush(top);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // a band failed to render
+        }
+    }
+
+    // XML manifest of the pyramid last written
+    public String manifest() {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<Image xmlns=\"http://schemas.microsoft.com/deepzoom/2008\" Format=\"" + format
+                + "\" Overlap=\"0\" TileSize=\"" + tileSize + "\">\n"
+                + "  <Size Width=\"" + width + "\" Height=\"" + height + "\"/>\n"
+                + "</Image>\n";
+    }
+
+    public void writeManifest(OutputStream out) throws IOException {
+        out.write(manifest().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // encode the full (or last) strip of level, then pass it on halved
+    private void flush(Level level) throws IOException {
+        writeTiles(level);
+        if (level.level > 0) {
+            Level below = levels[level.level - 1];
+            int rows = (level.rows + 1) / 2;
+            downsample(level.strip, level.width, level.rows, below.strip, below.rows * below.width, below.width);
+            below.rows += rows;
+            below.written += rows;
+            if (below.rows == tileSize || below.written == below.height) {
+                flush(below);
+            }
+        }
+        level.stripY += level.rows;
+        level.rows = 0;
+    }
+
+    private void writeTiles(Level level) throws IOException {
+        int row = level.stripY / tileSize;
+        int cols = (level.width + tileSize - 1) / tileSize;
+        if (executor == null || cols == 1) {
+            for (int col = 0; col < cols; col++) {
+                writeTile(level, col, row);
+            }
+            return;
+        }
+        List<CompletableFuture<Void>> tiles = new ArrayList<>(cols);
+        for (int col = 0; col < cols; col++) {
+            int c = col;
+            tiles.add(CompletableFuture.runAsync(() -> {
+                try {
+                    writeTile(level, c, row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor));
+        }
+        try {
+            CompletableFuture.allOf(tiles.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    private void writeTile(Level level, int col, int row) throws IOException {
+        int x = col * tileSize;
+        int w = Math.min(tileSize, level.width - x);
+        int h = level.rows;
+        BufferedImage tile = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+        for (int y = 0; y < h; y++) {
+            System.arraycopy(level.strip, y * level.width + x, pixels, y * w, w);
+        }
+        Path file = filesDir.resolve(level.level + "/" + col + "_" + row + "." + format);
+        try (OutputStream out = ChannelOutputStream.create(file)) {
+            ImageEncoder.write(tile, format, settings, out);
+        }
+    }
+
+    /*
+     * 2x2 box average of rows x width pixels into dst at offset, rounding to nearest; an odd
+     * last column or row is averaged with itself.
+     */
+    static void downsample(int[] src, int width, int rows, int[] dst, int offset, int dstWidth) {
+        for (int y = 0; y < rows; y += 2) {
+            int top = y * width;
+            int bottom = Math.min(y + 1, rows - 1) * width;
+            int out = offset + y / 2 * dstWidth;
+            for (int x = 0; x < width; x += 2) {
+                int x1 = Math.min(x + 1, width - 1);
+                int a = src[top + x], b = src[top + x1], c = src[bottom + x], d = src[bottom + x1];
+                int r = (((a >>> 16) & 0xff) + ((b >>> 16) & 0xff) + ((c >>> 16) & 0xff) + ((d >>> 16) & 0xff) + 2) >> 2;
+                int g = (((a >>> 8) & 0xff) + ((b >>> 8) & 0xff) + ((c >>> 8) & 0xff) + ((d >>> 8) & 0xff) + 2) >> 2;
+                int bl = ((a & 0xff) + (b & 0xff) + (c & 0xff) + (d & 0xff) + 2) >> 2;
+                dst[out + x / 2] = r << 16 | g << 8 | bl;
+            }
+        }
+    }
+
+    private static int ceilShift(int value, int shift) {
+        return (int) (((long) value + (1L << shift) - 1) >> shift);
+    }
+
+    private static void checkPixels(RenderedImage image) {
+        if (!(image.getSampleModel() instanceof SinglePixelPackedSampleModel sm)
+                || sm.getDataType() != DataBuffer.TYPE_INT || sm.getNumBands() != 3) {
+            throw new IllegalArgumentException("Deep Zoom pyramids need TYPE_INT_RGB pixels");
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.blurnest.imageuploader.model.image.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Lossless container: the original file bytes, zlib-compressed, behind a small header.
+ * <pre>
+ * "BNZ1"              magic
+ * u8  n, n bytes      original format / extension, ASCII (e.g. "bmp")
+ * ...                 zlib stream (its Adler-32 trailer checks the restored bytes)
+ * </pre>
+ * Data is streamed through pooled Deflaters, Inflaters and 64 KB buffers, so neither side
+ * ever holds the whole file. Gains are large for raw formats (BMP, TIFF) and near zero for
+ * formats that are already compressed (JPEG, PNG).
+ */
+public class DeflateCodec {
+
+    public static final String EXTENSION = "bnz";
+
+    private static final byte[] MAGIC = {'B', 'N', 'Z', '1'};
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    private static final BufferPool<byte[]> BUFFERS = BufferPool.ofBytes(2 * POOL_SIZE, BUFFER_SIZE);
+    private static final BufferPool<Deflater> DEFLATERS =
+            new BufferPool<>(POOL_SIZE, Deflater::new, Deflater::reset, Deflater::end);
+    private static final BufferPool<Inflater> INFLATERS =
+            new BufferPool<>(POOL_SIZE, Inflater::new, Inflater::reset, Inflater::end);
+
+    // compress in to out at the given zlib level (0-9), remembering the original format
+    public static void compress(InputStream in, OutputStream out, String format, int level) throws IOException {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9: " + level);
+        }
+        byte[] name = format.getBytes(StandardCharsets.US_ASCII);
+        if (name.length > 255) {
+            throw new IllegalArgumentException("Format name too long: " + format);
+        }
+        out.write(MAGIC);
+        out.write(name.length);
+        out.write(name);
+
+        Deflater deflater = DEFLATERS.borrow();
+        byte[] input = BUFFERS.borrow();
+        byte[] output = BUFFERS.borrow();
+        try {
+            deflater.setLevel(level);
+            int n;
+            while ((n = in.read(input)) > 0) {
+                deflater.setInput(input, 0, n);
+                while (!deflater.needsInput()) {
+                    int produced = deflater.deflate(output);
+                    out.write(output, 0, produced);
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                int produced = deflater.deflate(output);
+                out.write(output, 0, produced);
+            }
+        } finally {
+            BUFFERS.release(output);
+            BUFFERS.release(input);
+            DEFLATERS.release(deflater);
+        }
+    }
+
+    /**
+     * Restore the original bytes of a container from in to out.
+     * @return the original format recorded by {@link #compress}
+     */
+    public static String decompress(InputStream in, OutputStream out) throws IOException {
+        byte[] magic = in.readNBytes(MAGIC.length);
+        if (!isContainer(magic)) {
+            throw new IllegalArgumentException("Not a " + EXTENSION + " file");
+        }
+        int length = in.read();
+        if (length < 0) {
+            throw new EOFException("Truncated " + EXTENSION + " header");
+        }
+        byte[] name = in.readNBytes(length);
+        if (name.length < length) {
+            throw new EOFException("Truncated " + EXTENSION + " header");
+        }
+
+        Inflater inflater = INFLATERS.borrow();
+        byte[] input = BUFFERS.borrow();
+        byte[] output = BUFFERS.borrow();
+        try {
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    int n = in.read(input);
+                    if (n < 0) {
+                        throw new EOFException("Truncated " + EXTENSION + " data");
+                    }
+                    inflater.setInput(input, 0, n);
+                }
+                int produced = inflater.inflate(output);
+                out.write(output, 0, produced);
+                if (produced == 0 && inflater.needsDictionary()) {
+                    throw new IllegalArgumentException("Corrupt " + EXTENSION + " data");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt " + EXTENSION + " data: " + e.getMessage());
+        } finally {
+            BUFFERS.release(output);
+            BUFFERS.release(input);
+            INFLATERS.release(inflater);
+        }
+        return new String(name, StandardCharsets.US_ASCII);
+    }
+
+    // true when the first bytes of a file are this container's magic
+    public static boolean isContainer(byte[] head) {
+        if (head.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (head[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,49 @@
+package com.blurnest.imageuploader.model.image.codec;
+
+/**
+ * Output encoding options.
+ * @param jpegQuality       0-100
+ * @param chromaSubsampling JPEG 4:2:0 when true (smaller), 4:4:4 when false (sharper color edges)
+ * @param pngLevel          zlib level 0-9 for PNG
+ */
+public record EncoderSettings(int jpegQuality, boolean chromaSubsampling, int pngLevel) {
+
+    // what ImageIO does without a write param
+    public static final EncoderSettings DEFAULT = new EncoderSettings(75, true, 4);
+
+    public EncoderSettings {
+        if (jpegQuality < 0 || jpegQuality > 100) {
+            throw new IllegalArgumentException("JPEG quality must be between 0 and 100: " + jpegQuality);
+        }
+        if (pngLevel < 0 || pngLevel > 9) {
+            throw new IllegalArgumentException("PNG compression level must be between 0 and 9: " + pngLevel);
+        }
+    }
+
+    public EncoderSettings withJpegQuality(int quality) {
+        return new EncoderSettings(quality, chromaSubsampling, pngLevel);
+    }
+
+    public EncoderSettings withChromaSubsampling(boolean subsampling) {
+        return new EncoderSettings(jpegQuality, subsampling, pngLevel);
+    }
+
+    public EncoderSettings withPngLevel(int level) {
+        return new EncoderSettings(jpegQuality, chromaSubsampling, level);
+    }
+
+    // the settings that matter for format, e.g. "q75-420" or "l4"; metric tag and cache key part
+    public String describe(String format) {
+        return isJpeg(format)
+                ? "q" + jpegQuality + (chromaSubsampling ? "-420" : "-444")
+                : isPng(format) ? "l" + pngLevel : "default";
+    }
+
+    static boolean isJpeg(String format) {
+        return format.equalsIgnoreCase("jpg") || format.equalsIgnoreCase("jpeg");
+    }
+
+    static boolean isPng(String format) {
+        return format.equalsIgnoreCase("png");
+    }
+}
@@ -0,0 +1,112 @@
+package com.blurnest.imageuploader.model.image.codec;
+
+import javax.imageio.stream.ImageOutputStreamImpl;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Seekable ImageIO output written straight into a file channel, starting at the channel's
+ * current position. Sequential writes go through one small buffer; seeking back (the PNG
+ * writer does so to patch chunk lengths) just flushes it. Unlike a memory-cached stream it
+ * never holds the encoded image. Closing leaves the channel open, positioned after the output.
+ */
+class FileChannelImageOutputStream extends ImageOutputStreamImpl {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long base;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long bufferStart;   // stream position of buffer[0]
+    private long length;        // highest position written
+
+    FileChannelImageOutputStream(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.base = channel.position();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        flushBits();
+        prepareWrite(1);
+        buffer.put((byte) b);
+        advance(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        flushBits();
+        while (len > 0) {
+            int n = Math.min(len, BUFFER_SIZE);
+            prepareWrite(n);
+            buffer.put(b, off, n);
+            advance(n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return -1;
+        }
+        writeBuffer();
+        int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, length - streamPos)), base + streamPos);
+        if (n > 0) {
+            streamPos += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public void flushBefore(long pos) throws IOException {
+        super.flushBefore(pos);
+        writeBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeBuffer();
+        channel.position(base + length);
+        super.close();
+    }
+
+    // make room for n bytes at streamPos, continuing the buffer only if the write is contiguous
+    private void prepareWrite(int n) throws IOException {
+        boolean contiguous = streamPos == bufferStart + buffer.position();
+        if (!contiguous || buffer.remaining() < n) {
+            writeBuffer();
+            bufferStart = streamPos;
+        }
+    }
+
+    private void advance(int n) {
+        streamPos += n;
+        length = Math.max(length, streamPos);
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        long at = base + bufferStart;
+        while (buffer.hasRemaining()) {
+            at += channel.write(buffer, at);
+        }
+        bufferStart += buffer.limit();
+        buffer.clear();
+    }
+}
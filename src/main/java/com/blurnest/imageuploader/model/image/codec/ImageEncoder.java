@@ -0,0 +1,142 @@
+package com.blurnest.imageuploader.model.image.codec;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes images as JPEG or PNG with explicit {@link EncoderSettings}.
+ * <p>
+ * Each thread keeps one ImageWriter per format and resets it after use, instead of looking
+ * up and building a writer for every image. When the output is a {@link ChannelOutputStream}
+ * the encoder writes straight into the file channel; otherwise it goes through ImageIO's
+ * memory cache, which holds the whole encoded image until the end for JPEG.
+ * <p>
+ * Every encode is recorded in the {@code image.encode} timer and the {@code image.encode.size}
+ * summary (bytes), tagged with the format and {@link EncoderSettings#describe}.
+ */
+public class ImageEncoder {
+
+    private static final String JPEG_METADATA = "javax_imageio_jpeg_image_1.0";
+
+    private static final ThreadLocal<Map<String, ImageWriter>> WRITERS = ThreadLocal.withInitial(HashMap::new);
+
+    // format "jpg" or "png"; anything else ImageIO can write uses its defaults
+    public static void write(RenderedImage image, String format, EncoderSettings settings, OutputStream out)
+            throws IOException {
+        String formatName = format.toLowerCase();
+        if (EncoderSettings.isJpeg(formatName)) {
+            image = withoutAlpha(image);
+        }
+        ImageWriter writer = writerFor(formatName);
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        IIOMetadata metadata = null;
+        if (EncoderSettings.isJpeg(formatName)) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(settings.jpegQuality() / 100f);
+            if (!settings.chromaSubsampling()) {
+                metadata = fullChroma(writer, image, param);
+            }
+        } else if (EncoderSettings.isPng(formatName)) {
+            // the PNG writer maps quality q to deflate level 9 - round(9q)
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality((9 - settings.pngLevel()) / 9f);
+        }
+
+        long start = System.nanoTime();
+        long size;
+        ImageOutputStream ios = out instanceof ChannelOutputStream channelOut
+                ? channelOut.imageOutputStream()
+                : new MemoryCacheImageOutputStream(out);
+        try {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, metadata), param);
+            size = ios.length();
+        } finally {
+            writer.reset();
+            ios.close();
+        }
+
+        String setting = settings.describe(formatName);
+        Timer.builder("image.encode")
+                .tag("format", formatName).tag("setting", setting)
+                .register(Metrics.globalRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("image.encode.size").baseUnit("bytes")
+                .tag("format", formatName).tag("setting", setting)
+                .register(Metrics.globalRegistry)
+                .record(size);
+    }
+
+    public static byte[] toBytes(RenderedImage image, String format, EncoderSettings settings) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(image, format, settings, out);
+        return out.toByteArray();
+    }
+
+    private static ImageWriter writerFor(String formatName) {
+        return WRITERS.get().computeIfAbsent(formatName, name -> {
+            var writers = ImageIO.getImageWritersByFormatName(name);
+            if (!writers.hasNext()) {
+                throw new IllegalArgumentException("No image writer for format: " + name);
+            }
+            return writers.next();
+        });
+    }
+
+    // 4:4:4: the luma component samples like the chroma ones (H=V=1) instead of 2x2
+    private static IIOMetadata fullChroma(ImageWriter writer, RenderedImage image, ImageWriteParam param)
+            throws IOException {
+        IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image), param);
+        Node tree = metadata.getAsTree(JPEG_METADATA);
+        Node sof = ((Element) tree).getElementsByTagName("sof").item(0);
+        if (sof == null) {
+            return null; // grayscale has no chroma to subsample
+        }
+        for (Node c = sof.getFirstChild(); c != null; c = c.getNextSibling()) {
+            Element component = (Element) c;
+            component.setAttribute("HsamplingFactor", "1");
+            component.setAttribute("VsamplingFactor", "1");
+        }
+        metadata.setFromTree(JPEG_METADATA, tree);
+        return metadata;
+    }
+
+    // JPEG has no alpha: images with alpha or an unusual color model are flattened onto white
+    private static RenderedImage withoutAlpha(RenderedImage image) {
+        if (!(image instanceof BufferedImage buffered)) {
+            return image;
+        }
+        int type = buffered.getType();
+        if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_3BYTE_BGR
+                || type == BufferedImage.TYPE_BYTE_GRAY) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(buffered.getWidth(), buffered.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        g.drawImage(buffered, 0, 0, Color.WHITE, null);
+        g.dispose();
+        return rgb;
+    }
+}
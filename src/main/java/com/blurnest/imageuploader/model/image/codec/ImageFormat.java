@@ -0,0 +1,34 @@
+package com.blurnest.imageuploader.model.image.codec;
+
+/**
+ * Recognises common image formats from their first bytes.
+ */
+public class ImageFormat {
+
+    // bytes needed by extensionOf
+    public static final int HEAD_LENGTH = 12;
+
+    // file extension for the format starting with head, or null if unknown
+    public static String extensionOf(byte[] head) {
+        if (startsWith(head, 0xFF, 0xD8, 0xFF)) return "jpg";
+        if (startsWith(head, 0x89, 'P', 'N', 'G')) return "png";
+        if (startsWith(head, 'G', 'I', 'F', '8')) return "gif";
+        if (startsWith(head, 'B', 'M')) return "bmp";
+        if (startsWith(head, 'I', 'I', 0x2A, 0x00) || startsWith(head, 'M', 'M', 0x00, 0x2A)) return "tif";
+        if (startsWith(head, 'R', 'I', 'F', 'F') && head.length >= 12
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') return "webp";
+        return null;
+    }
+
+    private static boolean startsWith(byte[] head, int... magic) {
+        if (head.length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((head[i] & 0xff) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
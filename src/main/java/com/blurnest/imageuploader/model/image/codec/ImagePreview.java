@@ -0,0 +1,70 @@
+package com.blurnest.imageuploader.model.image.codec;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Downscaled copy of a stored image, no larger than maxSize on its longer side.
+ * <p>
+ * The reader skips source rows and columns while it decodes (source subsampling) down to about
+ * twice the preview size, so even a mosaic far larger than the heap is read in a bounded amount
+ * of memory; the rest is a bilinear scale, which averages the remaining 2x2 neighbourhoods.
+ */
+public final class ImagePreview {
+
+    private ImagePreview() {
+    }
+
+    /**
+     * @return TYPE_INT_RGB preview, or null if the file is not an image ImageIO can read
+     */
+    public static BufferedImage read(File file, int maxSize) throws IOException {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Preview size must be at least 1: " + maxSize);
+        }
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int longer = Math.max(width, height);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, longer / (2 * maxSize));
+                param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+
+                double scale = Math.min(1.0, (double) maxSize / Math.max(decoded.getWidth(), decoded.getHeight()));
+                int w = Math.max(1, (int) Math.round(decoded.getWidth() * scale));
+                int h = Math.max(1, (int) Math.round(decoded.getHeight() * scale));
+                BufferedImage preview = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+                Graphics2D g = preview.createGraphics();
+                try {
+                    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    g.drawImage(decoded, 0, 0, w, h, null);
+                } finally {
+                    g.dispose();
+                }
+                return preview;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
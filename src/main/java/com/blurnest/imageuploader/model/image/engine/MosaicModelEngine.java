@@ -1,20 +1,55 @@
 package com.blurnest.imageuploader.model.image.engine;
 
+import com.blurnest.imageuploader.model.image.codec.DeepZoomWriter;
+import com.blurnest.imageuploader.model.image.codec.EncoderSettings;
+import com.blurnest.imageuploader.model.image.codec.ImageEncoder;
+import com.blurnest.imageuploader.model.image.engine.library.TileAtlas;
+import com.blurnest.imageuploader.model.image.engine.library.TileLibrary;
+import com.blurnest.imageuploader.model.image.engine.library.TileLibraryCache;
 import com.blurnest.imageuploader.model.image.engine.mosaicUtils.*;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
 import java.io.*;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class MosaicModelEngine implements AutoCloseable {
 
-public class MosaicModelEngine {
+    private static final Logger log = LoggerFactory.getLogger(MosaicModelEngine.class);
 
     /* ─── defaults ─────────────────────────────────────────────── */
     private final int tileWidth;     // immutable after build()
     private final int tileHeight;
     private final File workDir;      // e.g. new File("image")
     private final boolean userChooseBlur;
+    private final int blurRadius;
+    private final ColorIndex.Factory colorIndex;   // index factory for the configured color metric
+    private final ColorMetric colorMetric;
+    private final Executor executor;   // null = run on the calling thread
+    private final ForkJoinPool ownPool; // created for parallelism(...), shut down by close()
+    private final int parallelism;
+    private final TileLibraryCache libraryCache;
+    private final File atlasDir;       // null = keep tile pixels on the heap
+    private final long maxFramePixels;
+    private final EncoderSettings encoder;
+    private final int descriptorGrid;  // 1 = match on the mean color alone
+    private final int matchCandidates;
+    private final TileAssignment assignment;
+    private final int quadtreeScale;   // 1 = regular tile grid
+    private final int quadtreeDeviation;
 
     /* ─── builder ──────────────────────────────────────────────── */
     public static class Builder {
@@ -22,6 +57,20 @@ public class MosaicModelEngine {
         private int tileHeight = 10;
         private File workDir = new File("/tmp");
         private boolean userChooseBlur = false;
+        private int blurRadius = BoxBlur.DEFAULT_RADIUS;
+        private ColorIndex.Factory colorIndex = ColorIndex.KD_TREE;
+        private ColorMetric colorMetric = ColorMetric.RGB;
+        private int parallelism = 1;
+        private Executor executor;
+        private long libraryCacheBytes = 256L * 1024 * 1024;
+        private boolean useAtlas = true;
+        private long maxFramePixels = 16L * 1024 * 1024;
+        private EncoderSettings encoder = EncoderSettings.DEFAULT;
+        private int descriptorGrid = 1;
+        private int matchCandidates = 8;
+        private TileAssignment assignment = TileAssignment.NEAREST;
+        private int quadtreeScale = 1;
+        private int quadtreeDeviation = 0;
 
         public Builder tileSize(int w, int h) {
             this.tileWidth = w;
@@ -34,13 +83,122 @@ public class MosaicModelEngine {
             return this;
         }
 
+        // box blur radius used when userChooseBlur is set, 1 = 3x3
+        public Builder blurRadius(int radius) {
+            if (radius < 1 || radius > BoxBlur.MAX_RADIUS) {
+                throw new IllegalArgumentException("blurRadius must be between 1 and " + BoxBlur.MAX_RADIUS);
+            }
+            this.blurRadius = radius;
+            return this;
+        }
+
         public Builder workDir(File dir) {
             this.workDir = dir;
             return this;
         }
 
+        // nearest-color lookup over the library, e.g. ColorIndex.LINEAR or ColorIndex.KD_TREE
+        public Builder colorIndex(ColorIndex.Factory factory) {
+            this.colorIndex = factory;
+            return this;
+        }
+
+        // distance used to pick the closest tile, see ColorMetric; RGB is fastest, CIEDE2000 looks best
+        public Builder colorMetric(ColorMetric metric) {
+            this.colorMetric = Objects.requireNonNull(metric);
+            return this;
+        }
+
+        // number of workers for matching and rendering; > 1 without executor(...) creates a ForkJoinPool,
+        // owned by the engine until close()
+        public Builder parallelism(int n) {
+            if (n < 1) throw new IllegalArgumentException("parallelism must be >= 1");
+            this.parallelism = n;
+            return this;
+        }
+
+        // run matching and rendering on a caller-managed executor (e.g. a virtual-thread executor)
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        // upper bound on the memory of cached tile libraries, least recently used are evicted first
+        public Builder libraryCacheBytes(long bytes) {
+            this.libraryCacheBytes = bytes;
+            return this;
+        }
+
+        // store registered libraries (and the default folder) as memory-mapped atlases under <workDir>/atlas
+        // instead of on the heap; tiles uploaded with a single request always stay on the heap
+        public Builder useAtlas(boolean useAtlas) {
+            this.useAtlas = useAtlas;
+            return this;
+        }
+
+        // targets above this many pixels are read, rendered and written as PNG one band at a time
+        public Builder maxFramePixels(long pixels) {
+            if (pixels < 1) throw new IllegalArgumentException("maxFramePixels must be >= 1");
+            this.maxFramePixels = pixels;
+            return this;
+        }
+
+        // JPEG quality and chroma subsampling, PNG compression level of the written mosaic
+        public Builder encoder(EncoderSettings settings) {
+            this.encoder = Objects.requireNonNull(settings);
+            return this;
+        }
+
+        // match on grid x grid block colors per tile (2 = quadrants) instead of the mean color alone
+        public Builder descriptorGrid(int grid) {
+            if (grid < 1 || grid > TileDescriptors.MAX_GRID) {
+                throw new IllegalArgumentException("descriptorGrid must be between 1 and " + TileDescriptors.MAX_GRID);
+            }
+            this.descriptorGrid = grid;
+            return this;
+        }
+
+        // tiles around the closest mean color that are compared by descriptor when descriptorGrid > 1
+        public Builder matchCandidates(int n) {
+            if (n < 1) throw new IllegalArgumentException("matchCandidates must be >= 1");
+            this.matchCandidates = n;
+            return this;
+        }
+
+        /*
+         * Repetition limits and error diffusion; matches cells one by one in row-major order and
+         * on mean colors, so it takes precedence over descriptorGrid. Striped renders carry it across bands.
+         */
+        public Builder assignment(TileAssignment assignment) {
+            this.assignment = Objects.requireNonNull(assignment);
+            return this;
+        }
+
+        /*
+         * Adaptive cells: 2x2 groups of cells whose quadrants differ by at most maxDeviation per
+         * channel (0-255) become one cell with an enlarged tile, up to maxScale x maxScale cells
+         * (1, 2, 4 or 8; 1 = regular grid). Flat areas get big tiles, detailed ones keep small tiles.
+         */
+        public Builder quadtree(int maxScale, int maxDeviation) {
+            if (maxScale < 1 || maxScale > 8 || Integer.bitCount(maxScale) != 1) {
+                throw new IllegalArgumentException("quadtree maxScale must be 1, 2, 4 or 8");
+            }
+            if (maxDeviation < 0 || maxDeviation > 255) {
+                throw new IllegalArgumentException("quadtree maxDeviation must be between 0 and 255");
+            }
+            this.quadtreeScale = maxScale;
+            this.quadtreeDeviation = maxDeviation;
+            return this;
+        }
+
         public MosaicModelEngine build() {
-            return new MosaicModelEngine(tileWidth, tileHeight, workDir, userChooseBlur);
+            if (descriptorGrid > Math.min(tileWidth, tileHeight)) {
+                throw new IllegalArgumentException("descriptorGrid is larger than the tile size");
+            }
+            if (quadtreeScale > 1 && !assignment.isNearest()) {
+                throw new IllegalArgumentException("assignment needs the regular tile grid, not a quadtree");
+            }
+            return new MosaicModelEngine(this);
         }
     }
 
@@ -49,11 +207,40 @@ public class MosaicModelEngine {
     }
 
     /* ─── ctor (private) ───────────────────────────────────────── */
-    private MosaicModelEngine(int tw, int th, File dir, boolean userChooseBlur) {
-        this.tileWidth = tw;
-        this.tileHeight = th;
-        this.workDir = dir;
-        this.userChooseBlur = userChooseBlur;
+    private MosaicModelEngine(Builder b) {
+        this.tileWidth = b.tileWidth;
+        this.tileHeight = b.tileHeight;
+        this.workDir = b.workDir;
+        this.userChooseBlur = b.userChooseBlur;
+        this.blurRadius = b.blurRadius;
+        this.colorMetric = b.colorMetric;
+        this.colorIndex = b.colorMetric.indexFactory(b.colorIndex);
+        this.libraryCache = new TileLibraryCache(b.libraryCacheBytes);
+        this.atlasDir = b.useAtlas ? new File(b.workDir, "atlas") : null;
+        this.maxFramePixels = b.maxFramePixels;
+        this.encoder = b.encoder;
+        this.descriptorGrid = b.descriptorGrid;
+        this.matchCandidates = b.matchCandidates;
+        this.assignment = b.assignment;
+        this.quadtreeScale = b.quadtreeScale;
+        this.quadtreeDeviation = b.quadtreeDeviation;
+        if (b.executor != null) {
+            this.ownPool = null;
+            this.executor = b.executor;
+            this.parallelism = b.parallelism > 1 ? b.parallelism : Runtime.getRuntime().availableProcessors();
+        } else {
+            this.ownPool = b.parallelism > 1 ? new ForkJoinPool(b.parallelism) : null;
+            this.executor = ownPool;
+            this.parallelism = b.parallelism;
+        }
+    }
+
+    // stops the pool the engine created for itself; an executor(...) passed in stays with its owner
+    @Override
+    public void close() {
+        if (ownPool != null) {
+            ownPool.shutdown();
+        }
     }
 
     /* ─── public API ───────────────────────────────────────────── */
@@ -65,64 +252,428 @@ public class MosaicModelEngine {
     public byte[] preprocess(byte[][] inputs) throws Exception {
 
         //base image
-        BufferedImage targetImage = ImageIO.read(new ByteArrayInputStream(inputs[0]));
-        if (targetImage == null) throw new IllegalArgumentException("Base image is invalid or unsupported format.");
+        long start = System.nanoTime();
+        BufferedImage targetImage = decodeTarget(inputs[0]);
+        PipelineMetrics.step("decode-target", start, ProgressListener.NONE);
 
-        List<BufferedImage> tileImages = ImageLoader.loadImagesFromFolder("compressed_tile");
-        /* ---- start PREPROCESSING as BufferedImage ---- */
-        // split target into tiles
-        List<BufferedImage> targetTiles =
-                ImageSplitter.splitImage(targetImage, tileWidth, tileHeight);
-
-        //  match tiles
-        List<BufferedImage> matchedTiles = ImageMatcher.matchTiles(targetTiles, tileImages);
-        System.out.println("Matched " + matchedTiles.size() + " tiles.");
-
-        //  build mosaic
-        int cols = targetImage.getWidth() / tileWidth;
-        int rows = targetImage.getHeight() / tileHeight;
-        BufferedImage mosaic = MosaicBuilder.buildMosaic(
-                matchedTiles, cols, rows, tileWidth, tileHeight, userChooseBlur
-        );
-        /* ---- finish PREPROCESSING as BufferedImage ---- */
+        // default library folder, decoded once and reloaded only when the folder changes
+        File folder = new File("compressed_tile");
+        TileLibrary library = libraryCache.getOrLoadFolder(folder, fingerprint -> loadLibrary(
+                TileLibraryCache.folderId(folder), fingerprint,
+                ImageLoader.iterateTilesInFolder(folder.getPath(), tileWidth, tileHeight)));
+        BufferedImage mosaic = render(targetImage, library, tilesFor(library),
+                assignerFor(library, targetImage.getWidth()), ProgressListener.NONE);
 
         //return as bytes
-        return ImageConverter.bufferedImageToBytes(mosaic, "jpg");
+        start = System.nanoTime();
+        byte[] bytes = ImageEncoder.toBytes(mosaic, "jpg", encoder);
+        PipelineMetrics.step("encode", start, ProgressListener.NONE);
+        return bytes;
     }
 
+    /**
+     * @param inputs base image followed by the tile images
+     * @return mosaic as JPG bytes (PNG for targets above maxFramePixels)
+     */
     public byte[] preprocess_test(byte[][] inputs) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        preprocess(asSource(inputs[0]), asSources(inputs, 1), out);
+        return out.toByteArray();
+    }
 
-        //base image
-        BufferedImage targetImage = ImageIO.read(new ByteArrayInputStream(inputs[0]));
+    /**
+     * @param input     raw bytes of the base image
+     * @param libraryId id returned by {@link #registerLibrary(byte[][])}
+     * @return mosaic as JPG bytes (PNG for targets above maxFramePixels)
+     */
+    public byte[] preprocess(byte[] input, String libraryId) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        preprocess(asSource(input), libraryId, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode, scale and index a set of tiles once so later requests can reference them by id.
+     * @return library id (content hash of the tiles)
+     */
+    public String registerLibrary(byte[][] tiles) throws IOException {
+        return registerLibrary(asSources(tiles, 0));
+    }
+
+    /**
+     * Every setting that changes the output for the same inputs, e.g. to key cached results.
+     * Bump the leading version when the rendering itself changes.
+     */
+    public String settingsFingerprint() {
+        return "mosaic/4;tile=" + tileWidth + "x" + tileHeight
+                + ";blur=" + (userChooseBlur ? blurRadius : 0)
+                + ";metric=" + colorMetric
+                + (descriptorGrid > 1 ? ";grid=" + descriptorGrid + "x" + matchCandidates : "")
+                + (assignment.isNearest() ? "" : ";assign=" + assignment.describe())
+                + (quadtreeScale > 1 ? ";quadtree=" + quadtreeScale + "x" + quadtreeDeviation : "")
+                + ";maxFramePixels=" + maxFramePixels
+                + ";jpg=" + encoder.describe("jpg") + ";png=" + encoder.describe("png");
+    }
+
+    /* ─── streaming API ────────────────────────────────────────── */
+
+    /**
+     * Streaming variant: each tile is opened, decoded, scaled to tile size and averaged one at a
+     * time, so peak memory follows the library's tile-size footprint rather than the upload size.
+     * @param target base image
+     * @param tiles  tile images
+     * @param out    receives the mosaic
+     * @return format written to out, "jpg", or "png" for targets above maxFramePixels
+     */
+    public String preprocess(InputStreamSource target, List<? extends InputStreamSource> tiles, OutputStream out)
+            throws IOException {
+        return preprocess(target, tiles, out, ProgressListener.NONE);
+    }
+
+    public String preprocess(InputStreamSource target, List<? extends InputStreamSource> tiles, OutputStream out,
+                             ProgressListener listener) throws IOException {
+        TileLibrary library = libraryFromUpload(tiles, listener);
+        return renderTo(target, library, imageWriter(out), listener);
+    }
+
+    public String preprocess(InputStreamSource target, String libraryId, OutputStream out) throws IOException {
+        return preprocess(target, libraryId, out, ProgressListener.NONE);
+    }
+
+    public String preprocess(InputStreamSource target, String libraryId, OutputStream out,
+                             ProgressListener listener) throws IOException {
+        TileLibrary library = registeredLibrary(libraryId);
+        listener.onProgress("tiles", 1.0);
+        return renderTo(target, library, imageWriter(out), listener);
+    }
+
+    /**
+     * Deep Zoom variant: the mosaic is written as a pyramid of 256px JPG tiles under filesDir
+     * (see {@link DeepZoomWriter}) instead of one image, so a viewer only fetches the tiles it
+     * shows. Large targets are still rendered band by band, straight into the pyramid.
+     * @param filesDir  receives the tiles, {@code <level>/<col>_<row>.jpg}
+     * @param manifest  receives the .dzi XML
+     * @param libraryId registered library, or null to build one from tiles
+     */
+    public void preprocessPyramid(InputStreamSource target, List<? extends InputStreamSource> tiles, String libraryId,
+                                  Path filesDir, OutputStream manifest, ProgressListener listener) throws IOException {
+        TileLibrary library;
+        if (libraryId != null) {
+            library = registeredLibrary(libraryId);
+            listener.onProgress("tiles", 1.0);
+        } else {
+            library = libraryFromUpload(tiles, listener);
+        }
+        renderTo(target, library, (mosaic, whole) -> {
+            DeepZoomWriter pyramid = new DeepZoomWriter(
+                    filesDir, DeepZoomWriter.DEFAULT_TILE_SIZE, "jpg", encoder, executor);
+            pyramid.write(mosaic);
+            pyramid.writeManifest(manifest);
+            return "dzi";
+        }, listener);
+    }
+
+    // the mosaic handed to writer instead of an image encoder, e.g. to compare the pixels of both modes
+    String preprocess(InputStreamSource target, List<? extends InputStreamSource> tiles, MosaicWriter writer)
+            throws IOException {
+        return renderTo(target, libraryFromUpload(tiles, ProgressListener.NONE), writer, ProgressListener.NONE);
+    }
+
+    /*
+     * Registered libraries go to an atlas, which outlives the cache and restarts; a heap copy
+     * cached by an earlier one-shot upload of the same tiles may keep serving until evicted.
+     */
+    public String registerLibrary(List<? extends InputStreamSource> tiles) throws IOException {
+        if (atlasDir == null) {
+            return libraryFromUpload(tiles, ProgressListener.NONE).getId();
+        }
+        String id = TileLibraryCache.contentId(tiles);
+        File file = TileAtlas.fileFor(atlasDir, id, tileWidth, tileHeight);
+        writeAtlas(file, id, decodedTiles(tiles, ProgressListener.NONE));
+        libraryCache.getOrLoad(id, () -> openAtlas(file, id));
+        return id;
+    }
+
+    /* ─── pipeline ─────────────────────────────────────────────── */
+
+    // a few chunks per worker so that uneven rows still balance
+    private int workChunks() {
+        return executor == null ? 1 : parallelism * 4;
+    }
+
+    private static BufferedImage decodeTarget(byte[] input) throws IOException {
+        BufferedImage targetImage = ImageIO.read(new ByteArrayInputStream(input));
         if (targetImage == null) throw new IllegalArgumentException("Base image is invalid or unsupported format.");
+        return targetImage;
+    }
+
+    // decode one tile already downscaled to tile size, null for corrupt or unsupported data
+    private BufferedImage decodeTile(InputStreamSource input) {
+        try (InputStream in = input.getInputStream()) {
+            return TileDecoder.decode(in, tileWidth, tileHeight);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // encodes the finished mosaic, whole = a BufferedImage of the full target rather than a BandedImage
+    interface MosaicWriter {
+        String write(RenderedImage mosaic, boolean whole) throws IOException;
+    }
+
+    // one image: JPG for whole mosaics, PNG for striped ones
+    private MosaicWriter imageWriter(OutputStream out) {
+        return (mosaic, whole) -> {
+            if (whole) {
+                writeJpg((BufferedImage) mosaic, out);
+                return "jpg";
+            }
+            writePng(mosaic, out);
+            return "png";
+        };
+    }
+
+    private void writeJpg(BufferedImage mosaic, OutputStream out) throws IOException {
+        ImageEncoder.write(mosaic, "jpg", encoder, out);
+    }
+
+    // the PNG writer pulls the image row by row and flushes each IDAT chunk, so only one band is in memory
+    private void writePng(RenderedImage mosaic, OutputStream out) throws IOException {
+        try {
+            ImageEncoder.write(mosaic, "png", encoder, out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // a band failed to decode
+        }
+    }
+
+    private static InputStreamSource asSource(byte[] bytes) {
+        return new ByteArrayResource(bytes);
+    }
+
+    private static List<InputStreamSource> asSources(byte[][] inputs, int from) {
+        List<InputStreamSource> sources = new ArrayList<>(inputs.length - from);
+        for (int i = from; i < inputs.length; i++) {
+            sources.add(asSource(inputs[i]));
+        }
+        return sources;
+    }
+
+    // tiles uploaded with the request, kept on the heap so that one-shot uploads leave nothing on disk
+    private TileLibrary libraryFromUpload(List<? extends InputStreamSource> tiles, ProgressListener listener)
+            throws IOException {
+        // the content hash is the id; on a cache hit nothing is decoded
+        long start = System.nanoTime();
+        String id = TileLibraryCache.contentId(tiles);
+        TileLibrary library = libraryCache.getOrLoad(id, () -> heapLibrary(id, decodedTiles(tiles, listener)));
+        PipelineMetrics.step("decode-tiles", start, listener);
+        listener.onProgress("tiles", 1.0);
+        return library;
+    }
+
+    // decoded lazily while the library is built, corrupt tiles skipped
+    private Iterable<BufferedImage> decodedTiles(List<? extends InputStreamSource> tiles, ProgressListener listener) {
+        AtomicInteger decoded = new AtomicInteger();
+        return () -> tiles.stream()
+                .map(tile -> {
+                    BufferedImage image = decodeTile(tile);
+                    listener.onProgress("tiles", (double) decoded.incrementAndGet() / tiles.size());
+                    return image;
+                })
+                .filter(Objects::nonNull)
+                .iterator();
+    }
+
+    // a library registered earlier, possibly by a previous run that left its atlas on disk
+    private TileLibrary registeredLibrary(String libraryId) {
+        TileLibrary library = libraryCache.get(libraryId);
+        if (library == null && atlasDir != null) {
+            File file = TileAtlas.fileFor(atlasDir, libraryId, tileWidth, tileHeight);
+            if (libraryId.equals(TileAtlas.fingerprint(file))) {
+                library = libraryCache.getOrLoad(libraryId, () -> openAtlas(file, libraryId));
+            }
+        }
+        if (library == null) throw new IllegalArgumentException("Unknown or expired tile library: " + libraryId);
+        return library;
+    }
+
+    /*
+     * With an atlas directory the tiles are streamed into a memory-mapped atlas (skipped when an
+     * atlas with the same fingerprint already exists); otherwise they are scaled onto the heap.
+     */
+    private TileLibrary loadLibrary(String id, String fingerprint, Iterable<BufferedImage> tileImages) {
+        if (atlasDir == null) {
+            return heapLibrary(id, tileImages);
+        }
+        File file = TileAtlas.fileFor(atlasDir, id, tileWidth, tileHeight);
+        writeAtlas(file, fingerprint, tileImages);
+        return openAtlas(file, id);
+    }
+
+    private TileLibrary heapLibrary(String id, Iterable<BufferedImage> tileImages) {
+        return withDescriptors(TileLibrary.of(id, tileImages, tileWidth, tileHeight, colorIndex));
+    }
+
+    private void writeAtlas(File file, String fingerprint, Iterable<BufferedImage> tileImages) {
+        if (fingerprint.equals(TileAtlas.fingerprint(file))) {
+            return;
+        }
+        try (TileAtlas.Writer writer = new TileAtlas.Writer(file, tileWidth, tileHeight, fingerprint)) {
+            for (BufferedImage image : tileImages) {
+                writer.add(image);
+            }
+            writer.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to build tile atlas " + file, e);
+        }
+    }
+
+    private TileLibrary openAtlas(File file, String id) {
+        try {
+            return withDescriptors(TileAtlas.open(file, id, colorIndex));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open tile atlas " + file, e);
+        }
+    }
+
+    // computed before the library enters the cache, so that they count towards its size
+    private TileLibrary withDescriptors(TileLibrary library) {
+        if (descriptorGrid > 1 && assignment.isNearest()) {
+            library.getDescriptors(descriptorGrid, colorMetric);
+            library.getNeighbours(matchCandidates);
+        }
+        return library;
+    }
+
+    /*
+     * The header decides the mode: targets up to maxFramePixels are decoded whole and handed to
+     * the writer as one image (JPG for single images); larger ones are read through source
+     * regions and rendered one band of tile rows at a time while the writer pulls them (PNG),
+     * so memory follows the band height rather than the image size.
+     */
+    private String renderTo(InputStreamSource target, TileLibrary library, MosaicWriter writer,
+                            ProgressListener listener) throws IOException {
+        try (InputStream in = target.getInputStream();
+             BandReader reader = BandReader.open(in)) {
+            if (reader == null) throw new IllegalArgumentException("Base image is invalid or unsupported format.");
 
-        //images library
-        List<BufferedImage> tileImages = new ArrayList<>();
-        for (int i = 1; i < inputs.length; i++) {
-            BufferedImage tile = ImageIO.read(new ByteArrayInputStream(inputs[i]));
-            if (tile == null) continue; // skip corrupt tiles
-            tileImages.add(tile);
+            if ((long) reader.getWidth() * reader.getHeight() <= maxFramePixels) {
+                long start = System.nanoTime();
+                BufferedImage targetImage = reader.readAll();
+                PipelineMetrics.step("decode-target", start, listener);
+                BufferedImage mosaic = render(targetImage, library, tilesFor(library),
+                        assignerFor(library, targetImage.getWidth()), listener);
+                listener.onProgress("encoding", 0.0);
+                start = System.nanoTime();
+                String format = writer.write(mosaic, true);
+                PipelineMetrics.step("encode", start, listener);
+                listener.onProgress("encoding", 1.0);
+                return format;
+            }
+            // bands are encoded as soon as they are rendered, so rendering progress covers encoding too;
+            // the encoder pulls the bands, encode is what remains after their rendering
+            LongAdder bandNanos = new LongAdder();
+            long start = System.nanoTime();
+            String format = writer.write(renderStriped(reader, library, listener, bandNanos), false);
+            PipelineMetrics.stepTime("encode", System.nanoTime() - start - bandNanos.sum(), listener);
+            listener.onProgress("encoding", 1.0);
+            return format;
         }
+    }
+
+    private RenderedImage renderStriped(BandReader reader, TileLibrary library, ProgressListener listener,
+                                        LongAdder bandNanos) {
+        if (library.size() == 0) throw new IllegalArgumentException("No valid tile images.");
+        int width = reader.getWidth();
+        int height = reader.getHeight();
+        int cols = (width + tileWidth - 1) / tileWidth;
+        int rows = (height + tileHeight - 1) / tileHeight;
+
+        // whole tile rows per band, as many as fit in maxFramePixels, the last band takes the rest;
+        // with a quadtree whole blocks of rows, at least one even where that exceeds maxFramePixels,
+        // so that bands do not cut through the largest cells
+        int bandRows = (int) Math.max(1, Math.min(rows, maxFramePixels / ((long) width * tileHeight)));
+        bandRows = Math.max(quadtreeScale, bandRows - bandRows % quadtreeScale);
+        log.debug("Striped render: {}x{} tiles, {} tile rows per band", cols, rows, bandRows);
+
+        // every band is a small target of its own; tile colors never cross a band edge,
+        // blurred tiles and the assignment state (tile uses, error diffusion) are shared by all bands,
+        // which the writer pulls top to bottom
+        TileSource tiles = tilesFor(library);
+        TileAssigner assigner = assignerFor(library, width);
+        ProgressListener bandListener = PipelineMetrics.stepTimesOnly(listener);
+        return new BandedImage(width, height, bandRows * tileHeight, (y, h) -> {
+            long start = System.nanoTime();
+            BufferedImage targetBand = reader.read(0, y, width, h);
+            PipelineMetrics.step("decode-target", start, bandListener);
+            BufferedImage band = render(targetBand, library, tiles, assigner, bandListener);
+            bandNanos.add(System.nanoTime() - start);
+            listener.onProgress("rendering", (double) (y + h) / height);
+            return band;
+        });
+    }
+
+    // the pixels tiles are drawn from; blurred copies are made once per render, only for matched tiles
+    private TileSource tilesFor(TileLibrary library) {
+        return userChooseBlur ? new BlurredTileSource(library, blurRadius) : library;
+    }
+
+    // one per mosaic, null for nearest matching; the grid has one column per started tile width
+    private TileAssigner assignerFor(TileLibrary library, int width) {
+        if (assignment.isNearest()) {
+            return null;
+        }
+        int cols = (width + tileWidth - 1) / tileWidth;
+        return new TileAssigner(cols, library.getIndex(), colorIndex, library.getColors(), assignment);
+    }
+
+    private BufferedImage render(BufferedImage targetImage, TileLibrary library, TileSource tiles,
+                                 TileAssigner assigner, ProgressListener listener) {
+        if (library.size() == 0) throw new IllegalArgumentException("No valid tile images.");
 
         /* ---- start PREPROCESSING as BufferedImage ---- */
-        // split target into tiles
-        List<BufferedImage> targetTiles =
-                ImageSplitter.splitImage(targetImage, tileWidth, tileHeight);
+        // one pass over the target; tiles are only coordinates from here on
+        long start = System.nanoTime();
+        IntegralImage table = IntegralImage.of(targetImage);
+        // the whole target is covered, partial cells along the right and bottom edges included
+        CellLayout layout = quadtreeScale > 1
+                ? CellLayout.quadtree(table, tileWidth, tileHeight, quadtreeScale, quadtreeDeviation)
+                : CellLayout.grid(table.getWidth(), table.getHeight(), tileWidth, tileHeight);
+        int[] targetColors = ImageSplitter.tileColors(table, layout);
+        TileDescriptors targetDescriptors = descriptorGrid > 1 && assignment.isNearest()
+                ? TileDescriptors.ofCells(table, layout, descriptorGrid, colorMetric)
+                : null;
+        PipelineMetrics.step("split", start, listener);
+        PipelineMetrics.count("mosaic.pixels", (long) targetImage.getWidth() * targetImage.getHeight());
 
-        //  match tiles
-        List<BufferedImage> matchedTiles = ImageMatcher.matchTiles(targetTiles, tileImages);
-        System.out.println("Matched " + matchedTiles.size() + " tiles.");
+        //  match tiles against the library's prebuilt index
+        start = System.nanoTime();
+        int[] matches;
+        if (assigner != null) {
+            matches = assigner.assign(targetColors);
+        } else if (targetDescriptors != null) {
+            matches = ImageMatcher.matchDescriptors(targetColors, targetDescriptors, library.getIndex(),
+                    library.getDescriptors(descriptorGrid, colorMetric),
+                    library.getNeighbours(matchCandidates), executor, workChunks());
+        } else {
+            matches = ImageMatcher.matchColors(targetColors, library.getIndex(), executor, workChunks());
+        }
+        PipelineMetrics.step("match", start, listener);
+        PipelineMetrics.count("mosaic.tiles.matched", matches.length);
+        log.debug("Matched {} tiles", matches.length);
+        listener.onProgress("matching", 1.0);
 
         //  build mosaic
-        int cols = targetImage.getWidth() / tileWidth;
-        int rows = targetImage.getHeight() / tileHeight;
+        long blurBefore = tiles instanceof BlurredTileSource blurred ? blurred.blurNanos() : 0;
+        start = System.nanoTime();
         BufferedImage mosaic = MosaicBuilder.buildMosaic(
-                matchedTiles, cols, rows, tileWidth, tileHeight, userChooseBlur
+                matches, tiles, layout, executor, workChunks()
         );
-
+        PipelineMetrics.step("build", start, listener);
+        if (tiles instanceof BlurredTileSource blurred) {
+            PipelineMetrics.stepTime("blur", blurred.blurNanos() - blurBefore, listener);
+        }
+        listener.onProgress("rendering", 1.0);
+        return mosaic;
         /* ---- finish PREPROCESSING as BufferedImage ---- */
-
-        //return as bytes
-        return ImageConverter.bufferedImageToBytes(mosaic, "jpg");
     }
 }
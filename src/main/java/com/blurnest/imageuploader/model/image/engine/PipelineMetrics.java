@@ -0,0 +1,54 @@
+package com.blurnest.imageuploader.model.image.engine;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer instruments of the image pipeline, in the global registry (Spring Boot binds its
+ * registry to it, elsewhere they are no-ops).
+ * <ul>
+ *   <li>{@code image.step} timer, tag step: decode-target, decode-tiles, split, match, build,
+ *       blur, encode (mosaic), store and preview (any op). blur is the summed time of the tile blurs,
+ *       which run inside build, possibly on several threads</li>
+ *   <li>{@code mosaic.pixels}, {@code mosaic.tiles.matched} counters</li>
+ *   <li>{@code image.bytes.in}, {@code image.bytes.out} counters, tag op</li>
+ *   <li>{@code download.bytes} counter, tag mode: sendfile or copy</li>
+ * </ul>
+ */
+public final class PipelineMetrics {
+
+    private PipelineMetrics() {
+    }
+
+    // record the step that began at startNanos (System.nanoTime) globally and for this request
+    public static void step(String step, long startNanos, ProgressListener listener) {
+        stepTime(step, System.nanoTime() - startNanos, listener);
+    }
+
+    public static void stepTime(String step, long nanos, ProgressListener listener) {
+        Timer.builder("image.step").tag("step", step)
+                .register(Metrics.globalRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        listener.onStepTime(step, nanos);
+    }
+
+    public static void count(String name, long amount, String... tags) {
+        Metrics.counter(name, tags).increment(amount);
+    }
+
+    // passes step times on, but not progress, e.g. for the renders of single bands
+    static ProgressListener stepTimesOnly(ProgressListener listener) {
+        return new ProgressListener() {
+            @Override
+            public void onProgress(String stage, double fraction) {
+            }
+
+            @Override
+            public void onStepTime(String step, long nanos) {
+                listener.onStepTime(step, nanos);
+            }
+        };
+    }
+}
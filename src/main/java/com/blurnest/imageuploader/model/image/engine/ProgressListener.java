@@ -0,0 +1,22 @@
+package com.blurnest.imageuploader.model.image.engine;
+
+/**
+ * Receives coarse progress of a mosaic render. Stages arrive in order ("tiles", "matching",
+ * "rendering", "encoding"; striped renders skip "matching"), the fraction is the share of the
+ * current stage that is done.
+ * Called from worker threads, so implementations must be thread-safe and cheap.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    ProgressListener NONE = (stage, fraction) -> { };
+
+    void onProgress(String stage, double fraction);
+
+    /**
+     * Wall time of one finished pipeline step, see {@link PipelineMetrics} for the names.
+     * Striped renders report their per-band steps once per band.
+     */
+    default void onStepTime(String step, long nanos) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.blurnest.imageuploader.model.image.engine.library;
+
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorAverager;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorIndex;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ImageScaler;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.Arrays;
+
+/**
+ * Tile pixels of the whole library in one int[] (tile after tile, row-major 0xRRGGBB).
+ */
+public class HeapTileLibrary extends TileLibrary {
+
+    private final int[] pixels;
+
+    private HeapTileLibrary(String id, int tileWidth, int tileHeight, int[] pixels, int[] colors,
+                            ColorIndex.Factory indexFactory) {
+        super(id, tileWidth, tileHeight, colors, indexFactory);
+        this.pixels = pixels;
+    }
+
+    // images are scaled as they are consumed, so a lazy Iterable never holds more than one decoded image
+    public static HeapTileLibrary of(String id, Iterable<BufferedImage> images, int tileWidth, int tileHeight,
+                                     ColorIndex.Factory indexFactory) {
+        int tilePixels = tileWidth * tileHeight;
+        int[] pixels = new int[16 * tilePixels];
+        int[] colors = new int[16];
+        int count = 0;
+
+        for (BufferedImage image : images) {
+            if (count == colors.length) {
+                colors = Arrays.copyOf(colors, count * 2);
+                pixels = Arrays.copyOf(pixels, Math.multiplyExact(count * 2, tilePixels));
+            }
+            BufferedImage tile = ImageScaler.scaleToFill(image, tileWidth, tileHeight);
+            colors[count] = ColorAverager.averageRGB(tile);
+            copyPixels(tile, pixels, count * tilePixels);
+            count++;
+        }
+        return new HeapTileLibrary(id, tileWidth, tileHeight,
+                Arrays.copyOf(pixels, count * tilePixels), Arrays.copyOf(colors, count), indexFactory);
+    }
+
+    /**
+     * Copy a TYPE_INT_RGB tile from ImageScaler as 0xRRGGBB rows into dst. The tile may be
+     * the caller's own image, e.g. a sub-image, so rows are read through the raster's scanline
+     * stride and sample model translation rather than from the start of its buffer.
+     */
+    static void copyPixels(BufferedImage tile, int[] dst, int offset) {
+        Raster raster = tile.getRaster();
+        SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+        int width = tile.getWidth();
+        int stride = sm.getScanlineStride();
+        int base = raster.getDataBuffer().getOffset()
+                - raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX();
+        for (int y = 0; y < tile.getHeight(); y++) {
+            int src = base + y * stride;
+            int row = offset + y * width;
+            for (int x = 0; x < width; x++) {
+                dst[row + x] = data[src + x] & 0xffffff;
+            }
+        }
+    }
+
+    @Override
+    public void readTile(int index, int[] dst, int offset) {
+        int tilePixels = getTileWidth() * getTileHeight();
+        System.arraycopy(pixels, index * tilePixels, dst, offset, tilePixels);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return (long) pixels.length * Integer.BYTES + indexSizeInBytes();
+    }
+}
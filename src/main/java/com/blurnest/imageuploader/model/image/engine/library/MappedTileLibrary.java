@@ -0,0 +1,34 @@
+package com.blurnest.imageuploader.model.image.engine.library;
+
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorIndex;
+
+import java.nio.IntBuffer;
+
+/**
+ * Tile library backed by a memory-mapped {@link TileAtlas}. Only the colors and the index are
+ * on the heap; tile pixels are copied straight out of the page cache when a cell is drawn.
+ */
+public class MappedTileLibrary extends TileLibrary {
+
+    private final IntBuffer[] segments;
+    private final int tilesPerSegment;
+
+    MappedTileLibrary(String id, int tileWidth, int tileHeight, int[] colors, IntBuffer[] segments,
+                      int tilesPerSegment, ColorIndex.Factory indexFactory) {
+        super(id, tileWidth, tileHeight, colors, indexFactory);
+        this.segments = segments;
+        this.tilesPerSegment = tilesPerSegment;
+    }
+
+    @Override
+    public void readTile(int index, int[] dst, int offset) {
+        int tilePixels = getTileWidth() * getTileHeight();
+        // absolute bulk get: no position state, safe for concurrent readers
+        segments[index / tilesPerSegment].get((index % tilesPerSegment) * tilePixels, dst, offset, tilePixels);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return indexSizeInBytes();
+    }
+}
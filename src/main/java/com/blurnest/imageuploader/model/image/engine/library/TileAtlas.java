@@ -0,0 +1,221 @@
+package com.blurnest.imageuploader.model.image.engine.library;
+
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorAverager;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorIndex;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ImageScaler;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Binary on-disk tile library, read back through {@link FileChannel#map}.
+ * <pre>
+ * offset  size  field (little-endian)
+ *      0     4  magic "MTA1"
+ *      4     4  version
+ *      8     4  tile width
+ *     12     4  tile height
+ *     16     4  tile count
+ *     20     4  reserved
+ *     24     8  offset of the color table
+ *     32    64  source fingerprint (ASCII, zero padded)
+ *    128        tile pixels: count * width * height ints, 0x00RRGGBB, tile after tile, row-major
+ *  colors       color table: count ints, average 0xRRGGBB of each tile
+ * </pre>
+ * Pixels are stored as whole ints rather than 3-byte RGB so a tile row can be bulk-copied
+ * from the mapping into an int raster without per-pixel conversion. The color table comes
+ * last so the atlas can be written in one streaming pass without knowing the tile count.
+ */
+public class TileAtlas {
+
+    static final int MAGIC = 0x3141544D; // "MTA1" read as a little-endian int
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 128;
+    private static final int FINGERPRINT_OFFSET = 32;
+    private static final int FINGERPRINT_BYTES = 64;
+
+    // one mapping may not exceed 2 GB, so large atlases are mapped in segments of whole tiles
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    // file used for a library id at a given tile size
+    public static File fileFor(File dir, String libraryId, int tileWidth, int tileHeight) {
+        byte[] hash = TileLibraryCache.sha256()
+                .digest((libraryId + "@" + tileWidth + "x" + tileHeight).getBytes(StandardCharsets.UTF_8));
+        return new File(dir, HexFormat.of().formatHex(hash, 0, 16) + ".mta");
+    }
+
+    // fingerprint stored in the atlas header, or null if the file is missing or not an atlas
+    public static String fingerprint(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel);
+            if (header == null) {
+                return null;
+            }
+            byte[] raw = new byte[FINGERPRINT_BYTES];
+            header.get(FINGERPRINT_OFFSET, raw);
+            int len = 0;
+            while (len < raw.length && raw[len] != 0) len++;
+            return new String(raw, 0, len, StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public static MappedTileLibrary open(File file, String id, ColorIndex.Factory indexFactory) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel);
+            if (header == null) {
+                throw new IOException("Not a tile atlas: " + file);
+            }
+            int tileWidth = header.getInt(8);
+            int tileHeight = header.getInt(12);
+            int count = header.getInt(16);
+            long colorsOffset = header.getLong(24);
+
+            // the color table is small, keep it on the heap for the index
+            int[] colors = new int[count];
+            ByteBuffer table = ByteBuffer.allocate(count * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (table.hasRemaining()) {
+                if (channel.read(table, colorsOffset + table.position()) < 0) {
+                    throw new IOException("Truncated tile atlas: " + file);
+                }
+            }
+            table.flip().asIntBuffer().get(colors);
+
+            long tileBytes = (long) tileWidth * tileHeight * Integer.BYTES;
+            int tilesPerSegment = (int) Math.max(1, SEGMENT_BYTES / tileBytes);
+            int segmentCount = count == 0 ? 0 : (count + tilesPerSegment - 1) / tilesPerSegment;
+            IntBuffer[] segments = new IntBuffer[segmentCount];
+            for (int s = 0; s < segmentCount; s++) {
+                int tiles = Math.min(tilesPerSegment, count - s * tilesPerSegment);
+                long position = HEADER_BYTES + s * tilesPerSegment * tileBytes;
+                // the mapping stays valid after the channel is closed
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, position, tiles * tileBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .asIntBuffer();
+            }
+            return new MappedTileLibrary(id, tileWidth, tileHeight, colors, segments, tilesPerSegment, indexFactory);
+        }
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                return null;
+            }
+        }
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            return null;
+        }
+        return header;
+    }
+
+    /**
+     * Streams tiles into a new atlas: each image is scaled, averaged and written, then dropped,
+     * so building never holds more than one decoded tile. The file only appears under its final
+     * name on {@link #commit()}.
+     */
+    public static class Writer implements Closeable {
+
+        private final Path target;
+        private final Path temp;
+        private final FileChannel channel;
+        private final int tileWidth;
+        private final int tileHeight;
+        private final String fingerprint;
+        private final ByteBuffer tileBuffer;
+        private final int[] tilePixels;
+        private int[] colors = new int[256];
+        private int count;
+        private boolean committed;
+
+        public Writer(File target, int tileWidth, int tileHeight, String fingerprint) throws IOException {
+            if (fingerprint.length() > FINGERPRINT_BYTES) {
+                throw new IllegalArgumentException("Fingerprint longer than " + FINGERPRINT_BYTES + " chars");
+            }
+            this.target = target.toPath();
+            Files.createDirectories(this.target.getParent());
+            this.temp = Files.createTempFile(this.target.getParent(), "atlas", ".tmp");
+            this.channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+            this.tileWidth = tileWidth;
+            this.tileHeight = tileHeight;
+            this.fingerprint = fingerprint;
+            this.tileBuffer = ByteBuffer.allocate(tileWidth * tileHeight * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            this.tilePixels = new int[tileWidth * tileHeight];
+            channel.position(HEADER_BYTES);
+        }
+
+        public void add(BufferedImage image) throws IOException {
+            BufferedImage tile = ImageScaler.scaleToFill(image, tileWidth, tileHeight);
+            HeapTileLibrary.copyPixels(tile, tilePixels, 0);
+
+            tileBuffer.clear();
+            tileBuffer.asIntBuffer().put(tilePixels);
+            writeFully(tileBuffer);
+
+            if (count == colors.length) {
+                colors = Arrays.copyOf(colors, count * 2);
+            }
+            colors[count++] = ColorAverager.averageRGB(tile);
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public void commit() throws IOException {
+            long colorsOffset = channel.position();
+            ByteBuffer table = ByteBuffer.allocate(count * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            table.asIntBuffer().put(colors, 0, count);
+            writeFully(table);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0, MAGIC)
+                    .putInt(4, VERSION)
+                    .putInt(8, tileWidth)
+                    .putInt(12, tileHeight)
+                    .putInt(16, count)
+                    .putLong(24, colorsOffset)
+                    .put(FINGERPRINT_OFFSET, fingerprint.getBytes(StandardCharsets.US_ASCII));
+            channel.position(0);
+            writeFully(header);
+            channel.force(true);
+            channel.close();
+
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        private void writeFully(ByteBuffer buffer) throws IOException {
+            buffer.rewind();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.blurnest.imageuploader.model.image.engine.library;
+
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorIndex;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorMetric;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ImageMatcher;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.TileDescriptors;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.TileSource;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A set of mosaic tiles ready for matching: every tile pre-scaled to the engine's tile size,
+ * its average color, and the nearest-color index over those colors. Immutable once built,
+ * so one instance is shared by every request that references its id.
+ * <p>
+ * Subclasses only differ in where the tile pixels live: {@link HeapTileLibrary} keeps them in
+ * one int[], {@link MappedTileLibrary} reads them from a memory-mapped {@link TileAtlas}.
+ */
+public abstract class TileLibrary implements TileSource {
+
+    private final String id;
+    private final int tileWidth;
+    private final int tileHeight;
+    private final int[] colors;
+    private final ColorIndex index;
+    // last computed, an engine asks for a single grid, metric and candidate count
+    private volatile Descriptors descriptors;
+    private volatile int[] neighbours;
+
+    private record Descriptors(int grid, ColorMetric metric, TileDescriptors values) {
+    }
+
+    protected TileLibrary(String id, int tileWidth, int tileHeight, int[] colors, ColorIndex.Factory indexFactory) {
+        this.id = id;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.colors = colors;
+        this.index = indexFactory.build(colors);
+    }
+
+    // Scale decoded images to tileWidth x tileHeight and keep them on the heap
+    public static TileLibrary of(String id, Iterable<BufferedImage> images, int tileWidth, int tileHeight,
+                                 ColorIndex.Factory indexFactory) {
+        return HeapTileLibrary.of(id, images, tileWidth, tileHeight, indexFactory);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+    @Override
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    @Override
+    public int size() {
+        return colors.length;
+    }
+
+    // average color (0xRRGGBB) of each tile; do not modify
+    public int[] getColors() {
+        return colors;
+    }
+
+    public ColorIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Sub-block descriptors of every tile, computed on first use and kept for the last grid and
+     * metric asked for. Call before the library is cached so that they count in sizeInBytes().
+     */
+    public TileDescriptors getDescriptors(int grid, ColorMetric metric) {
+        Descriptors d = descriptors;
+        if (d == null || d.grid() != grid || d.metric() != metric) {
+            // racing threads compute the same values, the last one is kept
+            d = new Descriptors(grid, metric, TileDescriptors.of(this, grid, metric));
+            descriptors = d;
+        }
+        return d.values();
+    }
+
+    /**
+     * The k nearest library colors of every tile, see {@link ImageMatcher#neighbourTable};
+     * computed on first use like {@link #getDescriptors}.
+     */
+    public int[] getNeighbours(int k) {
+        int[] table = neighbours;
+        int width = Math.min(k, size());
+        if (table == null || table.length != size() * width) {
+            table = ImageMatcher.neighbourTable(colors, index, k);
+            neighbours = table;
+        }
+        return table;
+    }
+
+    // approximate heap footprint, used for cache eviction
+    public abstract long sizeInBytes();
+
+    // colors + index + descriptors, shared by every storage
+    protected long indexSizeInBytes() {
+        Descriptors d = descriptors;
+        int[] table = neighbours;
+        return colors.length * 24L
+                + (d == null ? 0 : d.values().sizeInBytes())
+                + (table == null ? 0 : table.length * (long) Integer.BYTES);
+    }
+}
@@ -0,0 +1,158 @@
+package com.blurnest.imageuploader.model.image.engine.library;
+
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ImageLoader;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-memory LRU cache of tile libraries, bounded by their approximate size in bytes.
+ * <p>
+ * Libraries are either registered from uploaded bytes (id = content hash, so the same upload
+ * maps to the same library) or loaded from a folder (id = folder path). A folder library
+ * remembers a fingerprint of the folder listing and is reloaded when files change.
+ */
+public class TileLibraryCache {
+
+    private record Entry(TileLibrary library, String fingerprint) {
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // access order
+    private long totalBytes;
+
+    public TileLibraryCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    // cached library for id, or null
+    public synchronized TileLibrary get(String id) {
+        Entry entry = entries.get(id);
+        return entry == null ? null : entry.library();
+    }
+
+    // cached library for id, or the one produced by loader (built outside the lock)
+    public TileLibrary getOrLoad(String id, Supplier<TileLibrary> loader) {
+        TileLibrary cached = get(id);
+        if (cached != null) {
+            return cached;
+        }
+        TileLibrary loaded = loader.get();
+        put(id, loaded, null);
+        return loaded;
+    }
+
+    // library for a folder, reloaded when the folder's fingerprint no longer matches; loader gets the fingerprint
+    public TileLibrary getOrLoadFolder(File folder, Function<String, TileLibrary> loader) {
+        String id = folderId(folder);
+        String fingerprint = folderFingerprint(folder);
+        synchronized (this) {
+            Entry entry = entries.get(id);
+            if (entry != null && fingerprint.equals(entry.fingerprint())) {
+                return entry.library();
+            }
+        }
+        TileLibrary loaded = loader.apply(fingerprint);
+        put(id, loaded, fingerprint);
+        return loaded;
+    }
+
+    // sum of sizeInBytes() of the cached libraries, at most maxBytes unless a single one is larger
+    public synchronized long sizeInBytes() {
+        return totalBytes;
+    }
+
+    public synchronized void invalidate(String id) {
+        Entry removed = entries.remove(id);
+        if (removed != null) {
+            totalBytes -= removed.library().sizeInBytes();
+        }
+    }
+
+    private synchronized void put(String id, TileLibrary library, String fingerprint) {
+        invalidate(id);
+        entries.put(id, new Entry(library, fingerprint));
+        totalBytes += library.sizeInBytes();
+
+        // evict least recently used, but always keep the entry just added
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && entries.size() > 1) {
+            Map.Entry<String, Entry> eldest = it.next();
+            totalBytes -= eldest.getValue().library().sizeInBytes();
+            it.remove();
+        }
+    }
+
+    /* ─── ids ──────────────────────────────────────────────────── */
+
+    public static String folderId(File folder) {
+        return "folder:" + folder.getAbsolutePath();
+    }
+
+    /**
+     * Id of an uploaded library: hash over the SHA-256 of every tile's bytes, in order.
+     * Tiles are read as streams, so multipart uploads are hashed straight from their temp files.
+     */
+    public static String contentId(List<? extends InputStreamSource> tiles) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        for (InputStreamSource tile : tiles) {
+            MessageDigest tileDigest = sha256();
+            try (InputStream in = tile.getInputStream()) {
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    tileDigest.update(buffer, 0, n);
+                }
+            }
+            digest.update(tileDigest.digest());
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+
+    // name, size and modification time of every image file in the folder
+    public static String folderFingerprint(File folder) {
+        File[] files = folder.listFiles(f -> f.isFile() && ImageLoader.isImageFile(f));
+        if (files == null) {
+            return "missing";
+        }
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        MessageDigest digest = sha256();
+        for (File file : files) {
+            digest.update(file.getName().getBytes(StandardCharsets.UTF_8));
+            digest.update(longBytes(file.length()));
+            digest.update(longBytes(file.lastModified()));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static byte[] longBytes(long v) {
+        byte[] b = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            b[i] = (byte) v;
+            v >>>= 8;
+        }
+        return b;
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Reads an image whole or as rectangular regions without decoding the full frame.
+ * <p>
+ * The dimensions come from the header alone, so callers can decide how to read before any
+ * pixel is decoded. Region reads restart decoding from the top for sequential formats such as
+ * JPEG and PNG, but only the requested rows are ever held in memory.
+ */
+public class BandReader implements Closeable {
+
+    private final ImageInputStream iis;
+    private final ImageReader reader;
+    private final int width;
+    private final int height;
+
+    private BandReader(ImageInputStream iis, ImageReader reader) throws IOException {
+        this.iis = iis;
+        this.reader = reader;
+        this.width = reader.getWidth(0);
+        this.height = reader.getHeight(0);
+    }
+
+    // null if the data is not in a readable image format
+    public static BandReader open(InputStream in) throws IOException {
+        ImageInputStream iis = ImageIO.createImageInputStream(in);
+        if (iis == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+        if (!readers.hasNext()) {
+            iis.close();
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            // not seek-forward-only: every band goes back to the start of the image
+            reader.setInput(iis, false, true);
+            return new BandReader(iis, reader);
+        } catch (IOException | RuntimeException e) {
+            reader.dispose();
+            iis.close();
+            throw e;
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public BufferedImage readAll() throws IOException {
+        return reader.read(0);
+    }
+
+    public BufferedImage read(int x, int y, int w, int h) throws IOException {
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(x, y, w, h));
+        return reader.read(0, param);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.dispose();
+        iis.close();
+    }
+}
@@ -0,0 +1,206 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Vector;
+
+/**
+ * A TYPE_INT_RGB image that is rendered lazily, one full-width horizontal band at a time.
+ * <p>
+ * The bands are the image's tiles, so an ImageIO writer that pulls rows through
+ * {@link #getData(Rectangle)} (the PNG writer does) keeps only the current band in memory.
+ * The most recent band is cached; asking for an earlier one renders it again.
+ */
+public class BandedImage implements RenderedImage {
+
+    public interface BandRenderer {
+        // rows [y, y + height) as a TYPE_INT_RGB image of the full width
+        BufferedImage render(int y, int height) throws IOException;
+    }
+
+    private static final ColorModel COLOR_MODEL =
+            new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).getColorModel();
+
+    private final int width;
+    private final int height;
+    private final int bandHeight;
+    private final BandRenderer renderer;
+    private final SampleModel sampleModel;
+
+    private int cachedBand = -1;
+    private Raster cached;
+
+    public BandedImage(int width, int height, int bandHeight, BandRenderer renderer) {
+        if (width < 1 || height < 1 || bandHeight < 1) {
+            throw new IllegalArgumentException("Invalid banded image " + width + "x" + height + " / " + bandHeight);
+        }
+        this.width = width;
+        this.height = height;
+        this.bandHeight = Math.min(bandHeight, height);
+        this.renderer = renderer;
+        this.sampleModel = COLOR_MODEL.createCompatibleSampleModel(width, this.bandHeight);
+    }
+
+    public int getBandHeight() {
+        return bandHeight;
+    }
+
+    @Override
+    public synchronized Raster getTile(int tileX, int tileY) {
+        if (tileX != 0 || tileY < 0 || tileY >= getNumYTiles()) {
+            throw new ArrayIndexOutOfBoundsException("No band " + tileX + "," + tileY);
+        }
+        if (tileY != cachedBand) {
+            int y = tileY * bandHeight;
+            int h = Math.min(bandHeight, height - y);
+            BufferedImage band;
+            try {
+                band = renderer.render(y, h);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (band.getType() != BufferedImage.TYPE_INT_RGB || band.getWidth() != width || band.getHeight() != h) {
+                throw new IllegalStateException("Band " + tileY + " must be a " + width + "x" + h + " TYPE_INT_RGB image");
+            }
+            // move the band to its place in the image
+            cached = band.getRaster().createChild(0, 0, width, h, 0, y, null);
+            cachedBand = tileY;
+        }
+        return cached;
+    }
+
+    // rows within a single band are returned as a view of that band rather than a copy
+    @Override
+    public Raster getData(Rectangle rect) {
+        Rectangle r = rect.intersection(new Rectangle(0, 0, width, height));
+        if (r.isEmpty()) {
+            throw new IllegalArgumentException("Rectangle outside the image: " + rect);
+        }
+        int first = r.y / bandHeight;
+        int last = (r.y + r.height - 1) / bandHeight;
+        if (first == last) {
+            return getTile(0, first).createChild(r.x, r.y, r.width, r.height, r.x, r.y, null);
+        }
+        WritableRaster raster = Raster.createWritableRaster(
+                COLOR_MODEL.createCompatibleSampleModel(r.width, r.height), new Point(r.x, r.y));
+        return copyData(raster);
+    }
+
+    @Override
+    public Raster getData() {
+        return copyData(null);
+    }
+
+    @Override
+    public WritableRaster copyData(WritableRaster raster) {
+        if (raster == null) {
+            raster = COLOR_MODEL.createCompatibleWritableRaster(width, height);
+        }
+        Rectangle bounds = raster.getBounds().intersection(new Rectangle(0, 0, width, height));
+        if (bounds.isEmpty()) {
+            return raster;
+        }
+        int first = bounds.y / bandHeight;
+        int last = (bounds.y + bounds.height - 1) / bandHeight;
+        for (int band = first; band <= last; band++) {
+            Raster tile = getTile(0, band);
+            Rectangle part = tile.getBounds().intersection(bounds);
+            raster.setRect(tile.createChild(part.x, part.y, part.width, part.height, part.x, part.y, null));
+        }
+        return raster;
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources() {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return Image.UndefinedProperty;
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        return null;
+    }
+
+    @Override
+    public ColorModel getColorModel() {
+        return COLOR_MODEL;
+    }
+
+    @Override
+    public SampleModel getSampleModel() {
+        return sampleModel;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getMinX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinY() {
+        return 0;
+    }
+
+    @Override
+    public int getNumXTiles() {
+        return 1;
+    }
+
+    @Override
+    public int getNumYTiles() {
+        return (height + bandHeight - 1) / bandHeight;
+    }
+
+    @Override
+    public int getMinTileX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinTileY() {
+        return 0;
+    }
+
+    @Override
+    public int getTileWidth() {
+        return width;
+    }
+
+    @Override
+    public int getTileHeight() {
+        return bandHeight;
+    }
+
+    @Override
+    public int getTileGridXOffset() {
+        return 0;
+    }
+
+    @Override
+    public int getTileGridYOffset() {
+        return 0;
+    }
+}
@@ -0,0 +1,66 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * View of a tile source with every tile box-blurred on its own.
+ * <p>
+ * A mosaic places the same library tile many times, so each tile is blurred the first time it
+ * is read and the result is kept for the lifetime of this view; tiles that are never matched
+ * are never blurred. Safe for concurrent readers, a tile raced by two threads is just blurred twice.
+ */
+public class BlurredTileSource implements TileSource {
+
+    private final TileSource source;
+    private final int radius;
+    private final AtomicReferenceArray<int[]> blurred;
+    private final LongAdder blurNanos = new LongAdder();
+
+    public BlurredTileSource(TileSource source, int radius) {
+        if (radius < 0 || radius > BoxBlur.MAX_RADIUS) {
+            throw new IllegalArgumentException("Blur radius must be between 0 and " + BoxBlur.MAX_RADIUS + ": " + radius);
+        }
+        this.source = source;
+        this.radius = radius;
+        this.blurred = new AtomicReferenceArray<>(source.size());
+    }
+
+    @Override
+    public int getTileWidth() {
+        return source.getTileWidth();
+    }
+
+    @Override
+    public int getTileHeight() {
+        return source.getTileHeight();
+    }
+
+    @Override
+    public int size() {
+        return source.size();
+    }
+
+    @Override
+    public void readTile(int index, int[] dst, int offset) {
+        int[] pixels = blurred.get(index);
+        if (pixels == null) {
+            long start = System.nanoTime();
+            int tileWidth = getTileWidth();
+            int tileHeight = getTileHeight();
+            pixels = new int[tileWidth * tileHeight];
+            source.readTile(index, pixels, 0);
+            new BoxBlur(tileWidth, tileHeight, radius).apply(pixels, 0, tileWidth);
+            blurNanos.add(System.nanoTime() - start);
+            if (!blurred.compareAndSet(index, null, pixels)) {
+                pixels = blurred.get(index);
+            }
+        }
+        System.arraycopy(pixels, 0, dst, offset, pixels.length);
+    }
+
+    // time spent blurring so far, summed over all reading threads
+    public long blurNanos() {
+        return blurNanos.sum();
+    }
+}
@@ -0,0 +1,131 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import java.util.Arrays;
+
+/**
+ * Separable box blur over packed 0xRRGGBB pixels, with edge pixels repeated past the border.
+ * <p>
+ * A horizontal pass keeps running window sums per channel, then a vertical pass slides a
+ * window over those row sums, so the cost per pixel does not depend on the radius. Window
+ * sums are kept unrounded until the end, so the result is exactly the rounded mean of the
+ * (2r + 1)^2 neighbourhood. One instance owns its scratch arrays and is not thread-safe;
+ * give each worker its own.
+ */
+public class BoxBlur {
+
+    public static final int DEFAULT_RADIUS = 1;   // 3x3, the kernel the mosaic always used
+
+    // keeps 255 * (2r + 1)^2 well inside an int
+    public static final int MAX_RADIUS = 64;
+
+    private final int width;
+    private final int height;
+    private final int radius;
+    private final int area;
+    private final long reciprocal; // ceil(2^40 / area), exact division for every reachable sum
+
+    // horizontal window sums, one array per channel
+    private final int[] rowRed;
+    private final int[] rowGreen;
+    private final int[] rowBlue;
+    // vertical window sums for the current output row
+    private final int[] colRed;
+    private final int[] colGreen;
+    private final int[] colBlue;
+
+    public BoxBlur(int width, int height, int radius) {
+        if (radius < 0 || radius > MAX_RADIUS) {
+            throw new IllegalArgumentException("Blur radius must be between 0 and " + MAX_RADIUS + ": " + radius);
+        }
+        this.width = width;
+        this.height = height;
+        this.radius = radius;
+        this.area = (2 * radius + 1) * (2 * radius + 1);
+        this.reciprocal = ((1L << 40) + area - 1) / area;
+        this.rowRed = new int[width * height];
+        this.rowGreen = new int[width * height];
+        this.rowBlue = new int[width * height];
+        this.colRed = new int[width];
+        this.colGreen = new int[width];
+        this.colBlue = new int[width];
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    // Blur the width x height block at pixels[offset] (rows `stride` apart) in place
+    public void apply(int[] pixels, int offset, int stride) {
+        if (radius == 0) {
+            return;
+        }
+        horizontal(pixels, offset, stride);
+        vertical(pixels, offset, stride);
+    }
+
+    private void horizontal(int[] pixels, int offset, int stride) {
+        int last = width - 1;
+        for (int y = 0; y < height; y++) {
+            int in = offset + y * stride;
+            int out = y * width;
+
+            int red = 0, green = 0, blue = 0;
+            for (int k = -radius; k <= radius; k++) {
+                int p = pixels[in + clamp(k, last)];
+                red += (p >>> 16) & 0xff;
+                green += (p >>> 8) & 0xff;
+                blue += p & 0xff;
+            }
+            for (int x = 0; x < width; x++) {
+                rowRed[out + x] = red;
+                rowGreen[out + x] = green;
+                rowBlue[out + x] = blue;
+
+                // slide the window; only its ends can fall outside the row
+                int leaving = pixels[in + (x - radius < 0 ? 0 : x - radius)];
+                int entering = pixels[in + (x + radius + 1 > last ? last : x + radius + 1)];
+                red += ((entering >>> 16) & 0xff) - ((leaving >>> 16) & 0xff);
+                green += ((entering >>> 8) & 0xff) - ((leaving >>> 8) & 0xff);
+                blue += (entering & 0xff) - (leaving & 0xff);
+            }
+        }
+    }
+
+    private void vertical(int[] pixels, int offset, int stride) {
+        int last = height - 1;
+        int half = area / 2;
+        Arrays.fill(colRed, 0);
+        Arrays.fill(colGreen, 0);
+        Arrays.fill(colBlue, 0);
+        for (int k = -radius; k <= radius; k++) {
+            int row = clamp(k, last) * width;
+            for (int x = 0; x < width; x++) {
+                colRed[x] += rowRed[row + x];
+                colGreen[x] += rowGreen[row + x];
+                colBlue[x] += rowBlue[row + x];
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            int out = offset + y * stride;
+            int leaving = clamp(y - radius, last) * width;
+            int entering = clamp(y + radius + 1, last) * width;
+            for (int x = 0; x < width; x++) {
+                int red = colRed[x], green = colGreen[x], blue = colBlue[x];
+                pixels[out + x] = mean(red + half) << 16 | mean(green + half) << 8 | mean(blue + half);
+
+                colRed[x] = red + rowRed[entering + x] - rowRed[leaving + x];
+                colGreen[x] = green + rowGreen[entering + x] - rowGreen[leaving + x];
+                colBlue[x] = blue + rowBlue[entering + x] - rowBlue[leaving + x];
+            }
+        }
+    }
+
+    // sum / area without an integer division; exact while sum < 2^40 / area, far above 255 * area
+    private int mean(int sum) {
+        return (int) ((sum * reciprocal) >>> 40);
+    }
+
+    private static int clamp(int i, int last) {
+        return i < 0 ? 0 : Math.min(i, last);
+    }
+}
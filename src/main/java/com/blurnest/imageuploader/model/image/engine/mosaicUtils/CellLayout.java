@@ -0,0 +1,230 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import java.util.Arrays;
+
+/**
+ * The cells a target is cut into: one rectangle per library tile placed, covering the whole image.
+ * <p>
+ * {@link #grid} is the regular tile grid, row-major, with narrower cells in the last column and
+ * shorter ones in the last row when the image is not a multiple of the tile size; an edge cell
+ * shows the top-left part of its tile. {@link #quadtree} merges 2x2 groups of full grid cells
+ * whose quadrants have about the same mean color into one cell, recursively up to maxScale x
+ * maxScale cells, and draws its tile scaled up by that factor; detailed areas keep single cells.
+ */
+public final class CellLayout {
+
+    private final int width;
+    private final int height;
+    private final int tileWidth;
+    private final int tileHeight;
+    private final int cols;     // grid cells per row, counting a partial last one
+    private final boolean grid; // cell t is at column t % cols, row t / cols
+    private final int size;
+    private final int[] x;
+    private final int[] y;
+    private final int[] w;
+    private final int[] h;
+    private final byte[] scale;
+
+    private CellLayout(int width, int height, int tileWidth, int tileHeight, boolean grid,
+                       int size, int[] x, int[] y, int[] w, int[] h, byte[] scale) {
+        this.width = width;
+        this.height = height;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.cols = ceilDiv(width, tileWidth);
+        this.grid = grid;
+        this.size = size;
+        this.x = x;
+        this.y = y;
+        this.w = w;
+        this.h = h;
+        this.scale = scale;
+    }
+
+    public static CellLayout grid(int width, int height, int tileWidth, int tileHeight) {
+        check(width, height, tileWidth, tileHeight);
+        int cols = ceilDiv(width, tileWidth);
+        int rows = ceilDiv(height, tileHeight);
+        int size = Math.multiplyExact(cols, rows);
+        int[] x = new int[size], y = new int[size], w = new int[size], h = new int[size];
+        for (int row = 0, t = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++, t++) {
+                x[t] = col * tileWidth;
+                y[t] = row * tileHeight;
+                w[t] = Math.min(tileWidth, width - x[t]);
+                h[t] = Math.min(tileHeight, height - y[t]);
+            }
+        }
+        byte[] scale = new byte[size];
+        Arrays.fill(scale, (byte) 1);
+        return new CellLayout(width, height, tileWidth, tileHeight, true, size, x, y, w, h, scale);
+    }
+
+    /**
+     * @param maxScale     largest merged cell in grid cells per side: 1, 2, 4 or 8
+     * @param maxDeviation a block is merged while no channel of its quadrant means differs from
+     *                     the block mean by more than this (0-255)
+     */
+    public static CellLayout quadtree(IntegralImage table, int tileWidth, int tileHeight, int maxScale,
+                                      int maxDeviation) {
+        if (maxScale < 1 || maxScale > 8 || Integer.bitCount(maxScale) != 1) {
+            throw new IllegalArgumentException("maxScale must be 1, 2, 4 or 8: " + maxScale);
+        }
+        int width = table.getWidth(), height = table.getHeight();
+        check(width, height, tileWidth, tileHeight);
+        int cols = ceilDiv(width, tileWidth);
+        int rows = ceilDiv(height, tileHeight);
+        Builder cells = new Builder(table, tileWidth, tileHeight, cols, rows, maxDeviation);
+        for (int by = 0; by < rows; by += maxScale) {
+            for (int bx = 0; bx < cols; bx += maxScale) {
+                cells.add(bx, by, maxScale);
+            }
+        }
+        return new CellLayout(width, height, tileWidth, tileHeight, maxScale == 1, cells.size,
+                Arrays.copyOf(cells.x, cells.size), Arrays.copyOf(cells.y, cells.size),
+                Arrays.copyOf(cells.w, cells.size), Arrays.copyOf(cells.h, cells.size),
+                Arrays.copyOf(cells.scale, cells.size));
+    }
+
+    private static void check(int width, int height, int tileWidth, int tileHeight) {
+        if (width < 1 || height < 1 || tileWidth < 1 || tileHeight < 1) {
+            throw new IllegalArgumentException("Invalid layout " + width + "x" + height
+                    + " / " + tileWidth + "x" + tileHeight);
+        }
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+
+    // cells in quadtree order, arrays grown as needed
+    private static final class Builder {
+        private final IntegralImage table;
+        private final int tileWidth, tileHeight, cols, rows, maxDeviation;
+        int size;
+        int[] x, y, w, h;
+        byte[] scale;
+
+        Builder(IntegralImage table, int tileWidth, int tileHeight, int cols, int rows, int maxDeviation) {
+            this.table = table;
+            this.tileWidth = tileWidth;
+            this.tileHeight = tileHeight;
+            this.cols = cols;
+            this.rows = rows;
+            this.maxDeviation = maxDeviation;
+            int capacity = Math.multiplyExact(cols, rows);
+            x = new int[capacity];
+            y = new int[capacity];
+            w = new int[capacity];
+            h = new int[capacity];
+            scale = new byte[capacity];
+        }
+
+        // the block of s x s grid cells at grid position (bx, by), as one cell or split in four
+        void add(int bx, int by, int s) {
+            if (bx >= cols || by >= rows) {
+                return;
+            }
+            if (s == 1) {
+                int px = bx * tileWidth, py = by * tileHeight;
+                emit(px, py, Math.min(tileWidth, table.getWidth() - px), Math.min(tileHeight, table.getHeight() - py), 1);
+                return;
+            }
+            if (uniform(bx, by, s)) {
+                emit(bx * tileWidth, by * tileHeight, s * tileWidth, s * tileHeight, s);
+                return;
+            }
+            int half = s / 2;
+            add(bx, by, half);
+            add(bx + half, by, half);
+            add(bx, by + half, half);
+            add(bx + half, by + half, half);
+        }
+
+        // only blocks of full grid cells merge, and only if every level below them would merge too
+        private boolean uniform(int bx, int by, int s) {
+            if ((bx + s) * tileWidth > table.getWidth() || (by + s) * tileHeight > table.getHeight()) {
+                return false;
+            }
+            int half = s / 2;
+            int px = bx * tileWidth, py = by * tileHeight;
+            int qw = half * tileWidth, qh = half * tileHeight;
+            int mean = table.meanRGB(px, py, 2 * qw, 2 * qh);
+            if (deviation(mean, table.meanRGB(px, py, qw, qh)) > maxDeviation
+                    || deviation(mean, table.meanRGB(px + qw, py, qw, qh)) > maxDeviation
+                    || deviation(mean, table.meanRGB(px, py + qh, qw, qh)) > maxDeviation
+                    || deviation(mean, table.meanRGB(px + qw, py + qh, qw, qh)) > maxDeviation) {
+                return false;
+            }
+            return half == 1 || (uniform(bx, by, half) && uniform(bx + half, by, half)
+                    && uniform(bx, by + half, half) && uniform(bx + half, by + half, half));
+        }
+
+        private static int deviation(int rgb1, int rgb2) {
+            int dr = Math.abs(((rgb1 >>> 16) & 0xff) - ((rgb2 >>> 16) & 0xff));
+            int dg = Math.abs(((rgb1 >>> 8) & 0xff) - ((rgb2 >>> 8) & 0xff));
+            int db = Math.abs((rgb1 & 0xff) - (rgb2 & 0xff));
+            return Math.max(dr, Math.max(dg, db));
+        }
+
+        private void emit(int px, int py, int pw, int ph, int s) {
+            x[size] = px;
+            y[size] = py;
+            w[size] = pw;
+            h[size] = ph;
+            scale[size] = (byte) s;
+            size++;
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    // true for a row-major grid of getCols() cells per row, which assignment and descriptors need
+    public boolean isGrid() {
+        return grid;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getX(int cell) {
+        return x[cell];
+    }
+
+    public int getY(int cell) {
+        return y[cell];
+    }
+
+    public int getCellWidth(int cell) {
+        return w[cell];
+    }
+
+    public int getCellHeight(int cell) {
+        return h[cell];
+    }
+
+    // tile pixels per cell pixel per side, 1 unless merged by the quadtree
+    public int getScale(int cell) {
+        return scale[cell];
+    }
+}
@@ -0,0 +1,169 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * Average color kernel that reads the raster's backing array directly.
+ * <p>
+ * Results are packed as 0xRRGGBB and are identical to averaging {@code image.getRGB(x, y)}
+ * channel by channel with integer (truncating) division, but no object is allocated per pixel.
+ * Child rasters created by {@link BufferedImage#getSubimage} are handled through the sample
+ * model translation, so tiles from {@link ImageSplitter} stay on the fast path.
+ */
+public class ColorAverager {
+
+    // Average color of the whole image as 0xRRGGBB
+    public static int averageRGB(BufferedImage image) {
+        return averageRGB(image, 0, 0, image.getWidth(), image.getHeight());
+    }
+
+    // Average color of the rectangle (x, y, w, h) as 0xRRGGBB
+    public static int averageRGB(BufferedImage image, int x, int y, int w, int h) {
+        long[] sums = new long[3];
+        sumRGB(image, x, y, w, h, sums);
+        long total = (long) w * h;
+        int avgRed = (int) (sums[0] / total);
+        int avgGreen = (int) (sums[1] / total);
+        int avgBlue = (int) (sums[2] / total);
+        return (avgRed << 16) | (avgGreen << 8) | avgBlue;
+    }
+
+    /**
+     * Add the red, green and blue sums of the rectangle (x, y, w, h) to {@code sums[0..2]}.
+     */
+    public static void sumRGB(BufferedImage image, int x, int y, int w, int h, long[] sums) {
+        Raster raster = image.getRaster();
+        SampleModel sm = raster.getSampleModel();
+        DataBuffer db = raster.getDataBuffer();
+        // raster coordinates -> sample model coordinates
+        int sx = x - raster.getSampleModelTranslateX();
+        int sy = y - raster.getSampleModelTranslateY();
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB ->
+                    sumPackedInt(db, sm, sx, sy, w, h, 16, 0, sums);
+            case BufferedImage.TYPE_INT_BGR ->
+                    sumPackedInt(db, sm, sx, sy, w, h, 0, 16, sums);
+            case BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR ->
+                    sumInterleavedByte(db, sm, sx, sy, w, h, sums);
+            default -> sumGeneric(image, x, y, w, h, sums);
+        }
+    }
+
+    /**
+     * Copy {@code w} pixels of row {@code y}, starting at {@code x}, into {@code dst} as 0xRRGGBB.
+     * Same values as {@code image.getRGB(x, y, w, 1, dst, 0, w)} without the alpha byte.
+     */
+    public static void getRowRGB(BufferedImage image, int x, int y, int w, int[] dst) {
+        Raster raster = image.getRaster();
+        SampleModel sm = raster.getSampleModel();
+        DataBuffer db = raster.getDataBuffer();
+        int sx = x - raster.getSampleModelTranslateX();
+        int sy = y - raster.getSampleModelTranslateY();
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_BGR -> {
+                int[] data = ((DataBufferInt) db).getData();
+                int i = db.getOffset() + sy * ((SinglePixelPackedSampleModel) sm).getScanlineStride() + sx;
+                boolean bgr = image.getType() == BufferedImage.TYPE_INT_BGR;
+                for (int k = 0; k < w; k++) {
+                    int p = data[i + k];
+                    dst[k] = bgr
+                            ? (p & 0xff) << 16 | (p & 0xff00) | (p >>> 16) & 0xff
+                            : p & 0xffffff;
+                }
+            }
+            case BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR -> {
+                ComponentSampleModel csm = (ComponentSampleModel) sm;
+                byte[] data = ((DataBufferByte) db).getData();
+                int pixelStride = csm.getPixelStride();
+                int[] bandOffsets = csm.getBandOffsets();
+                int i = db.getOffset() + sy * csm.getScanlineStride() + sx * pixelStride;
+                for (int k = 0; k < w; k++, i += pixelStride) {
+                    dst[k] = (data[i + bandOffsets[0]] & 0xff) << 16
+                            | (data[i + bandOffsets[1]] & 0xff) << 8
+                            | (data[i + bandOffsets[2]] & 0xff);
+                }
+            }
+            default -> {
+                image.getRGB(x, y, w, 1, dst, 0, w);
+                for (int k = 0; k < w; k++) {
+                    dst[k] &= 0xffffff;
+                }
+            }
+        }
+    }
+
+    private static void sumPackedInt(DataBuffer db, SampleModel sm, int sx, int sy, int w, int h,
+                                     int redShift, int blueShift, long[] sums) {
+        if (!(db instanceof DataBufferInt) || !(sm instanceof SinglePixelPackedSampleModel)) {
+            throw new IllegalStateException("Unexpected raster layout for packed int image");
+        }
+        int[] data = ((DataBufferInt) db).getData();
+        int stride = ((SinglePixelPackedSampleModel) sm).getScanlineStride();
+        int base = db.getOffset() + sy * stride + sx;
+
+        ColorKernels kernels = ColorKernels.current();
+        for (int row = 0; row < h; row++) {
+            int i = base + row * stride;
+            kernels.sumPacked(data, i, i + w, redShift, blueShift, sums);
+        }
+    }
+
+    private static void sumInterleavedByte(DataBuffer db, SampleModel sm, int sx, int sy, int w, int h,
+                                           long[] sums) {
+        if (!(db instanceof DataBufferByte) || !(sm instanceof ComponentSampleModel)) {
+            throw new IllegalStateException("Unexpected raster layout for interleaved byte image");
+        }
+        ComponentSampleModel csm = (ComponentSampleModel) sm;
+        byte[] data = ((DataBufferByte) db).getData();
+        int pixelStride = csm.getPixelStride();
+        int stride = csm.getScanlineStride();
+        // bands are R, G, B(, A) regardless of the in-memory BGR/ABGR order
+        int[] bandOffsets = csm.getBandOffsets();
+        int redOff = bandOffsets[0], greenOff = bandOffsets[1], blueOff = bandOffsets[2];
+        int base = db.getOffset() + sy * stride + sx * pixelStride;
+
+        long sumRed = 0, sumGreen = 0, sumBlue = 0;
+        for (int row = 0; row < h; row++) {
+            int i = base + row * stride;
+            int end = i + w * pixelStride;
+            int rowRed = 0, rowGreen = 0, rowBlue = 0;
+            for (; i < end; i += pixelStride) {
+                rowRed += data[i + redOff] & 0xff;
+                rowGreen += data[i + greenOff] & 0xff;
+                rowBlue += data[i + blueOff] & 0xff;
+            }
+            sumRed += rowRed;
+            sumGreen += rowGreen;
+            sumBlue += rowBlue;
+        }
+        sums[0] += sumRed;
+        sums[1] += sumGreen;
+        sums[2] += sumBlue;
+    }
+
+    // Any other color model (gray, indexed, premultiplied, custom): let Java2D convert, one row at a time
+    private static void sumGeneric(BufferedImage image, int x, int y, int w, int h, long[] sums) {
+        int[] rowPixels = new int[w];
+        long sumRed = 0, sumGreen = 0, sumBlue = 0;
+        for (int row = 0; row < h; row++) {
+            image.getRGB(x, y + row, w, 1, rowPixels, 0, w);
+            for (int p : rowPixels) {
+                sumRed += (p >>> 16) & 0xff;
+                sumGreen += (p >>> 8) & 0xff;
+                sumBlue += p & 0xff;
+            }
+        }
+        sums[0] += sumRed;
+        sums[1] += sumGreen;
+        sums[2] += sumBlue;
+    }
+}
@@ -0,0 +1,40 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Nearest-neighbour lookup over the average colors (0xRRGGBB) of a tile library.
+ * <p>
+ * Built once per library and read-only afterwards, so one instance can be shared by
+ * concurrent matches. Every implementation must return exactly what a linear scan with
+ * squared RGB distance returns, including ties: the lowest library index wins. Indexes for
+ * other metrics come from {@link ColorMetric#indexFactory}.
+ */
+public interface ColorIndex {
+
+    Factory LINEAR = LinearColorIndex::new;
+    Factory KD_TREE = KdTreeColorIndex::new;
+
+    // index of the library color closest to rgb, -1 if the library is empty
+    int nearest(int rgb);
+
+    /**
+     * The up to k library colors closest to rgb, nearest first, with the same tie rule.
+     * @return how many indexes were written to dst (min(k, size()))
+     */
+    int nearest(int rgb, int k, int[] dst);
+
+    /**
+     * The closest library color whose index accept accepts, -1 if it accepts none. Rejected
+     * colors are skipped during the search, so a lookup costs about as much as the region of
+     * rejected colors around rgb; accept is only asked about colors that would be the new best.
+     */
+    int nearest(int rgb, IntPredicate accept);
+
+    int size();
+
+    @FunctionalInterface
+    interface Factory {
+        ColorIndex build(int[] colors);
+    }
+}
@@ -0,0 +1,62 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The two innermost loops of matching and averaging, behind an interface so that a SIMD
+ * implementation can replace the scalar one.
+ * <p>
+ * {@link #current()} picks {@code VectorColorKernels} when it was compiled in (Maven profile
+ * {@code vector}) and the JVM runs with {@code --add-modules jdk.incubator.vector}; otherwise,
+ * or with {@code -Dmosaic.kernels=scalar}, it falls back to {@link #SCALAR}. Both return
+ * identical results.
+ */
+public interface ColorKernels {
+
+    ColorKernels SCALAR = new ScalarColorKernels();
+
+    /**
+     * Index of the color closest to rgb in squared RGB distance among the first count entries of
+     * the channel arrays, lowest index on ties, -1 if count is 0.
+     */
+    int nearest(int[] red, int[] green, int[] blue, int count, int rgb);
+
+    /**
+     * Add the channel sums of the packed pixels data[from, to) to sums[0..2]; red is read at
+     * redShift, green at 8 and blue at blueShift.
+     */
+    void sumPacked(int[] data, int from, int to, int redShift, int blueShift, long[] sums);
+
+    // "scalar", or the vector species, e.g. "vector-512"
+    String name();
+
+    static ColorKernels current() {
+        return Selected.KERNELS;
+    }
+
+    final class Selected {
+        private static final Logger log = LoggerFactory.getLogger(ColorKernels.class);
+        private static final ColorKernels KERNELS = select();
+
+        private Selected() {
+        }
+
+        private static ColorKernels select() {
+            if ("scalar".equals(System.getProperty("mosaic.kernels"))
+                    || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+                return SCALAR;
+            }
+            try {
+                ColorKernels kernels = (ColorKernels) Class
+                        .forName(ColorKernels.class.getPackageName() + ".VectorColorKernels")
+                        .getDeclaredConstructor().newInstance();
+                log.info("Using {} color kernels", kernels.name());
+                return kernels;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // not compiled in, or the CPU has no usable vector shape
+                return SCALAR;
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+/**
+ * How "closest tile color" is measured when matching.
+ * <ul>
+ *   <li>RGB: squared Euclidean distance of the 8-bit channels (the original behaviour)</li>
+ *   <li>REDMEAN: RGB weighted by the mean red of the pair, a cheap approximation of perception</li>
+ *   <li>LAB_DE76: Euclidean distance in CIELAB</li>
+ *   <li>CIEDE2000: the CIEDE2000 difference in CIELAB, best quality and most expensive</li>
+ * </ul>
+ * Library colors are converted once when the index is built and each target color once per
+ * lookup, so the metric mostly costs the distance function itself.
+ */
+public enum ColorMetric {
+
+    RGB, REDMEAN, LAB_DE76, CIEDE2000;
+
+    /**
+     * Index over library colors for this metric. {@link ColorIndex#LINEAR} always scans every
+     * color; any other factory selects a k-d tree (for RGB, that factory itself). The tree is
+     * exact except for CIEDE2000, which re-ranks the nearest candidates in CIE76.
+     */
+    public ColorIndex.Factory indexFactory(ColorIndex.Factory structure) {
+        if (this == RGB) {
+            return structure;
+        }
+        boolean linear = structure == ColorIndex.LINEAR;
+        return colors -> new MetricColorIndex(colors, this, linear);
+    }
+
+    boolean usesLab() {
+        return this == LAB_DE76 || this == CIEDE2000;
+    }
+
+    // the redmean formula in integers: ((512 + r) dR^2 >> 8) + 4 dG^2 + ((767 - r) dB^2 >> 8)
+    static int redmeanDistance(int rgb1, int rgb2) {
+        int r1 = (rgb1 >>> 16) & 0xff, r2 = (rgb2 >>> 16) & 0xff;
+        int rMean = (r1 + r2) >> 1;
+        int dr = r1 - r2;
+        int dg = ((rgb1 >>> 8) & 0xff) - ((rgb2 >>> 8) & 0xff);
+        int db = (rgb1 & 0xff) - (rgb2 & 0xff);
+        return (((512 + rMean) * dr * dr) >> 8) + 4 * dg * dg + (((767 - rMean) * db * db) >> 8);
+    }
+}
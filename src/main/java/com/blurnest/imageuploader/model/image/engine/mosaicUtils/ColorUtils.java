@@ -1,5 +1,8 @@
 package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.FileWriter;
@@ -8,27 +11,11 @@ import java.util.List;
 
 public class ColorUtils {
 
+    private static final Logger log = LoggerFactory.getLogger(ColorUtils.class);
+
     // Compute average color of an image
     public static Color getAverageColor(BufferedImage image) {
-        long sumRed = 0, sumGreen = 0, sumBlue = 0;
-        int width = image.getWidth();
-        int height = image.getHeight();
-        int totalPixels = width * height;
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                Color pixel = new Color(image.getRGB(x, y));
-                sumRed += pixel.getRed();
-                sumGreen += pixel.getGreen();
-                sumBlue += pixel.getBlue();
-            }
-        }
-
-        int avgRed = (int) (sumRed / totalPixels);
-        int avgGreen = (int) (sumGreen / totalPixels);
-        int avgBlue = (int) (sumBlue / totalPixels);
-
-        return new Color(avgRed, avgGreen, avgBlue);
+        return new Color(ColorAverager.averageRGB(image));
     }
 
     // Compute Euclidean distance between two colors
@@ -39,18 +26,25 @@ public class ColorUtils {
         return Math.sqrt(redDiff * redDiff + greenDiff * greenDiff + blueDiff * blueDiff);
     }
 
+    // Squared Euclidean distance between two packed 0xRRGGBB colors, same ordering as colorDistance
+    public static int colorDistanceSquared(int rgb1, int rgb2) {
+        int redDiff = ((rgb1 >>> 16) & 0xff) - ((rgb2 >>> 16) & 0xff);
+        int greenDiff = ((rgb1 >>> 8) & 0xff) - ((rgb2 >>> 8) & 0xff);
+        int blueDiff = (rgb1 & 0xff) - (rgb2 & 0xff);
+        return redDiff * redDiff + greenDiff * greenDiff + blueDiff * blueDiff;
+    }
+
     public static void exportTileColorsToCSV(List<BufferedImage> tiles, String outputPath) {
         try (FileWriter writer = new FileWriter(outputPath)) {
             writer.write("TileIndex,Red,Green,Blue\n");
             for (int i = 0; i < tiles.size(); i++) {
-                BufferedImage tile = tiles.get(i);
-                Color avgColor = ColorUtils.getAverageColor(tile);
-                writer.write(
-                        String.format("%d,%d,%d,%d\n", i, avgColor.getRed(), avgColor.getGreen(), avgColor.getBlue()));
+                int avgColor = ColorAverager.averageRGB(tiles.get(i));
+                writer.write(String.format("%d,%d,%d,%d\n",
+                        i, (avgColor >>> 16) & 0xff, (avgColor >>> 8) & 0xff, avgColor & 0xff));
             }
-            System.out.println("Exported colors to: " + outputPath);
+            log.info("Exported colors to: {}", outputPath);
         } catch (IOException e) {
-            System.err.println("Failed to write CSV: " + e.getMessage());
+            log.warn("Failed to write CSV: {}", e.getMessage());
         }
     }
 }
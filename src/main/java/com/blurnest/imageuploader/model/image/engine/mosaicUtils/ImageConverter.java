@@ -1,16 +1,17 @@
 package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
 
+import com.blurnest.imageuploader.model.image.codec.EncoderSettings;
+import com.blurnest.imageuploader.model.image.codec.ImageEncoder;
+
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 public class ImageConverter {
     public static byte[] bufferedImageToBytes(BufferedImage image, String format) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            ImageIO.write(image, format, baos);
-            return baos.toByteArray();
+        try {
+            return ImageEncoder.toBytes(image, format, EncoderSettings.DEFAULT);
         } catch (IOException e) {
             throw new RuntimeException("Failed to convert image to byte array", e);
         }
@@ -33,4 +34,13 @@ public class ImageConverter {
             throw new RuntimeException("Failed to convert byte[] to BufferedImage", e);
         }
     }
+
+    // decode or return null for corrupt/unsupported data, for inputs that may be skipped
+    public static BufferedImage tryDecode(byte[] data) {
+        try (ByteArrayInputStream bais = new ByteArrayInputStream(data)) {
+            return ImageIO.read(bais);
+        } catch (IOException e) {
+            return null;
+        }
+    }
 }
@@ -1,21 +1,28 @@
 package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 public class ImageLoader {
 
+    private static final Logger log = LoggerFactory.getLogger(ImageLoader.class);
+
     // access the target image
     public static BufferedImage loadImage(String path) {
         try {
             File file = new File(path);
             return ImageIO.read(file);
         } catch (IOException e) {
-            System.err.println("access fail：" + e.getMessage());
+            log.warn("access fail: {}", e.getMessage());
             return null;
         }
     }
@@ -27,7 +34,7 @@ public class ImageLoader {
         File[] files = folder.listFiles();
 
         if (files == null || files.length == 0) {
-            System.err.println("document doesn't exist：" + folderPath);
+            log.warn("document doesn't exist: {}", folderPath);
             return images;
         }
 
@@ -43,7 +50,44 @@ public class ImageLoader {
         return images;
     }
 
-    private static boolean isImageFile(File file) {
+    // lazily decode image files one at a time, for callers that do not keep every image
+    public static Iterable<BufferedImage> iterateImagesInFolder(String folderPath) {
+        File[] files = new File(folderPath).listFiles();
+        if (files == null || files.length == 0) {
+            log.warn("document doesn't exist: {}", folderPath);
+            return List.of();
+        }
+        return () -> Arrays.stream(files)
+                .filter(file -> file.isFile() && isImageFile(file))
+                .map(file -> loadImage(file.getAbsolutePath()))
+                .filter(Objects::nonNull)
+                .iterator();
+    }
+
+    // lazily decode image files straight to tile size (see TileDecoder), skipping unreadable files
+    public static Iterable<BufferedImage> iterateTilesInFolder(String folderPath, int tileWidth, int tileHeight) {
+        File[] files = new File(folderPath).listFiles();
+        if (files == null || files.length == 0) {
+            log.warn("document doesn't exist: {}", folderPath);
+            return List.of();
+        }
+        return () -> Arrays.stream(files)
+                .filter(file -> file.isFile() && isImageFile(file))
+                .map(file -> loadTile(file, tileWidth, tileHeight))
+                .filter(Objects::nonNull)
+                .iterator();
+    }
+
+    private static BufferedImage loadTile(File file, int tileWidth, int tileHeight) {
+        try {
+            return TileDecoder.decode(file, tileWidth, tileHeight);
+        } catch (IOException e) {
+            log.warn("access fail: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    public static boolean isImageFile(File file) {
         String[] extensions = { ".jpg", ".jpeg", ".png", ".bmp" };
         String name = file.getName().toLowerCase();
         for (String ext : extensions) {
@@ -1,9 +1,9 @@
 package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public class ImageMatcher {
 
@@ -14,30 +14,94 @@ public class ImageMatcher {
 
         List<BufferedImage> result = new ArrayList<>();
 
-        // Precompute average colors of tile library
-        List<Color> tileColors = new ArrayList<>();
-        for (BufferedImage tile : tileLibrary) {
-            tileColors.add(ColorUtils.getAverageColor(tile));
+        int[] tileColors = averageColors(tileLibrary);
+        int[] targetColors = averageColors(targetTiles);
+        for (int match : matchColors(targetColors, tileColors)) {
+            result.add(tileLibrary.get(match));
         }
 
-        // For each target tile, find the closest tile
-        for (BufferedImage target : targetTiles) {
-            Color targetColor = ColorUtils.getAverageColor(target);
+        return result;
+    }
+
+    // Precompute average colors (packed 0xRRGGBB) of a list of tiles
+    public static int[] averageColors(List<BufferedImage> tiles) {
+        int[] colors = new int[tiles.size()];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = ColorAverager.averageRGB(tiles.get(i));
+        }
+        return colors;
+    }
 
-            double minDistance = Double.MAX_VALUE;
-            int bestMatchIndex = -1;
+    // For each target color, return the index of the closest library color (brute force)
+    public static int[] matchColors(int[] targetColors, int[] tileColors) {
+        return matchColors(targetColors, ColorIndex.LINEAR.build(tileColors));
+    }
 
-            for (int i = 0; i < tileColors.size(); i++) {
-                double dist = ColorUtils.colorDistance(targetColor, tileColors.get(i));
-                if (dist < minDistance) {
-                    minDistance = dist;
-                    bestMatchIndex = i;
-                }
+    // For each target color, return the index of the closest library color using a prebuilt index
+    public static int[] matchColors(int[] targetColors, ColorIndex index) {
+        return matchColors(targetColors, index, null, 1);
+    }
+
+    // Same as above with target tiles partitioned across `chunks` tasks on the executor
+    public static int[] matchColors(int[] targetColors, ColorIndex index, Executor executor, int chunks) {
+        int[] matches = new int[targetColors.length];
+        // the index is read-only and every task writes its own slice of matches
+        ParallelTasks.forRange(executor, targetColors.length, chunks, (from, to) -> {
+            for (int t = from; t < to; t++) {
+                matches[t] = index.nearest(targetColors[t]);
             }
+        });
+        return matches;
+    }
 
-            result.add(tileLibrary.get(bestMatchIndex));
+    /**
+     * For every library color, the library indexes of its {@code k} nearest library colors (itself
+     * first), {@code min(k, colors.length)} per row. Built once per library with the same index
+     * that matches target colors.
+     */
+    public static int[] neighbourTable(int[] colors, ColorIndex index, int k) {
+        int width = Math.min(k, colors.length);
+        int[] table = new int[colors.length * width];
+        int[] row = new int[width];
+        for (int i = 0; i < colors.length; i++) {
+            index.nearest(colors[i], width, row);
+            System.arraycopy(row, 0, table, i * width, width);
         }
+        return table;
+    }
 
-        return result;
+    /**
+     * Two-stage match: the index finds the tile closest in mean color, its row of the
+     * {@link #neighbourTable} proposes the candidates, and the candidate whose descriptor is
+     * closest to the target cell's wins (ties to the lower library index). The candidates are the
+     * neighbours of the best mean color rather than of the target color itself, so a cell costs
+     * one index lookup plus one descriptor distance per candidate.
+     */
+    public static int[] matchDescriptors(int[] targetColors, TileDescriptors targetDescriptors, ColorIndex index,
+                                         TileDescriptors libraryDescriptors, int[] neighbours,
+                                         Executor executor, int chunks) {
+        if (targetDescriptors.getGrid() != libraryDescriptors.getGrid()) {
+            throw new IllegalArgumentException("Descriptor grids differ: " + targetDescriptors.getGrid()
+                    + " and " + libraryDescriptors.getGrid());
+        }
+        int width = neighbours.length / libraryDescriptors.size();
+        int[] matches = new int[targetColors.length];
+        ParallelTasks.forRange(executor, targetColors.length, chunks, (from, to) -> {
+            for (int t = from; t < to; t++) {
+                int row = index.nearest(targetColors[t]) * width;
+                int best = -1;
+                float bestDistance = Float.MAX_VALUE;
+                for (int c = row; c < row + width; c++) {
+                    int tile = neighbours[c];
+                    float dist = targetDescriptors.distance(t, libraryDescriptors, tile);
+                    if (dist < bestDistance || (dist == bestDistance && tile < best)) {
+                        bestDistance = dist;
+                        best = tile;
+                    }
+                }
+                matches[t] = best;
+            }
+        });
+        return matches;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,40 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+public class ImageScaler {
+
+    /**
+     * Scale an image to exactly w x h as TYPE_INT_RGB, cropping the centre to the target
+     * aspect ratio first so tiles are not stretched. Large reductions are done in halving
+     * steps so bilinear filtering still sees every source pixel. An image that already fits is
+     * returned as is, and may be a sub-image of a larger raster.
+     */
+    public static BufferedImage scaleToFill(BufferedImage src, int w, int h) {
+        if (src.getWidth() == w && src.getHeight() == h && src.getType() == BufferedImage.TYPE_INT_RGB) {
+            return src;
+        }
+
+        // centre crop to the w:h aspect ratio
+        Rectangle crop = TileDecoder.centreCrop(src.getWidth(), src.getHeight(), w, h);
+        BufferedImage current = src.getSubimage(crop.x, crop.y, crop.width, crop.height);
+
+        // halve while more than 2x too large
+        while (current.getWidth() >= w * 2 && current.getHeight() >= h * 2) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        return draw(current, w, h);
+    }
+
+    private static BufferedImage draw(BufferedImage src, int w, int h) {
+        BufferedImage dst = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = dst.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(src, 0, 0, w, h, null);
+        g.dispose();
+        return dst;
+    }
+}
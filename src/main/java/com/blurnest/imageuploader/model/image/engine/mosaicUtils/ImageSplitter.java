@@ -21,4 +21,17 @@ public class ImageSplitter {
 
         return tiles;
     }
+
+    /**
+     * Mean color (0xRRGGBB) of every cell of the layout in the layout's order, read from the
+     * summed-area table. Unlike {@link #splitImage} it never creates a sub-image and includes the
+     * partial cells along the right and bottom edges.
+     */
+    public static int[] tileColors(IntegralImage table, CellLayout layout) {
+        int[] colors = new int[layout.size()];
+        for (int t = 0; t < colors.length; t++) {
+            colors[t] = table.meanRGB(layout.getX(t), layout.getY(t), layout.getCellWidth(t), layout.getCellHeight(t));
+        }
+        return colors;
+    }
 }
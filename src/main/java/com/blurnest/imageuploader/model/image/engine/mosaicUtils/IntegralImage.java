@@ -0,0 +1,100 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Summed-area table of the red, green and blue channels of an image.
+ * <p>
+ * Built with a single pass over the decoded image; afterwards the sum or mean color of any
+ * rectangle is answered in constant time, so the target never has to be cut into sub-images
+ * and the same table can be re-queried for a different tile size.
+ * <p>
+ * Prefix sums are kept in {@code int[]} and allowed to wrap around: a rectangle sum is
+ * computed modulo 2^32 and is exact as long as it fits in 32 unsigned bits, i.e. for any
+ * rectangle of at most {@link #MAX_AREA} pixels. This halves the memory of a {@code long[]} table.
+ */
+public class IntegralImage {
+
+    // largest rectangle whose 8-bit channel sum still fits in an unsigned int
+    public static final long MAX_AREA = 0xffffffffL / 255;
+
+    private final int width;
+    private final int height;
+    private final int stride;   // width + 1, row 0 and column 0 are all zero
+    private final int[] red;
+    private final int[] green;
+    private final int[] blue;
+
+    private IntegralImage(int width, int height) {
+        long cells = (long) (width + 1) * (height + 1);
+        if (cells > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Image too large for a summed-area table: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.stride = width + 1;
+        this.red = new int[(int) cells];
+        this.green = new int[(int) cells];
+        this.blue = new int[(int) cells];
+    }
+
+    public static IntegralImage of(BufferedImage image) {
+        IntegralImage table = new IntegralImage(image.getWidth(), image.getHeight());
+        int[] row = new int[table.width];
+        for (int y = 0; y < table.height; y++) {
+            ColorAverager.getRowRGB(image, 0, y, table.width, row);
+            table.addRow(y, row);
+        }
+        return table;
+    }
+
+    // row y of the image -> row y + 1 of the table
+    private void addRow(int y, int[] rgb) {
+        int above = y * stride + 1;
+        int here = above + stride;
+        int rowRed = 0, rowGreen = 0, rowBlue = 0;
+        for (int x = 0; x < width; x++) {
+            int p = rgb[x];
+            rowRed += (p >>> 16) & 0xff;
+            rowGreen += (p >>> 8) & 0xff;
+            rowBlue += p & 0xff;
+            red[here + x] = red[above + x] + rowRed;
+            green[here + x] = green[above + x] + rowGreen;
+            blue[here + x] = blue[above + x] + rowBlue;
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Mean color of the rectangle (x, y, w, h) as 0xRRGGBB, truncated the same way as
+     * {@link ColorAverager#averageRGB(BufferedImage, int, int, int, int)}.
+     */
+    public int meanRGB(int x, int y, int w, int h) {
+        long area = (long) w * h;
+        if (w <= 0 || h <= 0 || x < 0 || y < 0 || x + w > width || y + h > height) {
+            throw new IllegalArgumentException("Rectangle out of bounds: " + x + "," + y + " " + w + "x" + h);
+        }
+        if (area > MAX_AREA) {
+            throw new IllegalArgumentException("Rectangle too large for 32-bit sums: " + area + " pixels");
+        }
+        int a = y * stride + x;           // top-left
+        int b = a + w;                    // top-right
+        int c = (y + h) * stride + x;     // bottom-left
+        int d = c + w;                    // bottom-right
+        int avgRed = (int) (rectSum(red, a, b, c, d) / area);
+        int avgGreen = (int) (rectSum(green, a, b, c, d) / area);
+        int avgBlue = (int) (rectSum(blue, a, b, c, d) / area);
+        return (avgRed << 16) | (avgGreen << 8) | avgBlue;
+    }
+
+    private static long rectSum(int[] t, int a, int b, int c, int d) {
+        return Integer.toUnsignedLong(t[d] - t[b] - t[c] + t[a]);
+    }
+}
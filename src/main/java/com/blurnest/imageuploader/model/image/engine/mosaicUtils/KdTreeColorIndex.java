@@ -0,0 +1,180 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * k-d tree over RGB space, stored implicitly in flat arrays.
+ * <p>
+ * The node of a range [lo, hi) is its middle element; the left half holds points that are
+ * not greater on the split axis and the right half points that are not smaller. Lookups
+ * cost O(log n) on typical libraries instead of the O(n) linear scan, with identical results.
+ */
+public class KdTreeColorIndex implements ColorIndex {
+
+    private final int size;
+    // point coordinates in tree order
+    private final int[] red;
+    private final int[] green;
+    private final int[] blue;
+    // library index of each tree slot
+    private final int[] libraryIndex;
+    // split axis of each node: 0 = red, 1 = green, 2 = blue
+    private final byte[] axis;
+
+    public KdTreeColorIndex(int[] colors) {
+        this.size = colors.length;
+        this.red = new int[size];
+        this.green = new int[size];
+        this.blue = new int[size];
+        this.libraryIndex = new int[size];
+        this.axis = new byte[size];
+
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        build(colors, order, 0, size, new long[size]);
+
+        for (int slot = 0; slot < size; slot++) {
+            int c = colors[order[slot]];
+            red[slot] = (c >>> 16) & 0xff;
+            green[slot] = (c >>> 8) & 0xff;
+            blue[slot] = c & 0xff;
+            libraryIndex[slot] = order[slot];
+        }
+    }
+
+    // Arrange order[lo, hi) so that its middle element splits the widest channel of the range
+    private void build(int[] colors, int[] order, int lo, int hi, long[] keys) {
+        if (hi - lo <= 0) {
+            return;
+        }
+        int widest = widestAxis(colors, order, lo, hi);
+        int shift = 16 - 8 * widest;
+
+        // sort by (channel value, library index) using primitive keys
+        for (int i = lo; i < hi; i++) {
+            keys[i] = ((long) ((colors[order[i]] >>> shift) & 0xff) << 32) | order[i];
+        }
+        Arrays.sort(keys, lo, hi);
+        for (int i = lo; i < hi; i++) {
+            order[i] = (int) keys[i];
+        }
+
+        int mid = (lo + hi) >>> 1;
+        axis[mid] = (byte) widest;
+        build(colors, order, lo, mid, keys);
+        build(colors, order, mid + 1, hi, keys);
+    }
+
+    private static int widestAxis(int[] colors, int[] order, int lo, int hi) {
+        int minR = 255, maxR = 0, minG = 255, maxG = 0, minB = 255, maxB = 0;
+        for (int i = lo; i < hi; i++) {
+            int c = colors[order[i]];
+            int r = (c >>> 16) & 0xff, g = (c >>> 8) & 0xff, b = c & 0xff;
+            minR = Math.min(minR, r); maxR = Math.max(maxR, r);
+            minG = Math.min(minG, g); maxG = Math.max(maxG, g);
+            minB = Math.min(minB, b); maxB = Math.max(maxB, b);
+        }
+        int spreadR = maxR - minR, spreadG = maxG - minG, spreadB = maxB - minB;
+        if (spreadR >= spreadG && spreadR >= spreadB) return 0;
+        return spreadG >= spreadB ? 1 : 2;
+    }
+
+    @Override
+    public int nearest(int rgb) {
+        if (size == 0) {
+            return -1;
+        }
+        long best = search(0, size, (rgb >>> 16) & 0xff, (rgb >>> 8) & 0xff, rgb & 0xff, Long.MAX_VALUE);
+        return (int) best;
+    }
+
+    /*
+     * The running best is packed as (squaredDistance << 32 | libraryIndex), so a plain long
+     * comparison orders by distance first and breaks ties on the lower library index, the same
+     * as the linear scan. Keeping it in a local instead of a field makes lookups thread-safe.
+     */
+    private long search(int lo, int hi, int r, int g, int b, long best) {
+        if (lo >= hi) {
+            return best;
+        }
+        int mid = (lo + hi) >>> 1;
+
+        int dr = r - red[mid], dg = g - green[mid], db = b - blue[mid];
+        long candidate = ((long) (dr * dr + dg * dg + db * db) << 32) | libraryIndex[mid];
+        if (candidate < best) {
+            best = candidate;
+        }
+
+        int diff = switch (axis[mid]) {
+            case 0 -> dr;
+            case 1 -> dg;
+            default -> db;
+        };
+        if (diff < 0) {
+            best = search(lo, mid, r, g, b, best);
+            // '<=' so that an equally distant point with a lower index is still found
+            if ((long) diff * diff <= (best >>> 32)) {
+                best = search(mid + 1, hi, r, g, b, best);
+            }
+        } else {
+            best = search(mid + 1, hi, r, g, b, best);
+            if ((long) diff * diff <= (best >>> 32)) {
+                best = search(lo, mid, r, g, b, best);
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public int nearest(int rgb, int k, int[] dst) {
+        TopK best = new TopK(k);
+        searchK(0, size, (rgb >>> 16) & 0xff, (rgb >>> 8) & 0xff, rgb & 0xff, best, null);
+        return best.drainTo(dst);
+    }
+
+    @Override
+    public int nearest(int rgb, IntPredicate accept) {
+        TopK best = new TopK(1);
+        searchK(0, size, (rgb >>> 16) & 0xff, (rgb >>> 8) & 0xff, rgb & 0xff, best, accept);
+        int[] index = new int[1];
+        return best.drainTo(index) == 0 ? -1 : index[0];
+    }
+
+    // same walk as search, pruning against the k-th best instead of the best
+    private void searchK(int lo, int hi, int r, int g, int b, TopK best, IntPredicate accept) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int dr = r - red[mid], dg = g - green[mid], db = b - blue[mid];
+        int dist = dr * dr + dg * dg + db * db;
+        if (accept == null || (dist <= best.bound() && accept.test(libraryIndex[mid]))) {
+            best.offer(dist, libraryIndex[mid]);
+        }
+
+        int diff = switch (axis[mid]) {
+            case 0 -> dr;
+            case 1 -> dg;
+            default -> db;
+        };
+        if (diff < 0) {
+            searchK(lo, mid, r, g, b, best, accept);
+            if ((long) diff * diff <= best.bound()) {
+                searchK(mid + 1, hi, r, g, b, best, accept);
+            }
+        } else {
+            searchK(mid + 1, hi, r, g, b, best, accept);
+            if ((long) diff * diff <= best.bound()) {
+                searchK(lo, mid, r, g, b, best, accept);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,145 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+/**
+ * sRGB to CIELAB (D65) and the CIEDE2000 color difference.
+ * <p>
+ * The sRGB transfer curve is read from a 256-entry table instead of calling {@code Math.pow}
+ * per channel; only the cube root of the Lab companding is computed.
+ */
+public class LabColor {
+
+    // sRGB channel value -> linear light in [0, 1]
+    private static final double[] LINEAR = new double[256];
+
+    static {
+        for (int v = 0; v < 256; v++) {
+            double c = v / 255.0;
+            LINEAR[v] = c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+        }
+    }
+
+    // D65 reference white
+    private static final double XN = 0.95047, YN = 1.0, ZN = 1.08883;
+    private static final double EPSILON = 216.0 / 24389, KAPPA = 24389.0 / 27;
+
+    private static final double POW25_7 = 6103515625.0;
+    private static final double COS_30 = Math.cos(Math.toRadians(30)), SIN_30 = Math.sin(Math.toRadians(30));
+    private static final double COS_6 = Math.cos(Math.toRadians(6)), SIN_6 = Math.sin(Math.toRadians(6));
+    private static final double COS_63 = Math.cos(Math.toRadians(63)), SIN_63 = Math.sin(Math.toRadians(63));
+
+    // write L*, a*, b* of the packed 0xRRGGBB color to lab[offset..offset+2]
+    public static void toLab(int rgb, float[] lab, int offset) {
+        double r = LINEAR[(rgb >>> 16) & 0xff];
+        double g = LINEAR[(rgb >>> 8) & 0xff];
+        double b = LINEAR[rgb & 0xff];
+
+        double fx = f((0.4124564 * r + 0.3575761 * g + 0.1804375 * b) / XN);
+        double fy = f((0.2126729 * r + 0.7151522 * g + 0.0721750 * b) / YN);
+        double fz = f((0.0193339 * r + 0.1191920 * g + 0.9503041 * b) / ZN);
+
+        lab[offset] = (float) (116 * fy - 16);
+        lab[offset + 1] = (float) (500 * (fx - fy));
+        lab[offset + 2] = (float) (200 * (fy - fz));
+    }
+
+    private static double f(double t) {
+        return t > EPSILON ? Math.cbrt(t) : (KAPPA * t + 16) / 116;
+    }
+
+    // squared CIE76 difference, the plain Euclidean distance in Lab
+    public static double deltaE76Squared(float l1, float a1, float b1, float l2, float a2, float b2) {
+        double dl = l1 - l2, da = a1 - a2, db = b1 - b2;
+        return dl * dl + da * da + db * db;
+    }
+
+    /**
+     * CIEDE2000 difference with kL = kC = kH = 1, following Sharma, Wu and Dalal (2005).
+     * <p>
+     * Rearranged to avoid most trigonometry: the hue difference ΔH' comes from the chord between
+     * the two a'b' points (its sign from their cross product), and the mean hue from the bisector
+     * of the two hue directions, which is the mean along the shorter arc that the standard takes.
+     * The hue terms of T follow from cos/sin of that mean by multiple-angle identities.
+     */
+    public static double deltaE2000(double l1, double a1, double b1, double l2, double a2, double b2) {
+        double c1 = Math.sqrt(a1 * a1 + b1 * b1);
+        double c2 = Math.sqrt(a2 * a2 + b2 * b2);
+        double cMean7 = pow7((c1 + c2) / 2);
+        double g = 0.5 * (1 - Math.sqrt(cMean7 / (cMean7 + POW25_7)));
+
+        double a1p = (1 + g) * a1;
+        double a2p = (1 + g) * a2;
+        double c1p = Math.sqrt(a1p * a1p + b1 * b1);
+        double c2p = Math.sqrt(a2p * a2p + b2 * b2);
+
+        double dLp = l2 - l1;
+        double dCp = c2p - c1p;
+        double da = a2p - a1p, db = b2 - b1;
+        double dHp = Math.sqrt(Math.max(0, da * da + db * db - dCp * dCp));
+        if (a1p * b2 - a2p * b1 < 0) {
+            dHp = -dHp;
+        }
+
+        // direction of the mean hue as (cos, sin); a zero-chroma color has no hue and adds nothing
+        double ux = 0, uy = 0;
+        if (c1p != 0) {
+            ux += a1p / c1p;
+            uy += b1 / c1p;
+        }
+        if (c2p != 0) {
+            ux += a2p / c2p;
+            uy += b2 / c2p;
+        }
+        double norm = Math.sqrt(ux * ux + uy * uy);
+        double hMeanP;
+        if (norm > 1e-12) {
+            hMeanP = Math.toDegrees(Math.atan2(uy, ux));
+            if (hMeanP < 0) {
+                hMeanP += 360;
+            }
+        } else {
+            // opposite hues (or no chroma at all): the standard averages the two angles as they are
+            hMeanP = c1p * c2p == 0 ? 0 : (hueAngle(b1, a1p) + hueAngle(b2, a2p)) / 2;
+            double rad = Math.toRadians(hMeanP);
+            ux = Math.cos(rad);
+            uy = Math.sin(rad);
+            norm = 1;
+        }
+        double cos1 = ux / norm, sin1 = uy / norm;
+        double cos2 = 2 * cos1 * cos1 - 1, sin2 = 2 * sin1 * cos1;
+        double cos3 = cos1 * cos2 - sin1 * sin2, sin3 = sin1 * cos2 + cos1 * sin2;
+        double cos4 = 2 * cos2 * cos2 - 1, sin4 = 2 * sin2 * cos2;
+        double t = 1 - 0.17 * (cos1 * COS_30 + sin1 * SIN_30)
+                + 0.24 * cos2
+                + 0.32 * (cos3 * COS_6 - sin3 * SIN_6)
+                - 0.20 * (cos4 * COS_63 + sin4 * SIN_63);
+
+        double lMean = (l1 + l2) / 2;
+        double cMeanP = (c1p + c2p) / 2;
+        double hOffset = (hMeanP - 275) / 25;
+        double dTheta = 30 * Math.exp(-hOffset * hOffset);
+        double cMeanP7 = pow7(cMeanP);
+        double rc = 2 * Math.sqrt(cMeanP7 / (cMeanP7 + POW25_7));
+        double lOffset = (lMean - 50) * (lMean - 50);
+        double sl = 1 + 0.015 * lOffset / Math.sqrt(20 + lOffset);
+        double sc = 1 + 0.045 * cMeanP;
+        double sh = 1 + 0.015 * cMeanP * t;
+        double rt = -Math.sin(Math.toRadians(2 * dTheta)) * rc;
+
+        double l = dLp / sl, c = dCp / sc, h = dHp / sh;
+        return Math.sqrt(l * l + c * c + h * h + rt * c * h);
+    }
+
+    private static double pow7(double x) {
+        double x2 = x * x;
+        return x2 * x2 * x2 * x;
+    }
+
+    // hue angle in degrees, [0, 360)
+    private static double hueAngle(double b, double ap) {
+        if (b == 0 && ap == 0) {
+            return 0;
+        }
+        double h = Math.toDegrees(Math.atan2(b, ap));
+        return h < 0 ? h + 360 : h;
+    }
+}
@@ -0,0 +1,67 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Brute-force scan over every library color. Reference behaviour for the other indexes,
+ * and still the fastest option for very small libraries. The single-nearest scan runs on
+ * separate channel arrays through {@link ColorKernels}, so it can use SIMD lanes.
+ */
+public class LinearColorIndex implements ColorIndex {
+
+    private final int[] colors;
+    private final int[] red;
+    private final int[] green;
+    private final int[] blue;
+    private final ColorKernels kernels;
+
+    public LinearColorIndex(int[] colors) {
+        this(colors, ColorKernels.current());
+    }
+
+    public LinearColorIndex(int[] colors, ColorKernels kernels) {
+        this.colors = colors.clone();
+        this.red = new int[colors.length];
+        this.green = new int[colors.length];
+        this.blue = new int[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            red[i] = (colors[i] >>> 16) & 0xff;
+            green[i] = (colors[i] >>> 8) & 0xff;
+            blue[i] = colors[i] & 0xff;
+        }
+        this.kernels = kernels;
+    }
+
+    @Override
+    public int nearest(int rgb) {
+        return kernels.nearest(red, green, blue, colors.length, rgb);
+    }
+
+    @Override
+    public int nearest(int rgb, int k, int[] dst) {
+        TopK best = new TopK(k);
+        for (int i = 0; i < colors.length; i++) {
+            best.offer(ColorUtils.colorDistanceSquared(rgb, colors[i]), i);
+        }
+        return best.drainTo(dst);
+    }
+
+    @Override
+    public int nearest(int rgb, IntPredicate accept) {
+        int minDistance = Integer.MAX_VALUE;
+        int bestMatchIndex = -1;
+        for (int i = 0; i < colors.length; i++) {
+            int dist = ColorUtils.colorDistanceSquared(rgb, colors[i]);
+            if (dist < minDistance && accept.test(i)) {
+                minDistance = dist;
+                bestMatchIndex = i;
+            }
+        }
+        return bestMatchIndex;
+    }
+
+    @Override
+    public int size() {
+        return colors.length;
+    }
+}
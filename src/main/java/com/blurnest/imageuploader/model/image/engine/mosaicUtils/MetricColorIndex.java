@@ -0,0 +1,280 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Nearest library color under a {@link ColorMetric} other than plain RGB.
+ * <p>
+ * Points are the library colors in the metric's space (RGB channels for REDMEAN, L*a*b* for
+ * the Lab metrics), converted once here. The k-d tree has the same implicit layout as
+ * {@link KdTreeColorIndex}; a branch is skipped when the squared gap on its split axis, times
+ * the smallest weight the metric gives that axis, already exceeds the current best, so REDMEAN
+ * and LAB_DE76 lookups return exactly what the linear scan returns. CIEDE2000 is not bounded
+ * that way: the tree collects the {@link #CANDIDATES} nearest colors in CIE76 and returns the
+ * one closest in CIEDE2000 among them. Ties go to the lower library index.
+ */
+public class MetricColorIndex implements ColorIndex {
+
+    // CIE76 neighbours re-ranked by CIEDE2000 in tree mode
+    static final int CANDIDATES = 8;
+
+    private final ColorMetric metric;
+    private final boolean linear;
+    private final int size;
+    // in tree order when !linear, library order otherwise
+    private final int[] colors;
+    private final float[] points;     // 3 coordinates per color
+    private final int[] libraryIndex;
+    private final byte[] axis;
+    private final float[] axisWeight; // lower bound of distance per squared axis gap
+
+    public MetricColorIndex(int[] colors, ColorMetric metric, boolean linear) {
+        if (metric == ColorMetric.RGB) {
+            throw new IllegalArgumentException("Use ColorIndex.LINEAR or ColorIndex.KD_TREE for RGB");
+        }
+        this.metric = metric;
+        this.linear = linear;
+        this.size = colors.length;
+        this.axisWeight = metric == ColorMetric.REDMEAN ? new float[]{2, 4, 2} : new float[]{1, 1, 1};
+
+        float[] libraryPoints = new float[size * 3];
+        for (int i = 0; i < size; i++) {
+            toPoint(colors[i], libraryPoints, i * 3);
+        }
+
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        this.axis = new byte[size];
+        if (!linear) {
+            build(libraryPoints, order, 0, size, new long[size]);
+        }
+
+        this.colors = new int[size];
+        this.points = new float[size * 3];
+        this.libraryIndex = new int[size];
+        for (int slot = 0; slot < size; slot++) {
+            int i = order[slot];
+            this.colors[slot] = colors[i];
+            System.arraycopy(libraryPoints, i * 3, this.points, slot * 3, 3);
+            this.libraryIndex[slot] = i;
+        }
+    }
+
+    private void toPoint(int rgb, float[] dst, int offset) {
+        if (metric.usesLab()) {
+            LabColor.toLab(rgb, dst, offset);
+        } else {
+            dst[offset] = (rgb >>> 16) & 0xff;
+            dst[offset + 1] = (rgb >>> 8) & 0xff;
+            dst[offset + 2] = rgb & 0xff;
+        }
+    }
+
+    // Arrange order[lo, hi) so that its middle element splits the widest coordinate of the range
+    private void build(float[] pts, int[] order, int lo, int hi, long[] keys) {
+        if (hi - lo <= 0) {
+            return;
+        }
+        int widest = widestAxis(pts, order, lo, hi);
+        for (int i = lo; i < hi; i++) {
+            keys[i] = ((long) sortableBits(pts[order[i] * 3 + widest]) << 32) | order[i];
+        }
+        Arrays.sort(keys, lo, hi);
+        for (int i = lo; i < hi; i++) {
+            order[i] = (int) keys[i];
+        }
+        int mid = (lo + hi) >>> 1;
+        axis[mid] = (byte) widest;
+        build(pts, order, lo, mid, keys);
+        build(pts, order, mid + 1, hi, keys);
+    }
+
+    // float bits reordered so that signed int order is float order
+    private static int sortableBits(float v) {
+        int bits = Float.floatToIntBits(v);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+
+    private static int widestAxis(float[] pts, int[] order, int lo, int hi) {
+        float[] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+        float[] max = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        for (int i = lo; i < hi; i++) {
+            for (int a = 0; a < 3; a++) {
+                float v = pts[order[i] * 3 + a];
+                min[a] = Math.min(min[a], v);
+                max[a] = Math.max(max[a], v);
+            }
+        }
+        float s0 = max[0] - min[0], s1 = max[1] - min[1], s2 = max[2] - min[2];
+        if (s0 >= s1 && s0 >= s2) return 0;
+        return s1 >= s2 ? 1 : 2;
+    }
+
+    @Override
+    public int nearest(int rgb) {
+        if (size == 0) {
+            return -1;
+        }
+        float[] query = new float[3];
+        toPoint(rgb, query, 0);
+        if (linear) {
+            return scan(rgb, query, null);
+        }
+        Candidates best = new Candidates(metric == ColorMetric.CIEDE2000 ? CANDIDATES : 1);
+        search(0, size, rgb, query, best, null);
+        return metric == ColorMetric.CIEDE2000 ? rerank(query, best) : libraryIndex[best.slots[0]];
+    }
+
+    @Override
+    public int nearest(int rgb, IntPredicate accept) {
+        float[] query = new float[3];
+        toPoint(rgb, query, 0);
+        if (linear) {
+            return scan(rgb, query, accept);
+        }
+        Candidates best = new Candidates(metric == ColorMetric.CIEDE2000 ? CANDIDATES : 1);
+        search(0, size, rgb, query, best, accept);
+        if (best.count == 0) {
+            return -1;
+        }
+        return metric == ColorMetric.CIEDE2000 ? rerank(query, best) : libraryIndex[best.slots[0]];
+    }
+
+    /*
+     * CIEDE2000 only orders the k nearest in CIE76 here (its tree has no exact bound); that is
+     * what candidate prefiltering wants anyway.
+     */
+    @Override
+    public int nearest(int rgb, int k, int[] dst) {
+        float[] query = new float[3];
+        toPoint(rgb, query, 0);
+        Candidates best = new Candidates(k);
+        if (linear) {
+            for (int slot = 0; slot < size; slot++) {
+                best.offer(searchDistance(rgb, query, slot), slot, libraryIndex[slot]);
+            }
+        } else {
+            search(0, size, rgb, query, best, null);
+        }
+        System.arraycopy(best.indexes, 0, dst, 0, best.count);
+        return best.count;
+    }
+
+    private int scan(int rgb, float[] query, IntPredicate accept) {
+        double minDistance = Double.MAX_VALUE;
+        int bestMatchIndex = -1;
+        for (int slot = 0; slot < size; slot++) {
+            double dist = metric == ColorMetric.CIEDE2000
+                    ? deltaE2000(query, slot)
+                    : searchDistance(rgb, query, slot);
+            if (dist < minDistance && (accept == null || accept.test(libraryIndex[slot]))) {
+                minDistance = dist;
+                bestMatchIndex = libraryIndex[slot];
+            }
+        }
+        return bestMatchIndex;
+    }
+
+    // distance the tree orders by: redmean, or squared CIE76
+    private double searchDistance(int rgb, float[] query, int slot) {
+        if (metric == ColorMetric.REDMEAN) {
+            return ColorMetric.redmeanDistance(rgb, colors[slot]);
+        }
+        int p = slot * 3;
+        return LabColor.deltaE76Squared(query[0], query[1], query[2], points[p], points[p + 1], points[p + 2]);
+    }
+
+    private double deltaE2000(float[] query, int slot) {
+        int p = slot * 3;
+        return LabColor.deltaE2000(query[0], query[1], query[2], points[p], points[p + 1], points[p + 2]);
+    }
+
+    private void search(int lo, int hi, int rgb, float[] query, Candidates best, IntPredicate accept) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        double dist = searchDistance(rgb, query, mid);
+        if (accept == null || (dist <= best.bound() && accept.test(libraryIndex[mid]))) {
+            best.offer(dist, mid, libraryIndex[mid]);
+        }
+
+        int a = axis[mid];
+        double diff = query[a] - points[mid * 3 + a];
+        double gap = axisWeight[a] * diff * diff;
+        // '<=' so that an equally distant point with a lower index is still found
+        if (diff < 0) {
+            search(lo, mid, rgb, query, best, accept);
+            if (gap <= best.bound()) {
+                search(mid + 1, hi, rgb, query, best, accept);
+            }
+        } else {
+            search(mid + 1, hi, rgb, query, best, accept);
+            if (gap <= best.bound()) {
+                search(lo, mid, rgb, query, best, accept);
+            }
+        }
+    }
+
+    private int rerank(float[] query, Candidates candidates) {
+        double minDistance = Double.MAX_VALUE;
+        int bestMatchIndex = -1;
+        for (int k = 0; k < candidates.count; k++) {
+            int slot = candidates.slots[k];
+            double dist = deltaE2000(query, slot);
+            int index = libraryIndex[slot];
+            if (dist < minDistance || (dist == minDistance && index < bestMatchIndex)) {
+                minDistance = dist;
+                bestMatchIndex = index;
+            }
+        }
+        return bestMatchIndex;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // the k best (distance, library index) pairs seen so far, ascending; one per lookup
+    private static final class Candidates {
+        final double[] distances;
+        final int[] slots;
+        final int[] indexes;
+        int count;
+
+        Candidates(int k) {
+            distances = new double[k];
+            slots = new int[k];
+            indexes = new int[k];
+        }
+
+        double bound() {
+            return count < distances.length ? Double.MAX_VALUE : distances[count - 1];
+        }
+
+        void offer(double distance, int slot, int index) {
+            int k = distances.length;
+            if (count == k && !before(distance, index, distances[k - 1], indexes[k - 1])) {
+                return;
+            }
+            int i = count < k ? count++ : k - 1;
+            while (i > 0 && before(distance, index, distances[i - 1], indexes[i - 1])) {
+                distances[i] = distances[i - 1];
+                slots[i] = slots[i - 1];
+                indexes[i] = indexes[i - 1];
+                i--;
+            }
+            distances[i] = distance;
+            slots[i] = slot;
+            indexes[i] = index;
+        }
+
+        private static boolean before(double d1, int i1, double d2, int i2) {
+            return d1 < d2 || (d1 == d2 && i1 < i2);
+        }
+    }
+}
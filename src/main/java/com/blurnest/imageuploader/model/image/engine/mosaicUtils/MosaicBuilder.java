@@ -1,47 +1,44 @@
 package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
 
-import java.awt.Graphics;
 import java.awt.image.BufferedImage;
-import java.util.List;
-import java.awt.image.ConvolveOp;
-import java.awt.image.Kernel;
-public class MosaicBuilder {
-
-    // Build a mosaic image from matched tiles
-    public static BufferedImage buildMosaic(List<BufferedImage> tiles, int cols, int rows, int tileWidth,
-                                            int tileHeight, boolean applyBlur) {
-        int mosaicWidth = cols * tileWidth;
-        int mosaicHeight = rows * tileHeight;
+import java.util.concurrent.Executor;
 
-        BufferedImage mosaic = new BufferedImage(mosaicWidth, mosaicHeight, BufferedImage.TYPE_INT_RGB);
-        Graphics g = mosaic.getGraphics();
-
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                int index = row * cols + col;
-                BufferedImage tile = blur(tiles.get(index));
+public class MosaicBuilder {
 
-                if (applyBlur) {
-                    tile = blur(tile);
+    /**
+     * Build a mosaic from library indices, one per cell of the layout, reading tile pixels from
+     * the source into a per-task scratch tile and copying its rows into the output raster, so no
+     * decoded tile images have to stay on the heap and nothing is allocated per cell. Wrap the
+     * source in a {@link BlurredTileSource} to blur the tiles.
+     * <p>
+     * The mosaic is the layout's size, partial edge cells show the top-left part of their tile
+     * and cells merged by a quadtree layout show theirs enlarged. Cells never overlap, so ranges
+     * of them are filled concurrently.
+     */
+    public static BufferedImage buildMosaic(int[] matches, TileSource tileSource, CellLayout layout,
+                                            Executor executor, int chunks) {
+        int tileWidth = tileSource.getTileWidth();
+        int mosaicWidth = layout.getWidth();
+
+        BufferedImage mosaic = new BufferedImage(mosaicWidth, layout.getHeight(), BufferedImage.TYPE_INT_RGB);
+        int[] out = TileBlitter.pixels(mosaic);
+
+        ParallelTasks.forRange(executor, layout.size(), chunks, (from, to) -> {
+            int[] scratch = new int[tileWidth * tileSource.getTileHeight()];
+            for (int t = from; t < to; t++) {
+                tileSource.readTile(matches[t], scratch, 0);
+                int offset = layout.getY(t) * mosaicWidth + layout.getX(t);
+                int scale = layout.getScale(t);
+                if (scale == 1) {
+                    TileBlitter.copy(scratch, tileWidth, out, offset, mosaicWidth,
+                            layout.getCellWidth(t), layout.getCellHeight(t));
+                } else {
+                    TileBlitter.copyScaled(scratch, tileWidth, scale, out, offset, mosaicWidth,
+                            layout.getCellWidth(t), layout.getCellHeight(t));
                 }
-
-                int x = col * tileWidth;
-                int y = row * tileHeight;
-                g.drawImage(tile, x, y, null);
             }
-        }
+        });
 
-        g.dispose();
         return mosaic;
     }
-
-    private static BufferedImage blur(BufferedImage img) {
-        float[] kernel = {
-                1f / 9, 1f / 9, 1f / 9,
-                1f / 9, 1f / 9, 1f / 9,
-                1f / 9, 1f / 9, 1f / 9
-        };
-        ConvolveOp op = new ConvolveOp(new Kernel(3, 3, kernel), ConvolveOp.EDGE_NO_OP, null);
-        return op.filter(img, null);
-    }
 }
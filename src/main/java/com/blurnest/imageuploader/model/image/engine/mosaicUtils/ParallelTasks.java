@@ -0,0 +1,42 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Splits an index range into contiguous chunks and runs them on an executor.
+ * With no executor (or a single chunk) the work runs on the calling thread.
+ */
+public class ParallelTasks {
+
+    @FunctionalInterface
+    public interface RangeTask {
+        void run(int from, int to);
+    }
+
+    // Run task over [0, n) in at most `chunks` contiguous pieces and wait for all of them
+    public static void forRange(Executor executor, int n, int chunks, RangeTask task) {
+        chunks = Math.min(chunks, n);
+        if (executor == null || chunks <= 1) {
+            task.run(0, n);
+            return;
+        }
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[chunks];
+        for (int c = 0; c < chunks; c++) {
+            int from = (int) ((long) n * c / chunks);
+            int to = (int) ((long) n * (c + 1) / chunks);
+            futures[c] = CompletableFuture.runAsync(() -> task.run(from, to), executor);
+        }
+
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw e;
+        }
+    }
+}
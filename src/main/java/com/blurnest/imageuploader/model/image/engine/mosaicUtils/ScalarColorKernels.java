@@ -0,0 +1,41 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+// plain loops, the reference for every other implementation
+final class ScalarColorKernels implements ColorKernels {
+
+    @Override
+    public int nearest(int[] red, int[] green, int[] blue, int count, int rgb) {
+        int r = (rgb >>> 16) & 0xff, g = (rgb >>> 8) & 0xff, b = rgb & 0xff;
+        int minDistance = Integer.MAX_VALUE;
+        int bestMatchIndex = -1;
+        for (int i = 0; i < count; i++) {
+            int dr = r - red[i], dg = g - green[i], db = b - blue[i];
+            int dist = dr * dr + dg * dg + db * db;
+            if (dist < minDistance) {
+                minDistance = dist;
+                bestMatchIndex = i;
+            }
+        }
+        return bestMatchIndex;
+    }
+
+    @Override
+    public void sumPacked(int[] data, int from, int to, int redShift, int blueShift, long[] sums) {
+        // a row of 8-bit channels cannot overflow an int below ~8M pixels wide
+        int rowRed = 0, rowGreen = 0, rowBlue = 0;
+        for (int i = from; i < to; i++) {
+            int p = data[i];
+            rowRed += (p >>> redShift) & 0xff;
+            rowGreen += (p >>> 8) & 0xff;
+            rowBlue += (p >>> blueShift) & 0xff;
+        }
+        sums[0] += rowRed;
+        sums[1] += rowGreen;
+        sums[2] += rowBlue;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
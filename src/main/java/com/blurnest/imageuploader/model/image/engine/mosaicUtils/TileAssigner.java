@@ -0,0 +1,210 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Assigns library tiles to the cells of a mosaic under a {@link TileAssignment}.
+ * <p>
+ * Cells are visited once in row-major order, since every constraint depends on the cells
+ * before. Each cell asks the index for its nearest allowed tile
+ * ({@link ColorIndex#nearest(int, IntPredicate)}), which walks past excluded tiles instead of
+ * rescanning the library. Tiles used up under maxUses would make that walk longer and longer, so
+ * the index is rebuilt over the remaining tiles whenever 1/32 of them ran out. State is
+ * primitive: a use counter per tile, the tiles of the last radius + 1 rows in a rolling window,
+ * and two rows of diffused error. When no tile is allowed at all (the library is too small for
+ * maxUses) the cell takes its nearest tile.
+ */
+public final class TileAssigner {
+
+    private final int cols;
+    private final ColorIndex index;
+    private final ColorIndex.Factory factory;
+    private final int[] libraryColors;
+    private final Constraints constraints;
+    private ColorIndex remaining;
+    private int usedUp; // tiles that reached maxUses since remaining was built
+    private int row;    // mosaic row of the next cell
+
+    // error * 16 per channel, padded by one cell on both sides
+    private int[] error;
+    private int[] nextError;
+
+    /**
+     * An assigner for one mosaic whose rows may arrive in several parts (the bands of a striped
+     * render): use counts, the exclusion window and the diffused error carry over from one
+     * {@link #assign(int[])} to the next.
+     * @param index   index over libraryColors
+     * @param factory builds the index over the tiles left under maxUses, normally the one that built index
+     */
+    public TileAssigner(int cols, ColorIndex index, ColorIndex.Factory factory, int[] libraryColors,
+                        TileAssignment assignment) {
+        this.cols = cols;
+        this.index = index;
+        this.factory = factory;
+        this.libraryColors = libraryColors;
+        this.constraints = new Constraints(libraryColors.length, cols, assignment);
+        this.remaining = index;
+        this.error = assignment.dither() ? new int[3 * (cols + 2)] : null;
+        this.nextError = assignment.dither() ? new int[3 * (cols + 2)] : null;
+    }
+
+    /**
+     * @param targetColors mean color of every cell, row-major, cols per row
+     * @param index        index over libraryColors
+     * @param factory      builds the index over the tiles left under maxUses, normally the one that built index
+     * @return library index for every cell
+     */
+    public static int[] assign(int[] targetColors, int cols, ColorIndex index, ColorIndex.Factory factory,
+                               int[] libraryColors, TileAssignment assignment) {
+        if (assignment.isNearest()) {
+            return ImageMatcher.matchColors(targetColors, index);
+        }
+        return new TileAssigner(cols, index, factory, libraryColors, assignment).assign(targetColors);
+    }
+
+    /**
+     * The next rows of the mosaic, below the ones assigned before; not thread-safe.
+     * @param targetColors mean color of every cell, row-major, cols per row
+     * @return library index for every cell
+     */
+    public int[] assign(int[] targetColors) {
+        int rows = targetColors.length / cols;
+        int[] matches = new int[targetColors.length];
+        for (int r = 0; r < rows; r++, row++) {
+            for (int col = 0; col < cols; col++) {
+                int t = r * cols + col;
+                int rgb = error == null ? targetColors[t] : withError(targetColors[t], error, col);
+
+                constraints.moveTo(row, col);
+                int found = remaining.nearest(rgb, constraints);
+                int tile = found >= 0 ? constraints.libraryIndex(found) : index.nearest(rgb);
+                matches[t] = tile;
+                if (constraints.place(tile) && ++usedUp * 32 >= remaining.size()) {
+                    remaining = factory.build(constraints.keepRemaining(libraryColors));
+                    usedUp = 0;
+                }
+                if (error != null) {
+                    diffuse(rgb, libraryColors[tile], error, nextError, col);
+                }
+            }
+            if (error != null) {
+                int[] swap = error;
+                error = nextError;
+                nextError = swap;
+                Arrays.fill(nextError, 0);
+            }
+        }
+        return matches;
+    }
+
+    // whether a tile may go into the current cell; one per assigner
+    private static final class Constraints implements IntPredicate {
+        private final int[] uses;
+        private final int maxUses;
+        private final int radius;
+        private final int cols;
+        // tiles of rows row - radius .. row, row r at (r % (radius + 1)) * cols
+        private final int[] window;
+        // remaining index -> library index, null while the search runs on the library index
+        private int[] remaining;
+        private int row;
+        private int col;
+
+        Constraints(int librarySize, int cols, TileAssignment assignment) {
+            this.uses = new int[librarySize];
+            this.maxUses = assignment.maxUses();
+            this.radius = assignment.exclusionRadius();
+            this.cols = cols;
+            this.window = new int[(radius + 1) * cols];
+        }
+
+        void moveTo(int row, int col) {
+            this.row = row;
+            this.col = col;
+        }
+
+        int libraryIndex(int found) {
+            return remaining == null ? found : remaining[found];
+        }
+
+        // true when this was the tile's last allowed use
+        boolean place(int tile) {
+            window[(row % (radius + 1)) * cols + col] = tile;
+            return ++uses[tile] == maxUses;
+        }
+
+        // colors of the tiles below maxUses, which the search runs on from now on
+        int[] keepRemaining(int[] libraryColors) {
+            int count = 0;
+            for (int u : uses) {
+                if (u < maxUses) count++;
+            }
+            remaining = new int[count];
+            int[] colors = new int[count];
+            for (int i = 0, n = 0; i < uses.length; i++) {
+                if (uses[i] < maxUses) {
+                    remaining[n] = i;
+                    colors[n++] = libraryColors[i];
+                }
+            }
+            return colors;
+        }
+
+        @Override
+        public boolean test(int found) {
+            int tile = libraryIndex(found);
+            if (maxUses > 0 && uses[tile] >= maxUses) {
+                return false;
+            }
+            return radius == 0 || !nearby(tile);
+        }
+
+        // tile already placed within radius of the current cell, in this row or the ones above
+        private boolean nearby(int tile) {
+            int windowRows = radius + 1;
+            int left = Math.max(0, col - radius), right = Math.min(cols - 1, col + radius);
+            for (int dy = 1; dy <= radius && dy <= row; dy++) {
+                int base = ((row - dy) % windowRows) * cols;
+                for (int x = left; x <= right; x++) {
+                    if (window[base + x] == tile) {
+                        return true;
+                    }
+                }
+            }
+            int base = (row % windowRows) * cols;
+            for (int x = left; x < col; x++) {
+                if (window[base + x] == tile) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // target color plus the error diffused into this cell, clamped to 0..255
+    private static int withError(int rgb, int[] error, int col) {
+        int p = 3 * (col + 1);
+        int r = clamp(((rgb >>> 16) & 0xff) + (error[p] >> 4));
+        int g = clamp(((rgb >>> 8) & 0xff) + (error[p + 1] >> 4));
+        int b = clamp((rgb & 0xff) + (error[p + 2] >> 4));
+        return r << 16 | g << 8 | b;
+    }
+
+    // Floyd-Steinberg: 7/16 right, 3/16 below left, 5/16 below, 1/16 below right
+    private static void diffuse(int wanted, int placed, int[] error, int[] nextError, int col) {
+        int p = 3 * (col + 1);
+        for (int c = 0; c < 3; c++) {
+            int shift = 16 - 8 * c;
+            int residual = ((wanted >>> shift) & 0xff) - ((placed >>> shift) & 0xff);
+            error[p + 3 + c] += 7 * residual;
+            nextError[p - 3 + c] += 3 * residual;
+            nextError[p + c] += 5 * residual;
+            nextError[p + 3 + c] += residual;
+        }
+    }
+
+    private static int clamp(int v) {
+        return v < 0 ? 0 : Math.min(v, 255);
+    }
+}
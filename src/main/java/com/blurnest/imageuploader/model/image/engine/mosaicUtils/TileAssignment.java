@@ -0,0 +1,50 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+/**
+ * How cells are assigned to library tiles beyond "nearest color wins".
+ * @param maxUses         times a tile may be placed in one mosaic, 0 = unlimited
+ * @param exclusionRadius a tile may not repeat within this many cells (Chebyshev distance), 0 = off
+ * @param dither          diffuse each cell's color residual to the cells right of and below it
+ *                        (Floyd-Steinberg), so that the mosaic averages to the target over an area
+ */
+public record TileAssignment(int maxUses, int exclusionRadius, boolean dither) {
+
+    // the original behaviour: every cell independently takes its nearest tile
+    public static final TileAssignment NEAREST = new TileAssignment(0, 0, false);
+
+    public static final int MAX_EXCLUSION_RADIUS = 8;
+
+    public TileAssignment {
+        if (maxUses < 0) {
+            throw new IllegalArgumentException("maxUses must be >= 0: " + maxUses);
+        }
+        if (exclusionRadius < 0 || exclusionRadius > MAX_EXCLUSION_RADIUS) {
+            throw new IllegalArgumentException("Exclusion radius must be between 0 and " + MAX_EXCLUSION_RADIUS
+                    + ": " + exclusionRadius);
+        }
+    }
+
+    public TileAssignment withMaxUses(int uses) {
+        return new TileAssignment(uses, exclusionRadius, dither);
+    }
+
+    public TileAssignment withExclusionRadius(int radius) {
+        return new TileAssignment(maxUses, radius, dither);
+    }
+
+    public TileAssignment withDither(boolean dither) {
+        return new TileAssignment(maxUses, exclusionRadius, dither);
+    }
+
+    public boolean isNearest() {
+        return maxUses == 0 && exclusionRadius == 0 && !dither;
+    }
+
+    // e.g. "nearest" or "uses4-r2-fs"; cache key part
+    public String describe() {
+        if (isNearest()) {
+            return "nearest";
+        }
+        return "uses" + maxUses + "-r" + exclusionRadius + (dither ? "-fs" : "");
+    }
+}
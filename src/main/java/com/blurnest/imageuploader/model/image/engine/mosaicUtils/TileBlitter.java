@@ -0,0 +1,44 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Copies tile pixels straight into the int[] of a TYPE_INT_RGB image, row by row with
+ * {@link System#arraycopy}, instead of going through {@code Graphics.drawImage}. Copies are
+ * clipped to the target rectangle, like drawImage clips to the cell.
+ */
+final class TileBlitter {
+
+    private TileBlitter() {
+    }
+
+    // backing pixels of an image created as new BufferedImage(w, h, TYPE_INT_RGB), stride = width
+    static int[] pixels(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    // rows of a tile-sized 0xRRGGBB array into dst at (offset, stride), clipped to w x h
+    static void copy(int[] tile, int tileWidth, int[] dst, int offset, int stride, int w, int h) {
+        for (int y = 0; y < h; y++) {
+            System.arraycopy(tile, y * tileWidth, dst, offset + y * stride, w);
+        }
+    }
+
+    // a tile-sized 0xRRGGBB array enlarged scale times per side into dst, clipped to w x h
+    static void copyScaled(int[] tile, int tileWidth, int scale, int[] dst, int offset, int stride, int w, int h) {
+        for (int y = 0; y < h; y += scale) {
+            int start = offset + y * stride;
+            int src = y / scale * tileWidth;
+            for (int x = 0; x < w; src++) {
+                int rgb = tile[src];
+                for (int end = Math.min(w, x + scale); x < end; x++) {
+                    dst[start + x] = rgb;
+                }
+            }
+            for (int r = 1; r < scale && y + r < h; r++) {
+                System.arraycopy(dst, start, dst, start + r * stride, w);
+            }
+        }
+    }
+}
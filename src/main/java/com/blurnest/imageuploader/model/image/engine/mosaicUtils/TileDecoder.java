@@ -0,0 +1,80 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Decodes library tiles straight to (roughly) tile size.
+ * <p>
+ * Only the centre region with the tile's aspect ratio is read, with source subsampling chosen
+ * so the decoded image is still at least twice the tile size; {@link ImageScaler} then resamples
+ * it to the exact size once. A 24 MP photo headed for a 10x10 tile is decoded to ~20x20 pixels
+ * instead of allocating the full frame.
+ */
+public class TileDecoder {
+
+    // keep this much resolution over the tile size for the final resample
+    private static final int OVERSAMPLE = 2;
+
+    // exact tileWidth x tileHeight TYPE_INT_RGB tile, or null if the data is not a readable image
+    public static BufferedImage decode(InputStream in, int tileWidth, int tileHeight) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            return decode(iis, tileWidth, tileHeight);
+        }
+    }
+
+    public static BufferedImage decode(File file, int tileWidth, int tileHeight) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(file)) {
+            return decode(iis, tileWidth, tileHeight);
+        }
+    }
+
+    public static BufferedImage decode(ImageInputStream iis, int tileWidth, int tileHeight) throws IOException {
+        if (iis == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(iis, true, true);
+            int srcW = reader.getWidth(0);
+            int srcH = reader.getHeight(0);
+
+            Rectangle region = centreCrop(srcW, srcH, tileWidth, tileHeight);
+            int step = Math.max(1, Math.min(
+                    region.width / (tileWidth * OVERSAMPLE),
+                    region.height / (tileHeight * OVERSAMPLE)));
+
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(region);
+            param.setSourceSubsampling(step, step, 0, 0);
+            BufferedImage decoded = reader.read(0, param);
+
+            return ImageScaler.scaleToFill(decoded, tileWidth, tileHeight);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    // largest centred rectangle of the source with the w:h aspect ratio
+    static Rectangle centreCrop(int srcW, int srcH, int w, int h) {
+        int cropW = srcW, cropH = srcH;
+        if ((long) srcW * h > (long) srcH * w) {
+            cropW = Math.max(1, (int) ((long) srcH * w / h));
+        } else {
+            cropH = Math.max(1, (int) ((long) srcW * h / w));
+        }
+        return new Rectangle((srcW - cropW) / 2, (srcH - cropH) / 2, cropW, cropH);
+    }
+}
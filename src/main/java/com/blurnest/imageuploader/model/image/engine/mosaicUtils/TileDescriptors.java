@@ -0,0 +1,133 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+/**
+ * Fixed-length feature vectors of a set of tiles: the mean color of each block of a
+ * grid x grid split of the tile, row-major, 3 floats per block, all tiles in one float[].
+ * <p>
+ * Block edges are at {@code k * tileWidth / grid} (resp. height) on both the library and the
+ * target side, and block means truncate like {@link IntegralImage#meanRGB}, so a target cell
+ * cut from a library tile has exactly that tile's descriptor. Components are 8-bit RGB, or
+ * CIELAB for the metrics that measure in Lab; descriptors are compared by squared Euclidean
+ * distance over all components.
+ */
+public final class TileDescriptors {
+
+    // 4 x 4 blocks x 3 channels = 48 floats per tile
+    public static final int MAX_GRID = 4;
+
+    private final int grid;
+    private final int length;     // floats per tile
+    private final float[] values;
+
+    private TileDescriptors(int grid, float[] values) {
+        this.grid = grid;
+        this.length = grid * grid * 3;
+        this.values = values;
+    }
+
+    /**
+     * Descriptors of every tile of the source, read one tile at a time.
+     */
+    public static TileDescriptors of(TileSource tiles, int grid, ColorMetric metric) {
+        int w = tiles.getTileWidth(), h = tiles.getTileHeight();
+        checkGrid(grid, w, h);
+        int length = grid * grid * 3;
+        float[] values = new float[tiles.size() * length];
+        int[] pixels = new int[w * h];
+        for (int t = 0; t < tiles.size(); t++) {
+            tiles.readTile(t, pixels, 0);
+            int offset = t * length;
+            for (int by = 0; by < grid; by++) {
+                int y0 = by * h / grid, y1 = (by + 1) * h / grid;
+                for (int bx = 0; bx < grid; bx++) {
+                    int x0 = bx * w / grid, x1 = (bx + 1) * w / grid;
+                    put(blockMean(pixels, w, x0, y0, x1, y1), metric, values, offset);
+                    offset += 3;
+                }
+            }
+        }
+        return new TileDescriptors(grid, values);
+    }
+
+    /**
+     * Descriptors of every cell of the layout. A cell is split into grid x grid blocks like a
+     * tile; edge cells narrower than the grid repeat their last pixel column or row as blocks.
+     */
+    public static TileDescriptors ofCells(IntegralImage table, CellLayout layout, int grid, ColorMetric metric) {
+        checkGrid(grid, layout.getTileWidth(), layout.getTileHeight());
+        int length = grid * grid * 3;
+        float[] values = new float[layout.size() * length];
+        int offset = 0;
+        for (int t = 0; t < layout.size(); t++) {
+            int x = layout.getX(t), y = layout.getY(t);
+            int w = layout.getCellWidth(t), h = layout.getCellHeight(t);
+            for (int by = 0; by < grid; by++) {
+                int y0 = Math.min(by * h / grid, h - 1), y1 = Math.max(y0 + 1, (by + 1) * h / grid);
+                for (int bx = 0; bx < grid; bx++) {
+                    int x0 = Math.min(bx * w / grid, w - 1), x1 = Math.max(x0 + 1, (bx + 1) * w / grid);
+                    put(table.meanRGB(x + x0, y + y0, x1 - x0, y1 - y0), metric, values, offset);
+                    offset += 3;
+                }
+            }
+        }
+        return new TileDescriptors(grid, values);
+    }
+
+    private static void checkGrid(int grid, int tileWidth, int tileHeight) {
+        if (grid < 1 || grid > MAX_GRID) {
+            throw new IllegalArgumentException("Descriptor grid must be between 1 and " + MAX_GRID + ": " + grid);
+        }
+        if (grid > tileWidth || grid > tileHeight) {
+            throw new IllegalArgumentException("Descriptor grid " + grid + " is finer than the tile: "
+                    + tileWidth + "x" + tileHeight);
+        }
+    }
+
+    private static int blockMean(int[] pixels, int stride, int x0, int y0, int x1, int y1) {
+        long red = 0, green = 0, blue = 0;
+        for (int y = y0; y < y1; y++) {
+            for (int p = y * stride + x0, end = y * stride + x1; p < end; p++) {
+                int rgb = pixels[p];
+                red += (rgb >>> 16) & 0xff;
+                green += (rgb >>> 8) & 0xff;
+                blue += rgb & 0xff;
+            }
+        }
+        long area = (long) (x1 - x0) * (y1 - y0);
+        return (int) (red / area) << 16 | (int) (green / area) << 8 | (int) (blue / area);
+    }
+
+    private static void put(int rgb, ColorMetric metric, float[] dst, int offset) {
+        if (metric.usesLab()) {
+            LabColor.toLab(rgb, dst, offset);
+        } else {
+            dst[offset] = (rgb >>> 16) & 0xff;
+            dst[offset + 1] = (rgb >>> 8) & 0xff;
+            dst[offset + 2] = rgb & 0xff;
+        }
+    }
+
+    public int getGrid() {
+        return grid;
+    }
+
+    public int size() {
+        return values.length / length;
+    }
+
+    // squared Euclidean distance between descriptor i of this set and descriptor j of other
+    public float distance(int i, TileDescriptors other, int j) {
+        float[] a = values, b = other.values;
+        int p = i * length, q = j * other.length;
+        float sum = 0;
+        for (int k = 0; k < length; k++) {
+            float d = a[p + k] - b[q + k];
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    public long sizeInBytes() {
+        return (long) values.length * Float.BYTES;
+    }
+}
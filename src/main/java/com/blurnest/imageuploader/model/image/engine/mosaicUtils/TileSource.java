@@ -0,0 +1,17 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+/**
+ * Random access to the pixels of equally sized tiles, wherever they are stored
+ * (heap arrays, a memory-mapped atlas, ...).
+ */
+public interface TileSource {
+
+    int getTileWidth();
+
+    int getTileHeight();
+
+    int size();
+
+    // copy tile `index` as tileWidth * tileHeight row-major 0xRRGGBB pixels into dst[offset..]
+    void readTile(int index, int[] dst, int offset);
+}
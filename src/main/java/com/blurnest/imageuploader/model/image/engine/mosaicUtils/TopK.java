@@ -0,0 +1,42 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+/**
+ * The k smallest (distance, library index) pairs offered so far, packed as
+ * {@code distance << 32 | index} so that one long comparison orders by distance and then by
+ * the lower index, like the single-nearest lookups. One instance per lookup.
+ */
+final class TopK {
+
+    private final long[] keys;
+    private int count;
+
+    TopK(int k) {
+        keys = new long[k];
+    }
+
+    // largest distance still kept, anything farther cannot enter
+    long bound() {
+        return count < keys.length ? Long.MAX_VALUE : keys[count - 1] >>> 32;
+    }
+
+    void offer(long distance, int index) {
+        long key = distance << 32 | index;
+        if (count == keys.length && key >= keys[count - 1]) {
+            return;
+        }
+        int i = count < keys.length ? count++ : count - 1;
+        while (i > 0 && keys[i - 1] > key) {
+            keys[i] = keys[i - 1];
+            i--;
+        }
+        keys[i] = key;
+    }
+
+    // library indexes, nearest first; returns how many
+    int drainTo(int[] dst) {
+        for (int i = 0; i < count; i++) {
+            dst[i] = (int) keys[i];
+        }
+        return count;
+    }
+}
@@ -0,0 +1,118 @@
+package com.blurnest.imageuploader.model.image.processor;
+
+import com.blurnest.imageuploader.model.image.codec.DeflateCodec;
+import com.blurnest.imageuploader.model.image.codec.ImageFormat;
+import com.blurnest.imageuploader.model.image.codec.EncoderSettings;
+import com.blurnest.imageuploader.model.image.codec.ImageEncoder;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * op=compress, on the first uploaded image.
+ * <ul>
+ *   <li>mode=lossy (default): re-encode as JPEG, quality=0..100 (default 75),
+ *       subsampling=420 (default) or 444 for full resolution chroma</li>
+ *   <li>mode=lossless: the original bytes in a zlib container (.bnz), level=0..9 (default 6);
+ *       op=decompress restores them exactly</li>
+ * </ul>
+ */
+@Component
+public class CompressProcessor implements ImageProcessor {
+
+    // zlib's own default, spelled out because Deflater.DEFAULT_COMPRESSION is -1
+    static final int DEFAULT_LEVEL = 6;
+
+    @Override
+    public String key() {
+        return "compress";
+    }
+
+    @Override
+    public Set<String> paramNames() {
+        return Set.of("mode", "quality", "subsampling", "level");
+    }
+
+    @Override
+    public byte[] process(byte[] in) {
+        return process(new byte[][]{in}, Map.of());
+    }
+
+    @Override
+    public byte[] process(byte[][] in, Map<String, String> params) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            process(List.of(new ByteArrayResource(in[0])), params, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public String process(List<? extends InputStreamSource> in, Map<String, String> params, OutputStream out)
+            throws IOException {
+        String mode = params.getOrDefault("mode", "lossy");
+        switch (mode) {
+            case "lossy" -> {
+                EncoderSettings settings = EncoderSettings.DEFAULT
+                        .withJpegQuality(intParam(params, "quality", EncoderSettings.DEFAULT.jpegQuality()))
+                        .withChromaSubsampling(chromaSubsampling(params));
+                BufferedImage image;
+                try (InputStream is = in.get(0).getInputStream()) {
+                    image = ImageIO.read(is);
+                }
+                if (image == null) throw new IllegalArgumentException("Image is invalid or unsupported format.");
+                ImageEncoder.write(image, "jpg", settings, out);
+                return "jpg";
+            }
+            case "lossless" -> {
+                int level = intParam(params, "level", DEFAULT_LEVEL);
+                try (InputStream is = in.get(0).getInputStream()) {
+                    byte[] head = is.readNBytes(ImageFormat.HEAD_LENGTH);
+                    String format = ImageFormat.extensionOf(head);
+                    if (format == null) throw new IllegalArgumentException("Image is invalid or unsupported format.");
+                    // put the sniffed bytes back in front of the rest of the stream
+                    DeflateCodec.compress(new SequenceInputStream(new ByteArrayInputStream(head), is), out, format, level);
+                }
+                return DeflateCodec.EXTENSION;
+            }
+            default -> throw new IllegalArgumentException("Unknown compress mode: " + mode);
+        }
+    }
+
+    // subsampling=420|444
+    static boolean chromaSubsampling(Map<String, String> params) {
+        String value = params.getOrDefault("subsampling", "420").trim();
+        return switch (value) {
+            case "420" -> true;
+            case "444" -> false;
+            default -> throw new IllegalArgumentException("Parameter subsampling must be 420 or 444: " + value);
+        };
+    }
+
+    static int intParam(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + name + " must be an integer: " + value);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.blurnest.imageuploader.model.image.processor;
+
+import com.blurnest.imageuploader.model.image.codec.DeflateCodec;
+import com.blurnest.imageuploader.model.image.codec.EncoderSettings;
+import com.blurnest.imageuploader.model.image.codec.ImageEncoder;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * op=decompress, on the first uploaded file: a .bnz container from op=compress&mode=lossless
+ * is restored byte for byte; any other image is decoded and written losslessly as PNG,
+ * level=0..9 (default 4) trading size for speed.
+ */
+@Component
+public class DecompressProcessor implements ImageProcessor {
+
+    @Override
+    public String key() {
+        return "decompress";
+    }
+
+    @Override
+    public Set<String> paramNames() {
+        return Set.of("level");
+    }
+
+    @Override
+    public byte[] process(byte[] in) {
+        return process(new byte[][]{in}, Map.of());
+    }
+
+    @Override
+    public byte[] process(byte[][] in, Map<String, String> params) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            process(List.of(new ByteArrayResource(in[0])), params, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public String process(List<? extends InputStreamSource> in, Map<String, String> params, OutputStream out)
+            throws IOException {
+        try (InputStream is = in.get(0).getInputStream()) {
+            byte[] head = is.readNBytes(4);
+            InputStream whole = new SequenceInputStream(new ByteArrayInputStream(head), is);
+
+            if (DeflateCodec.isContainer(head)) {
+                String format = DeflateCodec.decompress(whole, out);
+                // the recorded format becomes a file extension, never trust it as a path
+                return format.matches("[a-z0-9]{1,8}") ? format : "bin";
+            }
+
+            BufferedImage image = ImageIO.read(whole);
+            if (image == null) throw new IllegalArgumentException("Image is invalid or unsupported format.");
+            int level = CompressProcessor.intParam(params, "level", EncoderSettings.DEFAULT.pngLevel());
+            ImageEncoder.write(image, "png", EncoderSettings.DEFAULT.withPngLevel(level), out);
+            return "png";
+        }
+    }
+}
@@ -1,12 +1,70 @@
 package com.blurnest.imageuploader.model.image.processor;
 
+import com.blurnest.imageuploader.model.image.engine.ProgressListener;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 public interface ImageProcessor {
     String key(); //"compress", "resize", ... other function
     byte[] process(byte[] in);
 
+    //settings besides the inputs and request params that change the result (used to key cached results)
+    default String settingsFingerprint() {
+        return getClass().getName();
+    }
+
+    //request params this processor reads (used to key cached results, anything else is ignored there)
+    default Set<String> paramNames() {
+        return Set.of();
+    }
+
     //java 8
     default byte[] process(byte[][] in) {
         throw new UnsupportedOperationException("This processor does not support multiple images.");
     }
-}
 
+    //request options (e.g. library=<id>), processors that take none just ignore them
+    default byte[] process(byte[][] in, Map<String, String> params) {
+        return process(in);
+    }
+
+    /**
+     * Streaming variant: inputs are opened lazily (e.g. multipart parts spooled to disk) and the
+     * result is written to out. Processors that can work one part at a time should override this;
+     * the default buffers every part and falls back to {@link #process(byte[][], Map)}.
+     * @return file extension of what was written, e.g. "jpg"
+     */
+    default String process(List<? extends InputStreamSource> in, Map<String, String> params, OutputStream out)
+            throws IOException {
+        byte[][] data = new byte[in.size()][];
+        for (int i = 0; i < data.length; i++) {
+            try (InputStream is = in.get(i).getInputStream()) {
+                data[i] = is.readAllBytes();
+            }
+        }
+        out.write(process(data, params));
+        return "jpg";
+    }
+
+    // same, reporting progress to listener; processors without stages report nothing
+    default String process(List<? extends InputStreamSource> in, Map<String, String> params, OutputStream out,
+                           ProgressListener listener) throws IOException {
+        return process(in, params, out);
+    }
+
+    /**
+     * Zoomable variant (output=dzi): the result is a Deep Zoom tile pyramid written under
+     * filesDir, with its .dzi manifest written to manifest. Processors without one refuse it.
+     */
+    default void processPyramid(List<? extends InputStreamSource> in, Map<String, String> params, Path filesDir,
+                                OutputStream manifest, ProgressListener listener) throws IOException {
+        throw new IllegalArgumentException("Operation " + key() + " has no zoomable output.");
+    }
+}
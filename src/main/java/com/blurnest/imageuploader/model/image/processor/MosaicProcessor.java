@@ -1,25 +1,73 @@
 package com.blurnest.imageuploader.model.image.processor;
 
 import com.blurnest.imageuploader.model.image.engine.MosaicModelEngine;
+import com.blurnest.imageuploader.model.image.engine.ProgressListener;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorMetric;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.TileAssignment;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Component
 public class MosaicProcessor implements ImageProcessor{
 
-    private final MosaicModelEngine engine =
-            MosaicModelEngine.builder()
-                    .tileSize(10, 10)
-                    .workDir(new File("/tmp/final_project/image"))
-                    .userChooseBlur(false)
-                    .build();
+    private static final Logger log = LoggerFactory.getLogger(MosaicProcessor.class);
+
+    private final MosaicModelEngine engine;
+
+    public MosaicProcessor(@Value("${app.mosaic.blur:false}") boolean blur,
+                           @Value("${app.mosaic.blur-radius:1}") int blurRadius,
+                           @Value("${app.mosaic.color-metric:RGB}") ColorMetric colorMetric,
+                           @Value("${app.mosaic.descriptor-grid:1}") int descriptorGrid,
+                           @Value("${app.mosaic.max-tile-uses:0}") int maxTileUses,
+                           @Value("${app.mosaic.exclusion-radius:0}") int exclusionRadius,
+                           @Value("${app.mosaic.dither:false}") boolean dither,
+                           @Value("${app.mosaic.quadtree-scale:1}") int quadtreeScale,
+                           @Value("${app.mosaic.quadtree-deviation:12}") int quadtreeDeviation) {
+        this.engine = MosaicModelEngine.builder()
+                .tileSize(10, 10)
+                .workDir(new File("/tmp/final_project/image"))
+                .userChooseBlur(blur)
+                .blurRadius(blurRadius)
+                .colorMetric(colorMetric)
+                .descriptorGrid(descriptorGrid)
+                .assignment(new TileAssignment(maxTileUses, exclusionRadius, dither))
+                .quadtree(quadtreeScale, quadtreeDeviation)
+                .parallelism(Runtime.getRuntime().availableProcessors())
+                .build();
+    }
+
+    @PreDestroy
+    public void close() {
+        engine.close();
+    }
 
     @Override
     public String key() {
         return "mosaic";
     }
 
+    @Override
+    public String settingsFingerprint() {
+        return engine.settingsFingerprint();
+    }
+
+    @Override
+    public Set<String> paramNames() {
+        return Set.of("library");
+    }
+
     @Override
     public byte[] process(byte[] in) {
         throw new UnsupportedOperationException("Use process(byte[][]) for mosaic");
@@ -27,18 +75,67 @@ public class MosaicProcessor implements ImageProcessor{
 
     @Override
     public byte[] process(byte[][] in) {
-        System.out.println("process mosaic photo");
+        return process(in, Map.of());
+    }
+
+    // library=<id> renders the base image with a registered library instead of uploaded tiles
+    @Override
+    public byte[] process(byte[][] in, Map<String, String> params) {
+        log.debug("process mosaic photo");
+        String libraryId = params.get("library");
         try {
+            if (libraryId != null && !libraryId.isBlank()) {
+                return engine.preprocess(in[0], libraryId);
+            }
             return engine.preprocess_test(in);
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
+    // streams the base image and tiles from their sources, never holding all uploads in memory;
+    // very large base images come back as PNG
+    @Override
+    public String process(List<? extends InputStreamSource> in, Map<String, String> params, OutputStream out)
+            throws IOException {
+        return process(in, params, out, ProgressListener.NONE);
+    }
+
+    @Override
+    public String process(List<? extends InputStreamSource> in, Map<String, String> params, OutputStream out,
+                          ProgressListener listener) throws IOException {
+        log.debug("process mosaic photo");
+        String libraryId = params.get("library");
+        if (libraryId != null && !libraryId.isBlank()) {
+            return engine.preprocess(in.get(0), libraryId, out, listener);
+        }
+        return engine.preprocess(in.get(0), in.subList(1, in.size()), out, listener);
+    }
+
+    // the same mosaic as a Deep Zoom pyramid, rendered band by band for very large base images
+    @Override
+    public void processPyramid(List<? extends InputStreamSource> in, Map<String, String> params, Path filesDir,
+                               OutputStream manifest, ProgressListener listener) throws IOException {
+        log.debug("process mosaic pyramid");
+        String libraryId = params.get("library");
+        if (libraryId != null && !libraryId.isBlank()) {
+            engine.preprocessPyramid(in.get(0), List.of(), libraryId, filesDir, manifest, listener);
+        } else {
+            engine.preprocessPyramid(in.get(0), in.subList(1, in.size()), null, filesDir, manifest, listener);
+        }
+    }
+
+    // decode and cache a tile library, returns the id to pass as library=<id>
+    public String registerLibrary(List<? extends InputStreamSource> tiles) throws IOException {
+        return engine.registerLibrary(tiles);
+    }
+
     // test
 //    @Override
 //    public byte[] process_test(byte[] in) {
-//        System.out.println("process mosaic photo");
+//        log.debug("process mosaic photo");
         //testing:
 //        try {
 //            Path fakeImagePath = Paths.get("/tmp/mosaic.jpg");
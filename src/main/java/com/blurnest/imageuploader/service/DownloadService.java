@@ -0,0 +1,174 @@
+package com.blurnest.imageuploader.service;
+
+import com.blurnest.imageuploader.model.image.engine.PipelineMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Serves the files in download/, looked up in their shard by {@link OutputStorage}.
+ * <p>
+ * Result names are never reused for other content (content hash, or a random id when the
+ * result cache is off), so every response is immutable for a year. Its strong ETag is the
+ * SHA-256 of the result's bytes, kept by {@link OutputStorage}; pyramid tiles add their path
+ * below the result, previews their file name. Single byte ranges are answered with 206, so
+ * resumed downloads and seeking viewers only fetch what they miss; several ranges get the
+ * whole file.
+ * Large bodies are handed to Tomcat's sendfile, which copies from the page cache to the socket
+ * without passing through the JVM; otherwise the file channel is transferred to the response.
+ * {@code ?preview} answers with a preview chosen by Accept (see {@link ResultVariants}),
+ * or the result itself if it has none.
+ */
+@Service
+public class DownloadService {
+
+    // set by Tomcat's NIO connector when it can send a file itself after the servlet returns
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    // smaller bodies are cheaper to copy, as in Tomcat's DefaultServlet
+    private static final long SENDFILE_MIN_BYTES = 48 * 1024;
+
+    private static final String PREFIX = "/download/";
+    // plain names only: no "..", no hidden files, nothing percent-encoded
+    private static final Pattern PATH =
+            Pattern.compile("[A-Za-z0-9_\\-]+(\\.[A-Za-z0-9]+)?(/[A-Za-z0-9_\\-]+(\\.[A-Za-z0-9]+)?)*");
+    private static final String CACHE_CONTROL =
+            CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable().getHeaderValue();
+
+    private final OutputStorage storage;
+    private final ResultVariants resultVariants;
+
+    public DownloadService(OutputStorage storage, ResultVariants resultVariants) {
+        this.storage = storage;
+        this.resultVariants = resultVariants;
+    }
+
+    public void serve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        path = path.startsWith(PREFIX) ? path.substring(PREFIX.length()) : "";
+        if (!PATH.matcher(path).matches() || path.endsWith(".part") || path.contains(".part/")) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        File file = storage.resolve(path);
+        String digest = file != null && file.isFile() ? storage.contentDigest(path) : null;
+        if (digest == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND); // missing, or not stored (any more)
+            return;
+        }
+        int slash = path.indexOf('/');
+        String tag = slash < 0 ? digest : digest + path.substring(slash);
+        if (request.getParameterMap().containsKey("preview")) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            File preview = resultVariants.select(file, request.getHeader(HttpHeaders.ACCEPT));
+            if (preview != null) {
+                file = preview;
+                tag = tag + "?" + preview.getName();
+            }
+        }
+
+        String etag = "\"" + tag + "\"";
+        long lastModified = file.lastModified();
+        long length = file.length();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return; // 304, or 412 for a failed If-Match
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && ifRangeMatches(request, etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of(); // malformed, ignored like no Range at all
+            }
+            if (ranges.size() == 1) {
+                try {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    start = length; // e.g. an empty suffix range
+                }
+                if (start >= length || start > end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        // only now, error pages above bring their own
+        response.setContentType(contentType(file.getName()).toString());
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count <= 0) {
+            return;
+        }
+
+        if (count >= SENDFILE_MIN_BYTES && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.getAbsolutePath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            PipelineMetrics.count("download.bytes", count, "mode", "sendfile");
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            for (long position = start, remaining = count; remaining > 0; ) {
+                long n = channel.transferTo(position, remaining, out);
+                if (n <= 0) {
+                    break; // file shrank underneath us, nothing more to send
+                }
+                position += n;
+                remaining -= n;
+            }
+        }
+        PipelineMetrics.count("download.bytes", count, "mode", "copy");
+    }
+
+    // If-Range: the range applies only while the client's copy is still current
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static MediaType contentType(String name) {
+        if (name.endsWith(".dzi")) {
+            return MediaType.APPLICATION_XML;
+        }
+        return MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM);
+    }
+}
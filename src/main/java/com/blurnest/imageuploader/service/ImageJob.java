@@ -0,0 +1,105 @@
+package com.blurnest.imageuploader.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * State of one queued image job as seen by pollers and SSE subscribers.
+ * Written by the worker running it, read by request threads.
+ */
+public class ImageJob {
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    private final String id;
+    private final String op;
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile String stage;
+    private volatile double progress;
+    private volatile String imageUrl;
+    private volatile String message;
+    private volatile long finishedAt;
+
+    public ImageJob(String id, String op) {
+        this.id = id;
+        this.op = op;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getOp() {
+        return op;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isFinished() {
+        return status == Status.DONE || status == Status.FAILED;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    List<SseEmitter> getEmitters() {
+        return emitters;
+    }
+
+    void start() {
+        status = Status.RUNNING;
+    }
+
+    // true when the change is worth pushing to subscribers (new stage or another whole percent)
+    boolean progress(String stage, double fraction) {
+        boolean changed = !stage.equals(this.stage) || (int) (fraction * 100) != (int) (progress * 100);
+        this.stage = stage;
+        this.progress = fraction;
+        return changed;
+    }
+
+    void succeed(String imageUrl) {
+        this.imageUrl = imageUrl;
+        this.progress = 1.0;
+        this.message = "Image generated successfully";
+        finish(Status.DONE);
+    }
+
+    void fail(String message) {
+        this.message = message;
+        finish(Status.FAILED);
+    }
+
+    private void finish(Status status) {
+        this.finishedAt = System.currentTimeMillis();
+        this.status = status;
+    }
+
+    //response body for polling and SSE, same keys as the one-shot endpoint where they overlap
+    public Map<String, Object> toBody() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("jobId", id);
+        body.put("status", status);
+        body.put("success", status != Status.FAILED);
+        if (stage != null) {
+            body.put("stage", stage);
+            body.put("progress", progress);
+        }
+        if (imageUrl != null) {
+            body.put("imageUrl", imageUrl);
+        }
+        if (message != null) {
+            body.put("message", message);
+        }
+        return body;
+    }
+}
@@ -0,0 +1,229 @@
+package com.blurnest.imageuploader.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs image jobs in the background so request threads only upload and poll.
+ * <p>
+ * Jobs go through a fixed pool of workers with a bounded queue; when the queue is full the
+ * job is refused with 429 instead of piling up. Uploaded parts are moved into jobs/<id>/
+ * before the request returns (the container deletes its own temp files at the end of the
+ * request) and removed when the job finishes. The result goes through the result cache
+ * like a one-shot request.
+ */
+@Service
+public class ImageJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageJobService.class);
+
+    private final ImageProcessingService imageProcessingService;
+    private final ThreadPoolExecutor workers;
+    private final Map<String, ImageJob> jobs = new ConcurrentHashMap<>();
+    private final File spoolDir = new File("jobs");
+    private final Duration retention;
+    private final Duration sseTimeout;
+
+    public ImageJobService(ImageProcessingService imageProcessingService,
+                           @Value("${app.jobs.workers:2}") int workers,
+                           @Value("${app.jobs.queue-capacity:16}") int queueCapacity,
+                           @Value("${app.jobs.retention:1h}") Duration retention,
+                           @Value("${app.jobs.sse-timeout:30m}") Duration sseTimeout) {
+        this.imageProcessingService = imageProcessingService;
+        this.retention = retention;
+        this.sseTimeout = sseTimeout;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "image-job-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        // parts of jobs that never ran before the last shutdown
+        FileSystemUtils.deleteRecursively(spoolDir);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    public ResponseEntity<?> submit(MultipartFile[] files, String op, Map<String, String> params) throws IOException {
+        if (files == null || files.length == 0) {
+            return ResponseEntity.badRequest().body("No files uploaded");
+        }
+        if (!imageProcessingService.supports(op)) {
+            return ResponseEntity.badRequest().body("Unsupported operation: " + op);
+        }
+        sweep();
+        // cheap early refusal, the executor still has the final say below
+        if (workers.getQueue().remainingCapacity() == 0) {
+            return queueFull();
+        }
+
+        ImageJob job = new ImageJob(UUID.randomUUID().toString(), op);
+        List<FileSystemResource> sources = spool(job.getId(), files);
+        Map<String, String> options = new HashMap<>(params);
+
+        jobs.put(job.getId(), job);
+        try {
+            workers.execute(() -> run(job, sources, options));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            FileSystemUtils.deleteRecursively(new File(spoolDir, job.getId()));
+            return queueFull();
+        }
+
+        String statusUrl = "/api/images/jobs/" + job.getId();
+        Map<String, Object> body = Map.of(
+                "success", true,
+                "jobId", job.getId(),
+                "statusUrl", statusUrl,
+                "eventsUrl", statusUrl + "/events",
+                "message", "Job queued"
+        );
+        return ResponseEntity.accepted().body(body);
+    }
+
+    public ResponseEntity<?> status(String id) {
+        ImageJob job = jobs.get(id);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Unknown or expired job");
+        }
+        return ResponseEntity.ok(job.toBody());
+    }
+
+    // progress events until the job finishes, then a final "done" or "failed" event; null for unknown jobs
+    public SseEmitter subscribe(String id) {
+        ImageJob job = jobs.get(id);
+        if (job == null) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(sseTimeout.toMillis());
+        emitter.onCompletion(() -> job.getEmitters().remove(emitter));
+        emitter.onTimeout(() -> job.getEmitters().remove(emitter));
+        emitter.onError(e -> job.getEmitters().remove(emitter));
+        job.getEmitters().add(emitter);
+
+        // current state first; if the job finished in the meantime this also closes the stream
+        if (job.isFinished()) {
+            finish(job, emitter);
+        } else {
+            send(job, emitter, "progress");
+        }
+        return emitter;
+    }
+
+    private void run(ImageJob job, List<FileSystemResource> sources, Map<String, String> params) {
+        job.start();
+        publish(job);
+        try {
+            String fileName = imageProcessingService.produce(job.getOp(), sources, params,
+                    (stage, fraction) -> {
+                        if (job.progress(stage, fraction)) {
+                            publish(job);
+                        }
+                    });
+            job.succeed("/download/" + fileName);
+        } catch (IllegalArgumentException e) {
+            job.fail(e.getMessage());
+        } catch (Exception e) {
+            log.error("Job {} ({}) failed", job.getId(), job.getOp(), e);
+            job.fail("Processing failed");
+        } finally {
+            FileSystemUtils.deleteRecursively(new File(spoolDir, job.getId()));
+        }
+        finishEvents(job);
+    }
+
+    // move the parts out of the request's temp files, keeping their order
+    private List<FileSystemResource> spool(String id, MultipartFile[] files) throws IOException {
+        File dir = new File(spoolDir, id).getAbsoluteFile();
+        if (!dir.mkdirs()) {
+            throw new IOException("Cannot create job directory " + dir);
+        }
+        List<FileSystemResource> sources = new ArrayList<>(files.length);
+        try {
+            for (int i = 0; i < files.length; i++) {
+                File part = new File(dir, String.format("%05d", i));
+                files[i].transferTo(part);
+                sources.add(new FileSystemResource(part));
+            }
+        } catch (IOException | RuntimeException e) {
+            FileSystemUtils.deleteRecursively(dir);
+            throw e;
+        }
+        return sources;
+    }
+
+    private void publish(ImageJob job) {
+        for (SseEmitter emitter : job.getEmitters()) {
+            send(job, emitter, "progress");
+        }
+    }
+
+    private void finishEvents(ImageJob job) {
+        for (SseEmitter emitter : job.getEmitters()) {
+            finish(job, emitter);
+        }
+    }
+
+    private void finish(ImageJob job, SseEmitter emitter) {
+        String event = job.getStatus() == ImageJob.Status.DONE ? "done" : "failed";
+        if (send(job, emitter, event)) {
+            emitter.complete();
+        }
+    }
+
+    private boolean send(ImageJob job, SseEmitter emitter, String event) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(job.toBody(), MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // client went away
+            job.getEmitters().remove(emitter);
+            return false;
+        }
+    }
+
+    // forget finished jobs once their retention is over; result files stay in download/
+    private void sweep() {
+        long cutoff = System.currentTimeMillis() - retention.toMillis();
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt() < cutoff);
+    }
+
+    private static ResponseEntity<?> queueFull() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", "5")
+                .body("Job queue is full, try again later");
+    }
+}
@@ -1,15 +1,32 @@
 package com.blurnest.imageuploader.service;
 
+import com.blurnest.imageuploader.model.image.codec.ChannelOutputStream;
+import com.blurnest.imageuploader.model.image.engine.PipelineMetrics;
+import com.blurnest.imageuploader.model.image.engine.ProgressListener;
 import com.blurnest.imageuploader.model.image.processor.ImageProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -19,11 +36,26 @@ import java.util.stream.Collectors;
 @Service
 public class ImageProcessingService {
 
+    private static final Logger log = LoggerFactory.getLogger(ImageProcessingService.class);
+
     private final Map<String, ImageProcessor> map;
+    private final ResultCache resultCache;
+    private final ResultVariants resultVariants;
+    private final OutputStorage storage;
+    private final boolean serverTiming;
 
     //registering available img processors
-    public ImageProcessingService(List<ImageProcessor> list) {
+    public ImageProcessingService(List<ImageProcessor> list, ResultCache resultCache, ResultVariants resultVariants,
+                                  OutputStorage storage, @Value("${app.metrics.server-timing:false}") boolean serverTiming) {
         this.map = list.stream().collect(Collectors.toMap(ImageProcessor::key, p -> p));
+        this.resultCache = resultCache;
+        this.resultVariants = resultVariants;
+        this.storage = storage;
+        this.serverTiming = serverTiming;
+    }
+
+    public boolean supports(String op) {
+        return map.containsKey(op);
     }
 
     //use the corresponding img processors (op) when calling
@@ -37,38 +69,192 @@ public class ImageProcessingService {
         return map.get(op).process(data);
     }
 
-    //generate mosaic photo and return result url(in specific JSON format defined by frontend)
-    public ResponseEntity<?> handleOneShot(MultipartFile[] files, String op) throws IOException {
-        System.out.println("In handleOneShot, file length: " + files.length);
+    //handle multiple pictures with request options
+    public byte[] apply(String op, byte[][] data, Map<String, String> params) {
+        return map.get(op).process(data, params);
+    }
 
-        if (files == null || files.length == 0) {
-            return ResponseEntity.badRequest().body("No files uploaded");
+    //handle uploads as streams, result written to out
+    //returns the extension of what was written (e.g. "jpg")
+    public String apply(String op, List<? extends InputStreamSource> data, Map<String, String> params,
+                        OutputStream out) throws IOException {
+        return map.get(op).process(data, params, out);
+    }
+
+    /**
+     * Result of op for these inputs as a file name in download/. Identical requests (same
+     * inputs, params and processor settings) reuse the stored file, or wait for the one that
+     * is being computed, instead of running op again.
+     */
+    public String produce(String op, List<? extends InputStreamSource> data, Map<String, String> params,
+                          ProgressListener listener) throws IOException {
+        if (!resultCache.isEnabled()) {
+            return writeResult(UUID.randomUUID().toString(), op, data, params, listener);
         }
+        ImageProcessor processor = map.get(op);
+        String key = ResultCache.key(op, keyParams(processor, params), processor.settingsFingerprint(), data);
+        return resultCache.getOrProduce(key, baseName -> writeResult(baseName, op, data, params, listener));
+    }
 
-        //what if files are large?
-        byte[][] images = new byte[files.length][];
-        for (int i = 0; i < files.length; i++) {
-            images[i] = files[i].getBytes();
+    /**
+     * The params that decide the result: the ones the processor reads, plus output (read by
+     * writeResult, with its default filled in). Others, such as op itself or a cache-busting
+     * ?_=timestamp, would only make identical requests miss.
+     */
+    static Map<String, String> keyParams(ImageProcessor processor, Map<String, String> params) {
+        Map<String, String> kept = new TreeMap<>();
+        for (String name : processor.paramNames()) {
+            String value = params.get(name);
+            if (value != null) {
+                kept.put(name, value);
+            }
         }
+        kept.put("output", params.getOrDefault("output", "image"));
+        return kept;
+    }
 
-        //run the requested algorithm to process the img
-        byte[] result = apply(op, images);
+    /**
+     * Run op and write its result to <baseName>.<ext> in its download/ shard, where ext is the
+     * format the processor produced, and register it with the storage. The file only appears
+     * under its final name once it is complete.
+     * @return file name of the result, served at /download/<file name>
+     */
+    public String writeResult(String baseName, String op, List<? extends InputStreamSource> data,
+                              Map<String, String> params, ProgressListener listener) throws IOException {
+        //part files go to the same shard, so the final move is a rename
+        File outputDir = storage.directoryFor(baseName);
+        String output = params.getOrDefault("output", "image");
+        if (output.equals("dzi")) {
+            return writePyramid(outputDir, baseName, op, data, params, listener);
+        }
+        if (!output.equals("image")) {
+            throw new IllegalArgumentException("Unknown output: " + output);
+        }
+        File partFile = new File(outputDir, baseName + ".part");
 
-        //save result image to static folder (e.g., /static/output/)
-        String fileName = UUID.randomUUID() + ".jpg";
-        File outputDir = new File("download");
-        outputDir.mkdirs();  // create if not exist
+        //the result goes straight to disk; the processor tells which format it wrote
+        //and is hashed on the way, for the ETag of its downloads
+        String extension;
+        String digest;
+        long storeStart;
+        try (ChannelOutputStream out = ChannelOutputStream.createDigesting(partFile.toPath())) {
+            extension = map.get(op).process(data, params, out, listener);
+            if (!extension.matches("[a-z0-9]{1,8}")) {
+                throw new IllegalStateException("Processor " + op + " returned an invalid extension: " + extension);
+            }
+            storeStart = System.nanoTime();
+            digest = out.digest();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partFile.toPath());
+            throw e;
+        }
+        String fileName = baseName + "." + extension;
         File outputFile = new File(outputDir, fileName);
+        Files.move(partFile.toPath(), outputFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        PipelineMetrics.step("store", storeStart, listener);
+
+        // before the name is handed out, so a ?preview request never sees the result without them
+        long previewStart = System.nanoTime();
+        try {
+            resultVariants.generate(outputFile);
+        } catch (IOException | RuntimeException e) {
+            log.warn("No previews for {}: {}", fileName, e.getMessage());
+        }
+        PipelineMetrics.step("preview", previewStart, listener);
+
+        PipelineMetrics.count("image.bytes.in", data.stream().mapToLong(ImageProcessingService::sizeOf).sum(), "op", op);
+        PipelineMetrics.count("image.bytes.out", outputFile.length(), "op", op);
+        storage.register(outputFile, digest);
+        if (log.isDebugEnabled()) {
+            log.debug("Wrote {}", outputFile.getAbsolutePath());
+        }
+        return fileName;
+    }
+
+    /**
+     * output=dzi: <baseName>.dzi plus its tiles in <baseName>_files/ next to it, the
+     * layout Deep Zoom viewers expect. The tiles directory is moved into place before the
+     * manifest, so a manifest only ever appears with all of its tiles.
+     */
+    private String writePyramid(File outputDir, String baseName, String op, List<? extends InputStreamSource> data,
+                                Map<String, String> params, ProgressListener listener) throws IOException {
+        File partDir = new File(outputDir, baseName + "_files.part");
+        File partFile = new File(outputDir, baseName + ".part");
+        File filesDir = new File(outputDir, baseName + OutputStorage.PYRAMID_SUFFIX);
+        File manifestFile = new File(outputDir, baseName + ".dzi");
+        MessageDigest digest = sha256();
+        long storeStart;
+        try {
+            FileSystemUtils.deleteRecursively(partDir);
+            try (OutputStream manifest = new DigestOutputStream(Files.newOutputStream(partFile.toPath()), digest)) {
+                map.get(op).processPyramid(data, params, partDir.toPath(), manifest, listener);
+            }
+            storeStart = System.nanoTime();
+            FileSystemUtils.deleteRecursively(filesDir); // left over from an earlier run with this name
+            Files.move(partDir.toPath(), filesDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            Files.move(partFile.toPath(), manifestFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            FileSystemUtils.deleteRecursively(partDir);
+            Files.deleteIfExists(partFile.toPath());
+            throw e;
+        }
+        PipelineMetrics.step("store", storeStart, listener);
+
+        PipelineMetrics.count("image.bytes.in", data.stream().mapToLong(ImageProcessingService::sizeOf).sum(), "op", op);
+        PipelineMetrics.count("image.bytes.out", OutputStorage.sizeOf(manifestFile), "op", op);
+        storage.register(manifestFile, HexFormat.of().formatHex(digest.digest()));
+        if (log.isDebugEnabled()) {
+            log.debug("Wrote {} and {}", manifestFile.getAbsolutePath(), filesDir.getAbsolutePath());
+        }
+        return manifestFile.getName();
+    }
 
-        //file location: download/<uuid>.jpg
-        Files.write(outputFile.toPath(), result);
-        System.out.println("Writing file to: " + outputFile.getAbsolutePath());
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static long sizeOf(InputStreamSource source) {
+        if (source instanceof MultipartFile file) {
+            return file.getSize();
+        }
+        try {
+            return source instanceof Resource resource ? resource.contentLength() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    //generate mosaic photo and return result url(in specific JSON format defined by frontend)
+    public ResponseEntity<?> handleOneShot(MultipartFile[] files, String op) throws IOException {
+        return handleOneShot(files, op, Map.of());
+    }
+
+    public ResponseEntity<?> handleOneShot(MultipartFile[] files, String op, Map<String, String> params)
+            throws IOException {
+        if (files == null || files.length == 0) {
+            return ResponseEntity.badRequest().body("No files uploaded");
+        }
+
+        //run the requested algorithm, parts are streamed from their temp files (no byte[] per upload)
+        log.debug("handleOneShot op={} files={}", op, files.length);
+        String fileName;
+        ServerTiming timing = serverTiming ? new ServerTiming() : null;
+        try {
+            fileName = produce(op, Arrays.asList(files), params, timing != null ? timing : ProgressListener.NONE);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
 
         /** Construct the public URL that the frontend will use to preview or download the file.
          * This assumes:
-         * 1. The file is saved locally under the "download/" directory. (relative path)
-         * 2. Spring Boot's WebConfig maps the URL path "/download/**" to serve static files from that directory:
-         *    registry.addResourceHandler("/download/**").addResourceLocations("file:download/");
+         * 1. The file is saved locally under the "download/" directory, in a shard named after its first
+         *    characters (see OutputStorage), and deleted again once it is too old or over the disk quota.
+         * 2. DownloadController serves the URL path "/download/**" from that directory (ranges, ETags,
+         *    sendfile), and "/download/<name>?preview" as a smaller copy in a format the browser accepts;
          * 3. In development mode, the Vue frontend is served on a different port (e.g., 5173), and has a Vite proxy configured:
          *    '/download': { target: 'http://localhost:8080', changeOrigin: true }
          * Therefore, returning a relative path like "/download/<uuid>.jpg" will work correctly in both development and production.
@@ -81,7 +267,11 @@ public class ImageProcessingService {
                 "imageUrl", url,
                 "message", "Image generated successfully"
         );
-        return ResponseEntity.ok().body(body);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (timing != null) {
+            response.header("Server-Timing", timing.header());
+        }
+        return response.body(body);
     }
 }
 
@@ -0,0 +1,449 @@
+package com.blurnest.imageuploader.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The result files in download/ and their retention.
+ * <p>
+ * Results are stored in shard directories named after the first four characters of their name
+ * (hex of the content hash, or of a random id), download/ab/cd/abcd….jpg, so that no directory
+ * grows large however many results there are. URLs keep the bare name, /download/abcd….jpg, and
+ * {@link #resolve} maps it to its shard. A result may have companion directories next to it,
+ * the {@value #PYRAMID_SUFFIX} tiles of a .dzi pyramid and {@value #VARIANTS_SUFFIX} previews;
+ * they are counted and deleted with it.
+ * <p>
+ * Size, creation time and last use of every result are kept in an in-memory index, built once
+ * at startup by walking the shards (flat files of older versions are moved into their shard
+ * then) and updated as results are stored, used and deleted, so eviction never lists a
+ * directory. A background sweeper deletes results older than max-age and, least recently used
+ * first, those beyond max-bytes; storing a result also evicts right away when over the quota.
+ * Both only look at the oldest entries of the index (by creation for max-age, by use for
+ * max-bytes) and stop at the first one they keep, so storing a result costs amortised O(1)
+ * however many there are.
+ */
+@Service
+public class OutputStorage {
+
+    private static final Logger log = LoggerFactory.getLogger(OutputStorage.class);
+
+    // a <name>.dzi result keeps its tiles in <name>_files/
+    public static final String PYRAMID_SUFFIX = "_files";
+    // previews of a <name>.<ext> result, see ResultVariants
+    public static final String VARIANTS_SUFFIX = "_variants";
+
+    private static final String PART = ".part";
+    private static final int SHARD_CHARS = 2; // per level, two levels
+
+    private static final class Entry {
+        final String base;
+        final String fileName;
+        final long bytes;
+        final long createdAt;
+        boolean removed; // out of the index, left for the creation queue to skip
+        volatile String digest; // of the result file, null until known
+
+        Entry(String base, String fileName, long bytes, long createdAt, String digest) {
+            this.base = base;
+            this.fileName = fileName;
+            this.bytes = bytes;
+            this.createdAt = createdAt;
+            this.digest = digest;
+        }
+    }
+
+    private final File root;
+    private final long maxBytes;
+    private final Duration maxAge;
+    private final Duration sweepInterval;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // by base name, access order
+    private final ArrayDeque<Entry> created = new ArrayDeque<>(); // creation order, may hold removed entries
+    private long totalBytes;
+    private ScheduledExecutorService sweeper;
+
+    public OutputStorage(@Value("${app.storage.dir:download}") File root,
+                         @Value("${app.storage.max-bytes:2GB}") DataSize maxBytes,
+                         @Value("${app.storage.max-age:24h}") Duration maxAge,
+                         @Value("${app.storage.sweep-interval:5m}") Duration sweepInterval) {
+        this.root = root;
+        this.maxBytes = maxBytes.toBytes();
+        this.maxAge = maxAge;
+        this.sweepInterval = sweepInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        load();
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "output-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = sweepInterval.toMillis();
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                sweep();
+            } catch (RuntimeException e) {
+                log.warn("Output sweep failed: {}", e.getMessage());
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        sweeper.execute(this::digestLoaded);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    /* ─── layout ───────────────────────────────────────────────── */
+
+    // shard directory a result, its companions and its part files are written to; created if needed
+    public File directoryFor(String name) throws IOException {
+        File dir = shardOf(name);
+        Files.createDirectories(dir.toPath());
+        return dir;
+    }
+
+    /**
+     * File of a download path, "name" or "name_files/10/0_0.jpg", in the shard of its first
+     * segment. The path must already be free of "..", see DownloadService.
+     * @return null if the path cannot name a result
+     */
+    public File resolve(String path) {
+        String base = baseOf(path);
+        return base.length() < 2 * SHARD_CHARS ? null : new File(shardOf(base), path);
+    }
+
+    private File shardOf(String name) {
+        if (name.length() < 2 * SHARD_CHARS) {
+            throw new IllegalArgumentException("Output name too short: " + name);
+        }
+        return new File(new File(root, name.substring(0, SHARD_CHARS)), name.substring(SHARD_CHARS, 2 * SHARD_CHARS));
+    }
+
+    // index key of a download path, from its first segment
+    private static String baseOf(String path) {
+        int slash = path.indexOf('/');
+        return baseName(slash < 0 ? path : path.substring(0, slash));
+    }
+
+    // name without extension or companion suffix, the index key
+    private static String baseName(String name) {
+        int dot = name.indexOf('.');
+        String base = dot < 0 ? name : name.substring(0, dot);
+        if (base.endsWith(PYRAMID_SUFFIX)) {
+            return base.substring(0, base.length() - PYRAMID_SUFFIX.length());
+        }
+        if (base.endsWith(VARIANTS_SUFFIX)) {
+            return base.substring(0, base.length() - VARIANTS_SUFFIX.length());
+        }
+        return base;
+    }
+
+    public static File variantsOf(File result) {
+        return new File(result.getParentFile(), baseName(result.getName()) + VARIANTS_SUFFIX);
+    }
+
+    private static List<File> companionsOf(File result) {
+        return List.of(new File(result.getParentFile(), baseName(result.getName()) + PYRAMID_SUFFIX),
+                variantsOf(result));
+    }
+
+    // bytes of a result file, with the files of its tiles and previews
+    public static long sizeOf(File result) {
+        long bytes = result.length();
+        for (File dir : companionsOf(result)) {
+            if (!dir.isDirectory()) {
+                continue;
+            }
+            try (Stream<Path> paths = Files.walk(dir.toPath())) {
+                bytes += paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+            } catch (IOException | UncheckedIOException e) {
+                log.warn("Failed to measure {}: {}", dir, e.getMessage());
+            }
+        }
+        return bytes;
+    }
+
+    /* ─── index ────────────────────────────────────────────────── */
+
+    /**
+     * Index a result that was just written, its companions complete; may evict older ones.
+     * @param digest SHA-256 (hex) of the result file, taken while it was written, see
+     *               {@link #contentDigest}; null to have it computed when first needed
+     */
+    public void register(File result, String digest) {
+        String base = baseName(result.getName());
+        Entry entry = new Entry(base, result.getName(), sizeOf(result), System.currentTimeMillis(), digest);
+        List<Entry> evicted;
+        synchronized (this) {
+            add(entry);
+            evicted = evict(base, entry.createdAt);
+        }
+        evicted.forEach(this::delete);
+    }
+
+    /**
+     * File name of the stored result with this base name, counted as a use.
+     * @return null if there is none, or it expired or disappeared (then it is dropped)
+     */
+    public String find(String baseName) {
+        Entry stale;
+        synchronized (this) {
+            Entry entry = entries.get(baseName);
+            if (entry == null) {
+                return null;
+            }
+            if (!isExpired(entry, System.currentTimeMillis()) && resolve(entry.fileName).isFile()) {
+                return entry.fileName;
+            }
+            stale = entry;
+            remove(entry);
+        }
+        delete(stale);
+        return null;
+    }
+
+    // a download of the path (or a file inside one of its companions) counts as a use
+    public void touch(String path) {
+        String base = baseOf(path);
+        synchronized (this) {
+            entries.get(base);
+        }
+    }
+
+    /**
+     * SHA-256 (hex) of the content of the result a download path belongs to, the path itself
+     * or a file in one of its companions, counted as a use. Results come with theirs from
+     * {@link #register}, and those found at startup are hashed in the background; one asked for
+     * before that is computed here, once, and kept in the index.
+     * @return null if there is no such result (any more)
+     */
+    public String contentDigest(String path) throws IOException {
+        String base = baseOf(path);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(base);
+        }
+        if (entry == null) {
+            return null;
+        }
+        String digest = entry.digest;
+        if (digest == null) {
+            // racing downloads compute the same value
+            digest = sha256(resolve(entry.fileName));
+            entry.digest = digest;
+        }
+        return digest;
+    }
+
+    // digests of the results found at startup, off the request threads
+    private void digestLoaded() {
+        List<Entry> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(created);
+        }
+        for (Entry entry : pending) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            if (entry.removed || entry.digest != null) {
+                continue; // evicted since, or already asked for
+            }
+            try {
+                entry.digest = sha256(resolve(entry.fileName));
+            } catch (IOException e) {
+                log.debug("Failed to hash {}: {}", entry.fileName, e.getMessage());
+            }
+        }
+    }
+
+    private static String sha256(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // delete expired results and, least recently used first, those beyond the quota
+    public void sweep() {
+        List<Entry> evicted;
+        synchronized (this) {
+            evicted = evict(null, System.currentTimeMillis());
+        }
+        if (!evicted.isEmpty()) {
+            log.debug("Swept {} results", evicted.size());
+        }
+        evicted.forEach(this::delete);
+    }
+
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // entries are added in creation order, which keeps the creation queue sorted
+    private void add(Entry entry) {
+        Entry previous = entries.put(entry.base, entry);
+        if (previous != null) {
+            previous.removed = true;
+            totalBytes -= previous.bytes;
+        }
+        created.addLast(entry);
+        totalBytes += entry.bytes;
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.base);
+        entry.removed = true;
+        totalBytes -= entry.bytes;
+    }
+
+    // entries to delete, already out of the index; keep is never evicted for size
+    private List<Entry> evict(String keep, long now) {
+        List<Entry> evicted = new ArrayList<>();
+        // expired ones from the oldest, until the first that is still within max-age
+        for (Entry oldest; (oldest = created.peekFirst()) != null && (oldest.removed || isExpired(oldest, now)); ) {
+            created.pollFirst();
+            if (!oldest.removed) {
+                remove(oldest);
+                evicted.add(oldest);
+            }
+        }
+        // then least recently used ones while over the quota
+        Iterator<Entry> lru = entries.values().iterator();
+        while (totalBytes > maxBytes && lru.hasNext()) {
+            Entry eldest = lru.next();
+            if (eldest.base.equals(keep)) {
+                continue; // the newest entry, so this is also the last one
+            }
+            lru.remove();
+            eldest.removed = true;
+            totalBytes -= eldest.bytes;
+            evicted.add(eldest);
+        }
+        return evicted;
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.createdAt > maxAge.toMillis();
+    }
+
+    private void delete(Entry entry) {
+        try {
+            File file = resolve(entry.fileName);
+            // the result goes first, so a pyramid is never served without its tiles
+            Files.deleteIfExists(file.toPath());
+            for (File dir : companionsOf(file)) {
+                FileSystemUtils.deleteRecursively(dir.toPath());
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete result {}: {}", entry.fileName, e.getMessage());
+        }
+    }
+
+    /* ─── startup ──────────────────────────────────────────────── */
+
+    // the one full walk: move flat files into shards, drop unfinished writes, index the rest oldest first
+    private void load() {
+        File[] top = root.listFiles();
+        if (top == null) {
+            return;
+        }
+        for (File file : top) {
+            if (isShard(file)) {
+                continue;
+            }
+            try {
+                String base = baseName(file.getName());
+                if (file.getName().contains(PART) || base.length() < 2 * SHARD_CHARS) {
+                    FileSystemUtils.deleteRecursively(file.toPath()); // unfinished, or no URL could reach it
+                } else {
+                    Files.move(file.toPath(), new File(directoryFor(base), file.getName()).toPath());
+                }
+            } catch (IOException e) {
+                log.warn("Failed to move {} into its shard: {}", file, e.getMessage());
+            }
+        }
+
+        List<File> results = new ArrayList<>();
+        for (File first : listShards(root)) {
+            for (File second : listShards(first)) {
+                File[] files = second.listFiles();
+                if (files == null) {
+                    continue;
+                }
+                for (File file : files) {
+                    if (file.getName().contains(PART)) {
+                        FileSystemUtils.deleteRecursively(file);
+                    } else if (file.isFile()) {
+                        results.add(file);
+                    }
+                }
+            }
+        }
+        results.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        List<Entry> loaded = new ArrayList<>(results.size());
+        for (File file : results) {
+            loaded.add(new Entry(baseName(file.getName()), file.getName(), sizeOf(file), file.lastModified(), null));
+        }
+        List<Entry> evicted;
+        synchronized (this) {
+            loaded.forEach(this::add);
+            evicted = evict(null, System.currentTimeMillis());
+        }
+        evicted.forEach(this::delete);
+        log.info("Output storage: {} results, {} bytes", size(), totalBytes());
+    }
+
+    private static boolean isShard(File file) {
+        return file.isDirectory() && file.getName().length() == SHARD_CHARS;
+    }
+
+    private static List<File> listShards(File dir) {
+        File[] files = dir.listFiles(OutputStorage::isShard);
+        return files == null ? List.of() : List.of(files);
+    }
+}
@@ -0,0 +1,150 @@
+package com.blurnest.imageuploader.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Content-addressed cache of processed results in download/.
+ * <p>
+ * The key is a SHA-256 over the operation, the request parameters it reads, the processor's settings
+ * and the bytes of every input, and the result file is named after it, so the same request
+ * always maps to the same file. Identical requests that arrive while the first one is still
+ * running wait for it instead of computing again. Which results are still there, and for how
+ * long, is up to {@link OutputStorage}; a lookup counts as a use there.
+ */
+@Service
+public class ResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ResultCache.class);
+
+    @FunctionalInterface
+    public interface Producer {
+        // write and register the result for key, return its file name
+        String produce(String key) throws IOException;
+    }
+
+    private final boolean enabled;
+    private final OutputStorage storage;
+
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    public ResultCache(@Value("${app.results.enabled:true}") boolean enabled, OutputStorage storage) {
+        this.enabled = enabled;
+        this.storage = storage;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Cache key of a request: operation, parameters (order-insensitive), processor settings
+     * and the inputs' bytes in upload order. Reads every input once.
+     */
+    public static String key(String op, Map<String, String> params, String settings,
+                             List<? extends InputStreamSource> inputs) throws IOException {
+        MessageDigest digest = sha256();
+        digest.update(field(op));
+        for (Map.Entry<String, String> param : new TreeMap<>(params).entrySet()) {
+            digest.update(field(param.getKey()));
+            digest.update(field(param.getValue()));
+        }
+        digest.update(field(settings));
+
+        byte[] buffer = new byte[64 * 1024];
+        for (InputStreamSource input : inputs) {
+            MessageDigest part = sha256();
+            try (InputStream in = input.getInputStream()) {
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    part.update(buffer, 0, n);
+                }
+            }
+            // per-input digests keep input boundaries part of the key
+            digest.update(part.digest());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * File name of the cached result for key, computing it with producer on a miss. Concurrent
+     * callers with the same key share one computation and see its result or its exception.
+     */
+    public String getOrProduce(String key, Producer producer) throws IOException {
+        String cached = storage.find(key);
+        if (cached != null) {
+            log.debug("Result cache hit: {}", cached);
+            return cached;
+        }
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            // may have landed between the lookup and claiming the key
+            String fileName = storage.find(key);
+            if (fileName == null) {
+                fileName = producer.produce(key);
+            }
+            mine.complete(fileName);
+            return fileName;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static String await(CompletableFuture<String> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an identical request", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException(cause);
+        }
+    }
+
+    // length-prefixed so that ("ab", "c") and ("a", "bc") hash differently
+    private static byte[] field(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        byte[] out = new byte[4 + bytes.length];
+        out[0] = (byte) (bytes.length >>> 24);
+        out[1] = (byte) (bytes.length >>> 16);
+        out[2] = (byte) (bytes.length >>> 8);
+        out[3] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, out, 4, bytes.length);
+        return out;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
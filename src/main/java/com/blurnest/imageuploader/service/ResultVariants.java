@@ -0,0 +1,151 @@
+package com.blurnest.imageuploader.service;
+
+import com.blurnest.imageuploader.model.image.codec.ChannelOutputStream;
+import com.blurnest.imageuploader.model.image.codec.EncoderSettings;
+import com.blurnest.imageuploader.model.image.codec.ImageEncoder;
+import com.blurnest.imageuploader.model.image.codec.ImagePreview;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Preview copies of image results, written once when the result is stored and picked per
+ * request by its Accept header.
+ * <p>
+ * A preview is the result scaled down to preview-size on its longer side and encoded in every
+ * configured format this JVM has an ImageIO writer for: AVIF and WebP need a plugin on the
+ * classpath, JPEG is always there. They live in &lt;name&gt;{@value OutputStorage#VARIANTS_SUFFIX}/
+ * next to the result and are kept only if smaller than the result itself.
+ */
+@Service
+public class ResultVariants {
+
+    private static final Logger log = LoggerFactory.getLogger(ResultVariants.class);
+
+    private static final Map<String, MediaType> TYPES = Map.of(
+            "avif", MediaType.parseMediaType("image/avif"),
+            "webp", MediaType.parseMediaType("image/webp"),
+            "jpg", MediaType.IMAGE_JPEG);
+
+    private final int previewSize;
+    private final List<String> formats; // preference order, only those that can be written
+    private final EncoderSettings settings;
+
+    public ResultVariants(@Value("${app.results.preview-size:1600}") int previewSize,
+                          @Value("${app.results.preview-formats:avif,webp,jpg}") List<String> formats,
+                          @Value("${app.results.preview-quality:80}") int quality) {
+        this.previewSize = previewSize;
+        this.settings = EncoderSettings.DEFAULT.withJpegQuality(quality);
+        this.formats = new ArrayList<>();
+        for (String format : formats) {
+            String name = format.trim().toLowerCase();
+            if (!TYPES.containsKey(name)) {
+                throw new IllegalArgumentException("Unsupported preview format: " + format);
+            }
+            if (ImageIO.getImageWritersByFormatName(name).hasNext()) {
+                this.formats.add(name);
+            }
+        }
+        log.info("Result previews: {}px as {}", previewSize, this.formats);
+    }
+
+    /**
+     * Write the previews of a jpg or png result next to it; other results have none. The
+     * directory appears complete or not at all.
+     */
+    public void generate(File result) throws IOException {
+        String name = result.getName();
+        if (previewSize < 1 || formats.isEmpty() || !(name.endsWith(".jpg") || name.endsWith(".png"))) {
+            return;
+        }
+        BufferedImage preview = ImagePreview.read(result, previewSize);
+        if (preview == null) {
+            return;
+        }
+        File dir = OutputStorage.variantsOf(result);
+        File partDir = new File(dir.getPath() + ".part");
+        try {
+            FileSystemUtils.deleteRecursively(partDir);
+            Files.createDirectories(partDir.toPath());
+            boolean any = false;
+            for (String format : formats) {
+                File file = new File(partDir, "preview." + format);
+                try (OutputStream out = ChannelOutputStream.create(file.toPath())) {
+                    ImageEncoder.write(preview, format, settings, out);
+                }
+                if (file.length() < result.length()) {
+                    any = true;
+                } else {
+                    Files.delete(file.toPath());
+                }
+            }
+            FileSystemUtils.deleteRecursively(dir);
+            if (any) {
+                Files.move(partDir.toPath(), dir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            FileSystemUtils.deleteRecursively(partDir);
+        }
+    }
+
+    /**
+     * The preview of result the Accept header rates highest, formats in preference order on a
+     * tie; a missing or invalid header accepts anything.
+     * @return null if there is no acceptable preview
+     */
+    public File select(File result, String accept) {
+        File dir = OutputStorage.variantsOf(result);
+        if (!dir.isDirectory()) {
+            return null;
+        }
+        List<MediaType> ranges;
+        try {
+            ranges = accept == null || accept.isBlank() ? List.of(MediaType.ALL) : MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            ranges = List.of(MediaType.ALL);
+        }
+        File best = null;
+        double bestQuality = 0;
+        for (String format : formats) {
+            File file = new File(dir, "preview." + format);
+            double quality = quality(ranges, TYPES.get(format));
+            if (quality > bestQuality && file.isFile()) {
+                best = file;
+                bestQuality = quality;
+            }
+        }
+        return best;
+    }
+
+    // q of the most specific range that covers type, 0 if none does
+    private static double quality(List<MediaType> ranges, MediaType type) {
+        int specificity = -1;
+        double quality = 0;
+        for (MediaType range : ranges) {
+            if (!range.includes(type)) {
+                continue;
+            }
+            int s = range.isWildcardType() ? 0 : range.isWildcardSubtype() ? 1 : 2;
+            if (s > specificity) {
+                specificity = s;
+                quality = range.getQualityValue();
+            }
+        }
+        return quality;
+    }
+}
@@ -0,0 +1,41 @@
+package com.blurnest.imageuploader.service;
+
+import com.blurnest.imageuploader.model.image.engine.ProgressListener;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Collects the step times of one request for a Server-Timing response header, e.g.
+ * {@code decode-target;dur=41.2, match;dur=3.0, ..., total;dur=120.5}. Times of a step that
+ * is reported more than once (striped renders) are added up.
+ */
+class ServerTiming implements ProgressListener {
+
+    private final long start = System.nanoTime();
+    private final Map<String, Long> steps = new LinkedHashMap<>();
+
+    @Override
+    public void onProgress(String stage, double fraction) {
+    }
+
+    @Override
+    public synchronized void onStepTime(String step, long nanos) {
+        steps.merge(step, nanos, Long::sum);
+    }
+
+    // no steps at all means the result was reused from the cache or from an identical running request
+    synchronized String header() {
+        String timings = steps.entrySet().stream()
+                .map(e -> entry(e.getKey(), e.getValue()))
+                .collect(Collectors.joining(", "));
+        String total = entry("total", System.nanoTime() - start);
+        return steps.isEmpty() ? "cache;desc=\"reused\", " + total : timings + ", " + total;
+    }
+
+    private static String entry(String name, long nanos) {
+        return String.format(Locale.ROOT, "%s;dur=%.1f", name, nanos / 1e6);
+    }
+}
@@ -0,0 +1,39 @@
+package com.blurnest.imageuploader.service;
+
+import com.blurnest.imageuploader.model.image.processor.MosaicProcessor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Registers uploaded tile sets once so mosaic requests can reference them by id
+ * (POST /api/images/process?op=mosaic&library=<id>) instead of re-uploading every tile.
+ */
+@Service
+public class TileLibraryService {
+
+    private final MosaicProcessor mosaicProcessor;
+
+    public TileLibraryService(MosaicProcessor mosaicProcessor) {
+        this.mosaicProcessor = mosaicProcessor;
+    }
+
+    public ResponseEntity<?> register(MultipartFile[] files) throws IOException {
+        if (files == null || files.length == 0) {
+            return ResponseEntity.badRequest().body("No files uploaded");
+        }
+
+        // parts are read from their spooled temp files one at a time
+        String libraryId = mosaicProcessor.registerLibrary(Arrays.asList(files));
+        Map<String, Object> body = Map.of(
+                "success", true,
+                "libraryId", libraryId,
+                "message", "Tile library registered"
+        );
+        return ResponseEntity.ok().body(body);
+    }
+}
@@ -0,0 +1,167 @@
+package com.blurnest.imageuploader.controller;
+
+import com.blurnest.imageuploader.service.DownloadService;
+import com.blurnest.imageuploader.service.OutputStorage;
+import com.blurnest.imageuploader.service.ResultVariants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(DownloadController.class)
+@Import({DownloadService.class, OutputStorage.class, ResultVariants.class})
+class DownloadControllerTests {
+
+    @TempDir
+    static File root;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("app.storage.dir", root::getAbsolutePath);
+        registry.add("app.results.preview-size", () -> "32");
+        registry.add("app.results.preview-formats", () -> "jpg");
+    }
+
+    private static final String NAME = "abcdef0123.jpg";
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    OutputStorage storage;
+
+    @Autowired
+    ResultVariants variants;
+
+    private byte[] bytes;
+    private String etag;
+
+    @BeforeEach
+    void storeResult() throws Exception {
+        File file = storage.resolve(NAME);
+        if (!file.isFile()) {
+            // noise, so the preview is much smaller than the result
+            BufferedImage image = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+            Random random = new Random(1);
+            for (int y = 0; y < 256; y++) {
+                for (int x = 0; x < 256; x++) {
+                    image.setRGB(x, y, random.nextInt(0x1000000));
+                }
+            }
+            storage.directoryFor("abcdef0123");
+            ImageIO.write(image, "jpg", file);
+            variants.generate(file);
+            storage.register(file, null);
+        }
+        bytes = Files.readAllBytes(file.toPath());
+        etag = "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes)) + "\"";
+    }
+
+    @Test
+    void servesTheWholeResultWithAContentDigestETag() throws Exception {
+        mvc.perform(get("/download/" + NAME))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/jpeg"))
+                .andExpect(content().bytes(bytes));
+    }
+
+    @Test
+    void answersASingleRangeWith206() throws Exception {
+        mvc.perform(get("/download/" + NAME).header(HttpHeaders.RANGE, "bytes=10-19"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-19/" + bytes.length))
+                .andExpect(content().bytes(Arrays.copyOfRange(bytes, 10, 20)));
+
+        mvc.perform(get("/download/" + NAME).header(HttpHeaders.RANGE, "bytes=-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes(Arrays.copyOfRange(bytes, bytes.length - 5, bytes.length)));
+    }
+
+    @Test
+    void ignoresTheRangeWhenIfRangeNoLongerMatches() throws Exception {
+        mvc.perform(get("/download/" + NAME).header(HttpHeaders.RANGE, "bytes=0-9")
+                        .header(HttpHeaders.IF_RANGE, "\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(bytes));
+
+        mvc.perform(get("/download/" + NAME).header(HttpHeaders.RANGE, "bytes=0-9")
+                        .header(HttpHeaders.IF_RANGE, etag))
+                .andExpect(status().isPartialContent());
+    }
+
+    @Test
+    void answersAMatchingETagWith304() throws Exception {
+        mvc.perform(get("/download/" + NAME).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void answersARangePastTheEndWith416() throws Exception {
+        mvc.perform(get("/download/" + NAME).header(HttpHeaders.RANGE, "bytes=" + bytes.length + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + bytes.length));
+    }
+
+    @Test
+    void rejectsPathsOutsideTheResults() throws Exception {
+        Files.write(new File(root, "ab/cd/abcdef0123.part").toPath(), new byte[]{1});
+        Files.write(new File(root, ".hidden").toPath(), new byte[]{1});
+
+        for (String path : new String[]{
+                "/download/../" + root.getName() + "/ab/cd/" + NAME,
+                "/download/ab/cd/" + NAME,
+                "/download/.hidden",
+                "/download/abcdef0123.part",
+                "/download/abcdef0123_variants.part/preview.jpg",
+                "/download/%2e%2e/etc/passwd",
+                "/download/missing0.jpg",
+                "/download/ab.jpg"}) {
+            mvc.perform(get(path)).andExpect(status().isNotFound());
+        }
+    }
+
+    @Test
+    void previewIsChosenByAcceptAndVariesOnIt() throws Exception {
+        File preview = new File(OutputStorage.variantsOf(storage.resolve(NAME)), "preview.jpg");
+        String previewTag = etag.substring(0, etag.length() - 1) + "?preview.jpg\"";
+
+        mvc.perform(get("/download/" + NAME + "?preview").header(HttpHeaders.ACCEPT, "image/webp,image/*;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andExpect(header().string(HttpHeaders.ETAG, previewTag))
+                .andExpect(content().bytes(Files.readAllBytes(preview.toPath())));
+
+        // nothing acceptable: the result itself
+        mvc.perform(get("/download/" + NAME + "?preview").header(HttpHeaders.ACCEPT, "image/avif"))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        assertArrayEquals(bytes, Files.readAllBytes(storage.resolve(NAME).toPath()));
+    }
+}
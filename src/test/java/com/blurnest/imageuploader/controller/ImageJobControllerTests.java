@@ -0,0 +1,142 @@
+package com.blurnest.imageuploader.controller;
+
+import com.blurnest.imageuploader.service.ImageJobService;
+import com.blurnest.imageuploader.service.ImageProcessingService;
+import com.blurnest.imageuploader.service.TileLibraryService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// one worker and a one-slot queue, so a blocked job plus a queued one fill it
+@WebMvcTest(ImageController.class)
+@Import(ImageJobService.class)
+@TestPropertySource(properties = {"app.jobs.workers=1", "app.jobs.queue-capacity=1"})
+class ImageJobControllerTests {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockitoBean
+    ImageProcessingService processing;
+
+    @MockitoBean
+    TileLibraryService tileLibraries;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(processing.supports("compress")).thenReturn(true);
+        when(processing.produce(eq("compress"), anyList(), anyMap(), any())).thenAnswer(invocation -> {
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return "result.jpg";
+        });
+    }
+
+    @Test
+    void jobIsPolledUntilDone() throws Exception {
+        release.countDown();
+        String id = submit();
+
+        JsonNode status = waitFor(id, "DONE");
+        assertEquals("/download/result.jpg", status.get("imageUrl").asText());
+        mvc.perform(get("/api/images/jobs/unknown")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void fullQueueIsRefusedWith429() throws Exception {
+        String running = submit();
+        waitFor(running, "RUNNING"); // off the queue, so the next one takes the only slot
+        String queued = submit();
+
+        mvc.perform(multipart("/api/images/jobs").file(upload()).param("op", "compress"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"));
+
+        release.countDown();
+        waitFor(running, "DONE");
+        waitFor(queued, "DONE");
+    }
+
+    @Test
+    void operationsTheServiceDoesNotSupportAreRefused() throws Exception {
+        // mosaic is not registered in this context, so it is as unknown as a typo
+        for (String op : new String[]{"mosaic", "compres"}) {
+            mvc.perform(multipart("/api/images/jobs").file(upload()).param("op", op))
+                    .andExpect(status().isBadRequest());
+            mvc.perform(multipart("/api/images/process").file(upload()).param("op", op))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    void eventStreamEndsWithTheResult() throws Exception {
+        String id = submit();
+        MvcResult events = mvc.perform(get("/api/images/jobs/" + id + "/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        release.countDown();
+        String body = mvc.perform(asyncDispatch(events))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String last = body.substring(body.lastIndexOf("event:"));
+        assertTrue(last.startsWith("event:done"), body);
+        assertTrue(last.contains("\"imageUrl\":\"/download/result.jpg\""), body);
+    }
+
+    private String submit() throws Exception {
+        String body = mvc.perform(multipart("/api/images/jobs").file(upload()).param("op", "compress"))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+        return JSON.readTree(body).get("jobId").asText();
+    }
+
+    private JsonNode waitFor(String id, String state) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            String body = mvc.perform(get("/api/images/jobs/" + id))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            JsonNode status = JSON.readTree(body);
+            if (state.equals(status.get("status").asText()) || System.currentTimeMillis() > deadline) {
+                assertEquals(state, status.get("status").asText(), body);
+                return status;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private static MockMultipartFile upload() {
+        return new MockMultipartFile("image", "a.jpg", "image/jpeg", new byte[]{1, 2, 3});
+    }
+}
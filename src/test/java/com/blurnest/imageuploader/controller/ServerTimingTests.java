@@ -0,0 +1,75 @@
+package com.blurnest.imageuploader.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// a fresh computation every time, so every step is reported
+@SpringBootTest(properties = {"app.metrics.server-timing=true", "app.results.enabled=false"})
+@AutoConfigureMockMvc
+class ServerTimingTests {
+
+    @TempDir
+    static File root;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("app.storage.dir", root::getAbsolutePath);
+    }
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Test
+    void processReportsItsStepsInTheHeaderAndAsTimers() throws Exception {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream jpg = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", jpg);
+        long before = storeCount();
+
+        mvc.perform(multipart("/api/images/process")
+                        .file(new MockMultipartFile("image", "a.jpg", "image/jpeg", jpg.toByteArray()))
+                        .param("op", "compress"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Server-Timing", allOf(
+                        containsString("store;dur="),
+                        containsString("preview;dur="),
+                        matchesPattern(".*, total;dur=\\d+\\.\\d$"))));
+
+        Timer store = registry.find("image.step").tag("step", "store").timer();
+        assertNotNull(store);
+        assertTrue(store.count() > before);
+        assertNotNull(registry.find("image.step").tag("step", "preview").timer());
+        assertNotNull(registry.find("image.bytes.out").tag("op", "compress").counter());
+    }
+
+    private long storeCount() {
+        Timer timer = registry.find("image.step").tag("step", "store").timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
@@ -0,0 +1,98 @@
+package com.blurnest.imageuploader.model.image.codec;
+
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.BandedImage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeepZoomWriterTests {
+
+    @TempDir
+    Path dir;
+
+    private static BufferedImage noise(int w, int h) {
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(9);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    private static BufferedImage tile(Path files, int level, int col, int row) throws Exception {
+        return ImageIO.read(files.resolve(level + "/" + col + "_" + row + ".png").toFile());
+    }
+
+    @Test
+    void levelsHalveDownToOnePixelAndTilesCoverEachLevel() throws Exception {
+        BufferedImage image = noise(37, 21);
+        Path files = dir.resolve("a_files");
+        DeepZoomWriter writer = new DeepZoomWriter(files, 16, "png", EncoderSettings.DEFAULT, null);
+        writer.write(image);
+
+        assertEquals(6, DeepZoomWriter.maxLevel(37, 21));
+        for (int level = 6, w = 37, h = 21; level >= 0; level--, w = (w + 1) / 2, h = (h + 1) / 2) {
+            int cols = (w + 15) / 16, rows = (h + 15) / 16;
+            try (var listed = Files.list(files.resolve(Integer.toString(level)))) {
+                assertEquals(cols * rows, listed.count());
+            }
+            BufferedImage last = tile(files, level, cols - 1, rows - 1);
+            assertEquals(w - (cols - 1) * 16, last.getWidth());
+            assertEquals(h - (rows - 1) * 16, last.getHeight());
+        }
+        assertArrayEquals(pixels(image.getSubimage(16, 16, 16, 5)), pixels(tile(files, 6, 1, 1)));
+        assertTrue(writer.manifest().contains("<Size Width=\"37\" Height=\"21\"/>"));
+
+        // level 5 pixel (18, 10) averages the odd last column and row with themselves
+        int a = image.getRGB(36, 20);
+        assertEquals(a & 0xffffff, tile(files, 5, 1, 0).getRGB(2, 10) & 0xffffff);
+    }
+
+    @Test
+    void bandedImageGivesTheSameTilesRenderingEachBandOnce() throws Exception {
+        BufferedImage image = noise(300, 170);
+        new DeepZoomWriter(dir.resolve("whole"), 64, "png", EncoderSettings.DEFAULT, null).write(image);
+
+        AtomicInteger renders = new AtomicInteger();
+        BandedImage banded = new BandedImage(300, 170, 50, (y, h) -> {
+            renders.incrementAndGet();
+            BufferedImage band = new BufferedImage(300, h, BufferedImage.TYPE_INT_RGB);
+            band.setRGB(0, 0, 300, h, pixels(image.getSubimage(0, y, 300, h)), 0, 300);
+            return band;
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            new DeepZoomWriter(dir.resolve("banded"), 64, "png", EncoderSettings.DEFAULT, pool).write(banded);
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(4, renders.get());
+
+        for (int level = DeepZoomWriter.maxLevel(300, 170); level >= 0; level--) {
+            try (var listed = Files.list(dir.resolve("whole/" + level))) {
+                for (Path file : listed.toList()) {
+                    Path other = dir.resolve("banded/" + level + "/" + file.getFileName());
+                    assertArrayEquals(pixels(ImageIO.read(file.toFile())), pixels(ImageIO.read(other.toFile())));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.blurnest.imageuploader.model.image.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeflateCodecTests {
+
+    @Test
+    void roundTripRestoresTheOriginalBytes() throws Exception {
+        // larger than the 64 KB buffers, half noise and half runs so both paths of zlib are hit
+        Random random = new Random(11);
+        byte[] original = new byte[300_000];
+        random.nextBytes(original);
+        Arrays.fill(original, 150_000, original.length, (byte) 7);
+
+        for (int level = 0; level <= 9; level += 3) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            DeflateCodec.compress(new ByteArrayInputStream(original), compressed, "bmp", level);
+            assertTrue(DeflateCodec.isContainer(compressed.toByteArray()));
+
+            ByteArrayOutputStream restored = new ByteArrayOutputStream();
+            String format = DeflateCodec.decompress(new ByteArrayInputStream(compressed.toByteArray()), restored);
+            assertEquals("bmp", format);
+            assertArrayEquals(original, restored.toByteArray());
+        }
+    }
+
+    @Test
+    void truncatedOrCorruptContainersAreRejected() throws Exception {
+        byte[] original = new byte[10_000];
+        new Random(12).nextBytes(original);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        DeflateCodec.compress(new ByteArrayInputStream(original), compressed, "bmp", 6);
+        byte[] bytes = compressed.toByteArray();
+
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 10);
+        assertThrows(EOFException.class,
+                () -> DeflateCodec.decompress(new ByteArrayInputStream(truncated), new ByteArrayOutputStream()));
+
+        byte[] corrupt = bytes.clone();
+        corrupt[corrupt.length - 1] ^= 0x55; // Adler-32 trailer
+        assertThrows(IllegalArgumentException.class,
+                () -> DeflateCodec.decompress(new ByteArrayInputStream(corrupt), new ByteArrayOutputStream()));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> DeflateCodec.decompress(new ByteArrayInputStream(original), new ByteArrayOutputStream()));
+    }
+}
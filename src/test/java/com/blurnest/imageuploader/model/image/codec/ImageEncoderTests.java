@@ -0,0 +1,98 @@
+package com.blurnest.imageuploader.model.image.codec;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Element;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageEncoderTests {
+
+    @TempDir
+    Path dir;
+
+    private static BufferedImage noise(int w, int h) {
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(5);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+
+    @Test
+    void pngWrittenIntoTheFileChannelDecodesToTheSamePixels() throws Exception {
+        // incompressible and big enough for several IDAT chunks, so the writer seeks back repeatedly
+        BufferedImage image = noise(300, 200);
+        Path file = dir.resolve("out.bin");
+        byte[] prefix = "prefix".getBytes();
+        for (int level : new int[]{0, 4, 9}) {
+            String digest;
+            try (ChannelOutputStream out = ChannelOutputStream.createDigesting(file)) {
+                out.write(prefix); // output already in the stream stays in front of the image
+                ImageEncoder.write(image, "png", EncoderSettings.DEFAULT.withPngLevel(level), out);
+                out.write('!');
+                digest = out.digest();
+            }
+            byte[] bytes = Files.readAllBytes(file);
+            // chunk lengths patched in after the data are in the hash too
+            assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes)), digest);
+            assertArrayEquals(prefix, Arrays.copyOf(bytes, prefix.length));
+            assertEquals('!', bytes[bytes.length - 1]);
+
+            byte[] png = Arrays.copyOfRange(bytes, prefix.length, bytes.length - 1);
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png));
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    assertEquals(image.getRGB(x, y), decoded.getRGB(x, y), "level " + level + " at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void chromaSubsamplingFollowsTheSettings() throws Exception {
+        BufferedImage image = noise(64, 64);
+        EncoderSettings subsampled = EncoderSettings.DEFAULT.withJpegQuality(90);
+        assertEquals(2, lumaSamplingFactor(ImageEncoder.toBytes(image, "jpg", subsampled)));
+        assertEquals(1, lumaSamplingFactor(ImageEncoder.toBytes(image, "jpg", subsampled.withChromaSubsampling(false))));
+
+        byte[] low = ImageEncoder.toBytes(image, "jpg", EncoderSettings.DEFAULT.withJpegQuality(10));
+        byte[] high = ImageEncoder.toBytes(image, "jpg", EncoderSettings.DEFAULT.withJpegQuality(95));
+        assertTrue(low.length < high.length);
+    }
+
+    @Test
+    void settingsOutOfRangeAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> EncoderSettings.DEFAULT.withJpegQuality(101));
+        assertThrows(IllegalArgumentException.class, () -> EncoderSettings.DEFAULT.withPngLevel(-1));
+    }
+
+    private static int lumaSamplingFactor(byte[] jpeg) throws Exception {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(jpeg))) {
+            ImageReader reader = ImageIO.getImageReaders(in).next();
+            reader.setInput(in);
+            Element tree = (Element) reader.getImageMetadata(0).getAsTree("javax_imageio_jpeg_image_1.0");
+            Element luma = (Element) tree.getElementsByTagName("componentSpec").item(0);
+            reader.dispose();
+            return Integer.parseInt(luma.getAttribute("HsamplingFactor"));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.blurnest.imageuploader.model.image.codec;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ImagePreviewTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void previewFitsTheSizeAndKeepsAspectAndColors() throws Exception {
+        // left half red, right half blue
+        BufferedImage image = new BufferedImage(3000, 1000, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 1000; y++) {
+            for (int x = 0; x < 3000; x++) {
+                image.setRGB(x, y, x < 1500 ? 0xff0000 : 0x0000ff);
+            }
+        }
+        File file = dir.resolve("a.png").toFile();
+        ImageIO.write(image, "png", file);
+
+        BufferedImage preview = ImagePreview.read(file, 300);
+        assertEquals(300, preview.getWidth());
+        assertEquals(100, preview.getHeight());
+        assertEquals(0xff0000, preview.getRGB(10, 50) & 0xffffff);
+        assertEquals(0x0000ff, preview.getRGB(290, 50) & 0xffffff);
+
+        // smaller images are not enlarged
+        assertEquals(3000, ImagePreview.read(file, 4000).getWidth());
+    }
+
+    @Test
+    void notAnImage() throws Exception {
+        Path file = dir.resolve("a.dzi");
+        Files.writeString(file, "<Image/>");
+        assertNull(ImagePreview.read(file.toFile(), 100));
+    }
+}
@@ -0,0 +1,215 @@
+package com.blurnest.imageuploader.model.image.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MosaicModelEngineTests {
+
+    @TempDir
+    File workDir;
+
+    // a smooth gradient, so that neighbouring cells want different tiles
+    static byte[] target(int w, int h) throws IOException {
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                image.setRGB(x, y, (x * 255 / w) << 16 | (y * 255 / h) << 8 | ((x + y) * 255 / (w + h)));
+            }
+        }
+        return png(image);
+    }
+
+    // solid tiles spread over the color cube, each with a dark corner so that tiles are not flat
+    static List<ByteArrayResource> tiles(int n) throws IOException {
+        List<ByteArrayResource> tiles = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            BufferedImage tile = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+            int rgb = (i * 97 % 256) << 16 | (i * 53 % 256) << 8 | (i * 29 % 256);
+            for (int y = 0; y < 16; y++) {
+                for (int x = 0; x < 16; x++) {
+                    tile.setRGB(x, y, x < 4 && y < 4 ? 0 : rgb);
+                }
+            }
+            tiles.add(new ByteArrayResource(png(tile)));
+        }
+        return tiles;
+    }
+
+    static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private MosaicModelEngine.Builder engine() {
+        return MosaicModelEngine.builder().tileSize(10, 10).workDir(workDir);
+    }
+
+    static BufferedImage decode(byte[] bytes) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(bytes));
+    }
+
+    // the mosaic's pixels as the engine hands them to the writer, before any encoding
+    private static int[] pixels(MosaicModelEngine engine, byte[] target, List<ByteArrayResource> tiles,
+                                boolean whole) throws IOException {
+        BufferedImage[] captured = new BufferedImage[1];
+        engine.preprocess(new ByteArrayResource(target), tiles, (mosaic, isWhole) -> {
+            assertEquals(whole, isWhole);
+            captured[0] = new BufferedImage(mosaic.getWidth(), mosaic.getHeight(), BufferedImage.TYPE_INT_RGB);
+            mosaic.copyData(captured[0].getRaster());
+            return "raw";
+        });
+        return ((DataBufferInt) captured[0].getRaster().getDataBuffer()).getData();
+    }
+
+    private File[] atlases() {
+        File[] files = new File(workDir, "atlas").listFiles();
+        return files == null ? new File[0] : files;
+    }
+
+    @Test
+    void onlyRegisteredLibrariesAreWrittenAsAtlases() throws Exception {
+        String id;
+        try (MosaicModelEngine engine = engine().build()) {
+            engine.preprocess(new ByteArrayResource(target(40, 30)), tiles(8), new ByteArrayOutputStream());
+            assertEquals(0, atlases().length);
+
+            // the same tiles again: the heap copy may stay cached, the atlas is written regardless
+            id = engine.registerLibrary(tiles(8));
+            assertEquals(1, atlases().length);
+            assertTrue(atlases()[0].length() > 8 * 10 * 10);
+            assertEquals(id, engine.registerLibrary(tiles(8)));
+            assertEquals(1, atlases().length);
+        }
+        // a new engine (a restart) finds the registered library on disk
+        try (MosaicModelEngine engine = engine().build()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            engine.preprocess(new ByteArrayResource(target(40, 30)), id, out);
+            assertEquals(40, decode(out.toByteArray()).getWidth());
+        }
+    }
+
+    @Test
+    void rendersTheTargetAsJpgOfTheSameSize() throws Exception {
+        byte[] target = target(60, 40);
+        try (MosaicModelEngine engine = engine().build()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals("jpg", engine.preprocess(new ByteArrayResource(target), tiles(8), out));
+            byte[] jpg = out.toByteArray();
+            assertEquals((byte) 0xFF, jpg[0]);
+            assertEquals((byte) 0xD8, jpg[1]);
+            BufferedImage mosaic = decode(jpg);
+            assertEquals(60, mosaic.getWidth());
+            assertEquals(40, mosaic.getHeight());
+
+            // the byte[][] entry point streams the same way
+            byte[][] inputs = new byte[9][];
+            inputs[0] = target;
+            for (int i = 0; i < 8; i++) {
+                inputs[i + 1] = tiles(8).get(i).getByteArray();
+            }
+            assertArrayEquals(jpg, engine.preprocess_test(inputs));
+        }
+    }
+
+    @Test
+    void registeredLibraryRendersLikeUploadedTiles() throws Exception {
+        byte[] target = target(60, 40);
+        try (MosaicModelEngine engine = engine().build()) {
+            ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+            engine.preprocess(new ByteArrayResource(target), tiles(8), uploaded);
+
+            String id = engine.registerLibrary(tiles(8));
+            ByteArrayOutputStream registered = new ByteArrayOutputStream();
+            assertEquals("jpg", engine.preprocess(new ByteArrayResource(target), id, registered));
+            assertArrayEquals(uploaded.toByteArray(), registered.toByteArray());
+            assertArrayEquals(uploaded.toByteArray(), engine.preprocess(target, id));
+        }
+    }
+
+    @Test
+    void unknownLibraryIsRefused() throws Exception {
+        try (MosaicModelEngine engine = engine().build()) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> engine.preprocess(
+                    new ByteArrayResource(target(20, 20)), "0".repeat(64), new ByteArrayOutputStream()));
+            assertTrue(e.getMessage().startsWith("Unknown or expired tile library"), e.getMessage());
+        }
+        // the atlas of a registered library is gone, e.g. cleaned from the work dir before a restart
+        String id;
+        try (MosaicModelEngine engine = engine().build()) {
+            id = engine.registerLibrary(tiles(4));
+        }
+        for (File atlas : atlases()) {
+            assertTrue(atlas.delete());
+        }
+        try (MosaicModelEngine engine = engine().build()) {
+            assertThrows(IllegalArgumentException.class, () -> engine.preprocess(target(20, 20), id));
+        }
+    }
+
+    @Test
+    void stripedRenderMatchesTheWholeFrame() throws Exception {
+        // 9 tile rows, 2 per band; with the quadtree 4, one block of its largest cells
+        byte[] target = target(120, 90);
+        List<ByteArrayResource> tiles = tiles(12);
+        int[] grid = null;
+        for (int quadtree : new int[]{1, 4}) {
+            try (MosaicModelEngine whole = engine().quadtree(quadtree, 40).build();
+                 MosaicModelEngine striped = engine().quadtree(quadtree, 40).maxFramePixels(120 * 10 * 2).build()) {
+                int[] expected = pixels(whole, target, tiles, true);
+                assertEquals(120 * 90, expected.length);
+                if (grid == null) {
+                    grid = expected;
+                } else {
+                    assertFalse(Arrays.equals(grid, expected), "the quadtree merged no cells");
+                }
+                assertArrayEquals(expected, pixels(striped, target, tiles, false), "quadtree " + quadtree);
+
+                // and what the encoder makes of the bands is lossless
+                ByteArrayOutputStream png = new ByteArrayOutputStream();
+                assertEquals("png", striped.preprocess(new ByteArrayResource(target), tiles, png));
+                int[] decoded = decode(png.toByteArray()).getRGB(0, 0, 120, 90, null, 0, 120);
+                assertArrayEquals(expected, Arrays.stream(decoded).map(rgb -> rgb & 0xffffff).toArray());
+            }
+        }
+    }
+
+    @Test
+    void partialEdgeCellsKeepTheTargetSize() throws Exception {
+        // neither side a multiple of the 10x10 tiles
+        byte[] target = target(57, 43);
+        List<ByteArrayResource> tiles = tiles(12);
+        for (int quadtree : new int[]{1, 2, 8}) {
+            try (MosaicModelEngine whole = engine().quadtree(quadtree, 40).build();
+                 MosaicModelEngine striped = engine().quadtree(quadtree, 40).maxFramePixels(57 * 10).build()) {
+                ByteArrayOutputStream jpg = new ByteArrayOutputStream();
+                assertEquals("jpg", whole.preprocess(new ByteArrayResource(target), tiles, jpg));
+                BufferedImage mosaic = decode(jpg.toByteArray());
+                assertEquals(57, mosaic.getWidth(), "quadtree " + quadtree);
+                assertEquals(43, mosaic.getHeight(), "quadtree " + quadtree);
+
+                int[] expected = pixels(whole, target, tiles, true);
+                assertEquals(57 * 43, expected.length);
+                assertArrayEquals(expected, pixels(striped, target, tiles, false), "quadtree " + quadtree);
+            }
+        }
+    }
+}
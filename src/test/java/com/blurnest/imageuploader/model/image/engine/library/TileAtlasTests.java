@@ -0,0 +1,96 @@
+package com.blurnest.imageuploader.model.image.engine.library;
+
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TileAtlasTests {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void mappedAtlasReadsBackTheSameTilesAsTheHeapLibrary() throws Exception {
+        Random random = new Random(9);
+        List<BufferedImage> images = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            BufferedImage image = new BufferedImage(30 + random.nextInt(40), 20 + random.nextInt(40),
+                    i % 2 == 0 ? BufferedImage.TYPE_3BYTE_BGR : BufferedImage.TYPE_INT_ARGB);
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    image.setRGB(x, y, 0xff000000 | random.nextInt(0x1000000));
+                }
+            }
+            images.add(image);
+        }
+
+        File file = TileAtlas.fileFor(dir, "lib", 8, 6);
+        assertNull(TileAtlas.fingerprint(file));
+        try (TileAtlas.Writer writer = new TileAtlas.Writer(file, 8, 6, "fp-1")) {
+            for (BufferedImage image : images) {
+                writer.add(image);
+            }
+            writer.commit();
+        }
+        assertEquals("fp-1", TileAtlas.fingerprint(file));
+
+        TileLibrary heap = HeapTileLibrary.of("lib", images, 8, 6, ColorIndex.LINEAR);
+        TileLibrary mapped = TileAtlas.open(file, "lib", ColorIndex.LINEAR);
+        assertEquals(heap.size(), mapped.size());
+        assertArrayEquals(heap.getColors(), mapped.getColors());
+
+        int[] expected = new int[8 * 6];
+        int[] actual = new int[8 * 6];
+        for (int i = 0; i < heap.size(); i++) {
+            heap.readTile(i, expected, 0);
+            mapped.readTile(i, actual, 0);
+            assertArrayEquals(expected, actual, "tile " + i);
+        }
+    }
+
+    @Test
+    void tilesThatAreSubImagesAreCopiedThroughTheirRaster() throws Exception {
+        // already 8x6 TYPE_INT_RGB, so used as is, but rows are 20 ints apart and start at (5, 3)
+        BufferedImage sheet = new BufferedImage(20, 12, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < sheet.getHeight(); y++) {
+            for (int x = 0; x < sheet.getWidth(); x++) {
+                sheet.setRGB(x, y, x << 16 | y << 8 | 0x80);
+            }
+        }
+        BufferedImage first = sheet.getSubimage(5, 3, 8, 6);
+        BufferedImage second = sheet.getSubimage(12, 6, 8, 6);
+        List<BufferedImage> images = List.of(first, second);
+
+        File file = TileAtlas.fileFor(dir, "sub", 8, 6);
+        try (TileAtlas.Writer writer = new TileAtlas.Writer(file, 8, 6, "fp")) {
+            for (BufferedImage image : images) {
+                writer.add(image);
+            }
+            writer.commit();
+        }
+        TileLibrary heap = HeapTileLibrary.of("sub", images, 8, 6, ColorIndex.LINEAR);
+        TileLibrary mapped = TileAtlas.open(file, "sub", ColorIndex.LINEAR);
+
+        int[] pixels = new int[8 * 6];
+        for (int i = 0; i < images.size(); i++) {
+            int[] expected = images.get(i).getRGB(0, 0, 8, 6, null, 0, 8);
+            for (int p = 0; p < expected.length; p++) {
+                expected[p] &= 0xffffff;
+            }
+            heap.readTile(i, pixels, 0);
+            assertArrayEquals(expected, pixels, "heap tile " + i);
+            mapped.readTile(i, pixels, 0);
+            assertArrayEquals(expected, pixels, "atlas tile " + i);
+        }
+    }
+}
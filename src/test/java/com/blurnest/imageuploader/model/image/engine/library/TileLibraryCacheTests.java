@@ -0,0 +1,129 @@
+package com.blurnest.imageuploader.model.image.engine.library;
+
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorIndex;
+import com.blurnest.imageuploader.model.image.engine.mosaicUtils.ColorMetric;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TileLibraryCacheTests {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void librarySizeCountsPixelsAndGrowsWithDescriptors() {
+        TileLibrary library = library("a", 10);
+        assertTrue(library.sizeInBytes() >= 10 * 4 * 4 * Integer.BYTES);
+
+        long before = library.sizeInBytes();
+        library.getDescriptors(2, ColorMetric.RGB);
+        assertTrue(library.sizeInBytes() > before);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedOnceOverBudgetAndKeepsItsTotal() {
+        TileLibrary a = library("a", 10);
+        TileLibrary b = library("b", 10);
+        TileLibrary c = library("c", 10);
+        // room for two of them
+        TileLibraryCache cache = new TileLibraryCache(a.sizeInBytes() + b.sizeInBytes() + c.sizeInBytes() - 1);
+
+        assertSame(a, cache.getOrLoad("a", () -> a));
+        assertSame(b, cache.getOrLoad("b", () -> b));
+        assertEquals(a.sizeInBytes() + b.sizeInBytes(), cache.sizeInBytes());
+
+        cache.get("a"); // b is now the least recently used
+        cache.getOrLoad("c", () -> c);
+        assertSame(a, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertSame(c, cache.get("c"));
+        assertEquals(a.sizeInBytes() + c.sizeInBytes(), cache.sizeInBytes());
+
+        cache.invalidate("a");
+        cache.invalidate("a");
+        assertEquals(c.sizeInBytes(), cache.sizeInBytes());
+    }
+
+    @Test
+    void keepsALibraryLargerThanTheWholeBudget() {
+        TileLibraryCache cache = new TileLibraryCache(1);
+        TileLibrary a = library("a", 10);
+        TileLibrary b = library("b", 10);
+        cache.getOrLoad("a", () -> a);
+        cache.getOrLoad("b", () -> b);
+
+        assertNull(cache.get("a"));
+        assertSame(b, cache.get("b"));
+        assertEquals(b.sizeInBytes(), cache.sizeInBytes());
+    }
+
+    @Test
+    void reloadsAFolderLibraryWhenItsFilesChange() throws Exception {
+        File folder = new File(dir, "tiles");
+        assertTrue(folder.mkdir());
+        for (int i = 0; i < 3; i++) {
+            ImageIO.write(image(i), "png", new File(folder, "tile" + i + ".png"));
+        }
+        TileLibraryCache cache = new TileLibraryCache(Long.MAX_VALUE);
+        AtomicInteger loads = new AtomicInteger();
+        List<String> fingerprints = new ArrayList<>();
+
+        TileLibrary first = cache.getOrLoadFolder(folder, fp -> {
+            loads.incrementAndGet();
+            fingerprints.add(fp);
+            return library("first", 3);
+        });
+        assertSame(first, cache.getOrLoadFolder(folder, fp -> library("unused", 1)));
+        assertEquals(1, loads.get());
+
+        ImageIO.write(image(3), "png", new File(folder, "tile3.png"));
+        TileLibrary second = cache.getOrLoadFolder(folder, fp -> {
+            loads.incrementAndGet();
+            fingerprints.add(fp);
+            return library("second", 4);
+        });
+        assertEquals(2, loads.get());
+        assertNotEquals(fingerprints.get(0), fingerprints.get(1));
+        assertSame(second, cache.get(TileLibraryCache.folderId(folder)));
+        assertEquals(second.sizeInBytes(), cache.sizeInBytes());
+    }
+
+    @Test
+    void missingFolderHasItsOwnFingerprint() {
+        assertNotNull(TileLibraryCache.folderFingerprint(new File(dir, "absent")));
+        assertNotEquals(TileLibraryCache.folderFingerprint(dir),
+                TileLibraryCache.folderFingerprint(new File(dir, "absent")));
+    }
+
+    private static TileLibrary library(String id, int tiles) {
+        List<BufferedImage> images = new ArrayList<>();
+        for (int i = 0; i < tiles; i++) {
+            images.add(image(i));
+        }
+        return HeapTileLibrary.of(id, images, 4, 4, ColorIndex.LINEAR);
+    }
+
+    private static BufferedImage image(int seed) {
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                image.setRGB(x, y, (seed * 40 + x * 16) << 16 | (y * 30) << 8 | seed * 20);
+            }
+        }
+        return image;
+    }
+}
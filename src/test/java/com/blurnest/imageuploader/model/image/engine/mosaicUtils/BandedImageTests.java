@@ -0,0 +1,58 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BandedImageTests {
+
+    @Test
+    void pngWrittenBandByBandMatchesTheFullImage() throws Exception {
+        BufferedImage full = randomImage(new Random(9), 37, 53);
+
+        // source regions read back the same rows as the fully decoded image
+        ByteArrayOutputStream source = new ByteArrayOutputStream();
+        ImageIO.write(full, "png", source);
+        AtomicInteger renders = new AtomicInteger();
+        BandedImage banded;
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        try (BandReader reader = BandReader.open(new ByteArrayInputStream(source.toByteArray()))) {
+            assertEquals(37, reader.getWidth());
+            assertEquals(53, reader.getHeight());
+            banded = new BandedImage(37, 53, 10, (y, h) -> {
+                renders.incrementAndGet();
+                BufferedImage band = new BufferedImage(37, h, BufferedImage.TYPE_INT_RGB);
+                band.getGraphics().drawImage(reader.read(0, y, 37, h), 0, 0, null);
+                return band;
+            });
+            ImageIO.write(banded, "png", written);
+        }
+
+        // rows are pulled in order, so every band is rendered exactly once
+        assertEquals(banded.getNumYTiles(), renders.get());
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(written.toByteArray()));
+        assertArrayEquals(pixels(full), pixels(decoded));
+    }
+
+    private static BufferedImage randomImage(Random random, int w, int h) {
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+}
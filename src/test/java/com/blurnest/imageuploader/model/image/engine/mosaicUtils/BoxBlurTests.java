@@ -0,0 +1,60 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BoxBlurTests {
+
+    @Test
+    void separableBlurIsTheRoundedMeanOfTheClampedWindow() {
+        Random random = new Random(3);
+        int width = 13, height = 9, stride = 17, offset = 5;
+        int[] pixels = random.ints(offset + stride * height, 0, 0x1000000).toArray();
+
+        for (int radius = 1; radius <= 4; radius++) {
+            int[] blurred = pixels.clone();
+            new BoxBlur(width, height, radius).apply(blurred, offset, stride);
+
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int i = offset + y * stride + x;
+                    assertEquals(naiveMean(pixels, offset, stride, width, height, x, y, radius), blurred[i],
+                            "radius " + radius + " at " + x + "," + y);
+                }
+                // pixels outside the block are left alone
+                for (int x = width; x < stride && offset + y * stride + x < pixels.length; x++) {
+                    assertEquals(pixels[offset + y * stride + x], blurred[offset + y * stride + x]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void radiusZeroLeavesPixelsUnchanged() {
+        int[] pixels = new Random(4).ints(20, 0, 0x1000000).toArray();
+        int[] copy = pixels.clone();
+        new BoxBlur(5, 4, 0).apply(copy, 0, 5);
+        assertArrayEquals(pixels, copy);
+    }
+
+    private static int naiveMean(int[] pixels, int offset, int stride, int width, int height,
+                                 int x, int y, int radius) {
+        int red = 0, green = 0, blue = 0;
+        for (int dy = -radius; dy <= radius; dy++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                int sx = Math.max(0, Math.min(width - 1, x + dx));
+                int sy = Math.max(0, Math.min(height - 1, y + dy));
+                int p = pixels[offset + sy * stride + sx];
+                red += (p >>> 16) & 0xff;
+                green += (p >>> 8) & 0xff;
+                blue += p & 0xff;
+            }
+        }
+        int area = (2 * radius + 1) * (2 * radius + 1);
+        return (red + area / 2) / area << 16 | (green + area / 2) / area << 8 | (blue + area / 2) / area;
+    }
+}
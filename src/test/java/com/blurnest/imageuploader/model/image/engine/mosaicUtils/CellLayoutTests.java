@@ -0,0 +1,62 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CellLayoutTests {
+
+    // every pixel of the image in exactly one cell
+    private static void assertCovers(CellLayout layout) {
+        int[] hits = new int[layout.getWidth() * layout.getHeight()];
+        for (int t = 0; t < layout.size(); t++) {
+            for (int y = layout.getY(t); y < layout.getY(t) + layout.getCellHeight(t); y++) {
+                for (int x = layout.getX(t); x < layout.getX(t) + layout.getCellWidth(t); x++) {
+                    hits[y * layout.getWidth() + x]++;
+                }
+            }
+        }
+        for (int hit : hits) {
+            assertEquals(1, hit);
+        }
+    }
+
+    @Test
+    void gridCoversTheRemainderWithPartialEdgeCells() {
+        CellLayout layout = CellLayout.grid(27, 15, 8, 6);
+        assertEquals(4, layout.getCols());
+        assertEquals(12, layout.size());
+        assertEquals(3, layout.getCellWidth(3));
+        assertEquals(3, layout.getCellHeight(11));
+        assertCovers(layout);
+        assertCovers(CellLayout.grid(5, 4, 8, 6)); // smaller than one tile
+    }
+
+    @Test
+    void quadtreeMergesFlatAreasAndKeepsDetailedOnesFine() {
+        // left half flat grey, right half noise; 100x70 leaves partial edge cells
+        BufferedImage image = new BufferedImage(100, 70, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(3);
+        for (int y = 0; y < 70; y++) {
+            for (int x = 0; x < 100; x++) {
+                image.setRGB(x, y, x < 48 ? 0x808080 : random.nextInt(0x1000000));
+            }
+        }
+        CellLayout layout = CellLayout.quadtree(IntegralImage.of(image), 6, 5, 8, 4);
+        assertCovers(layout);
+
+        int largest = 0;
+        for (int t = 0; t < layout.size(); t++) {
+            largest = Math.max(largest, layout.getScale(t));
+            if (layout.getX(t) >= 48) {
+                assertEquals(1, layout.getScale(t));
+            }
+        }
+        assertEquals(8, largest);
+        assertTrue(layout.size() < CellLayout.grid(100, 70, 6, 5).size());
+    }
+}
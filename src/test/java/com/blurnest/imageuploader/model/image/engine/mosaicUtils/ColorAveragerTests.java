@@ -0,0 +1,48 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ColorAveragerTests {
+
+    private static final int[] TYPES = {
+            BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_BGR,
+            BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_USHORT_565_RGB
+    };
+
+    @Test
+    void matchesGetRgbAverageForAllLayoutsAndSubimages() {
+        Random random = new Random(7);
+        for (int type : TYPES) {
+            BufferedImage image = new BufferedImage(37, 23, type);
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    image.setRGB(x, y, 0xff000000 | random.nextInt(0x1000000));
+                }
+            }
+            assertEquals(referenceAverage(image), ColorAverager.averageRGB(image), "type " + type);
+
+            BufferedImage sub = image.getSubimage(5, 3, 10, 10);
+            assertEquals(referenceAverage(sub), ColorAverager.averageRGB(sub), "subimage of type " + type);
+        }
+    }
+
+    // the original ColorUtils.getAverageColor loop
+    private static int referenceAverage(BufferedImage image) {
+        long r = 0, g = 0, b = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int p = image.getRGB(x, y);
+                r += (p >> 16) & 0xff;
+                g += (p >> 8) & 0xff;
+                b += p & 0xff;
+            }
+        }
+        long n = (long) image.getWidth() * image.getHeight();
+        return (int) ((r / n) << 16 | (g / n) << 8 | (b / n));
+    }
+}
@@ -0,0 +1,153 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColorIndexTests {
+
+    @Test
+    void kdTreeReturnsSameMatchesAsLinearScan() {
+        Random random = new Random(3);
+        for (int size : new int[]{1, 2, 7, 100, 2000}) {
+            int[] library = new int[size];
+            for (int i = 0; i < size; i++) {
+                // few distinct values so that ties and duplicates are common
+                library[i] = random.nextInt(4) == 0 ? 0x808080 : random.nextInt(8) * 0x202020 + random.nextInt(3);
+            }
+            ColorIndex linear = ColorIndex.LINEAR.build(library);
+            ColorIndex kdTree = ColorIndex.KD_TREE.build(library);
+
+            for (int q = 0; q < 5000; q++) {
+                int rgb = random.nextInt(0x1000000);
+                assertEquals(linear.nearest(rgb), kdTree.nearest(rgb), "library size " + size);
+            }
+        }
+    }
+
+    @Test
+    void selectedKernelsAgreeWithTheScalarOnes() {
+        // the vector kernels when running with -Pvector, otherwise trivially the scalar ones
+        ColorKernels kernels = ColorKernels.current();
+        Random random = new Random(12);
+        for (int size : new int[]{0, 1, 5, 16, 17, 100, 1023}) {
+            int[][] channels = new int[3][size];
+            for (int[] channel : channels) {
+                for (int i = 0; i < size; i++) {
+                    channel[i] = random.nextInt(4) * 64 + random.nextInt(2); // many ties
+                }
+            }
+            for (int q = 0; q < 500; q++) {
+                int rgb = random.nextInt(0x1000000);
+                assertEquals(ColorKernels.SCALAR.nearest(channels[0], channels[1], channels[2], size, rgb),
+                        kernels.nearest(channels[0], channels[1], channels[2], size, rgb), kernels.name());
+            }
+            int[] pixels = random.ints(size + 3, 0, 0x1000000).toArray();
+            long[] expected = new long[3], actual = new long[3];
+            ColorKernels.SCALAR.sumPacked(pixels, 3, pixels.length, 16, 0, expected);
+            kernels.sumPacked(pixels, 3, pixels.length, 16, 0, actual);
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void nearestKMatchesTheSortedLinearScan() {
+        Random random = new Random(6);
+        int[] library = new int[300];
+        for (int i = 0; i < library.length; i++) {
+            library[i] = random.nextInt(3) == 0 ? 0x808080 : random.nextInt(8) * 0x202020 + random.nextInt(3);
+        }
+        for (ColorMetric metric : new ColorMetric[]{ColorMetric.RGB, ColorMetric.REDMEAN, ColorMetric.LAB_DE76}) {
+            ColorIndex linear = metric.indexFactory(ColorIndex.LINEAR).build(library);
+            ColorIndex tree = metric.indexFactory(ColorIndex.KD_TREE).build(library);
+            int[] expected = new int[8], actual = new int[8];
+            for (int q = 0; q < 1000; q++) {
+                int rgb = random.nextInt(0x1000000);
+                assertEquals(8, linear.nearest(rgb, 8, expected));
+                assertEquals(8, tree.nearest(rgb, 8, actual));
+                assertArrayEquals(expected, actual, metric + " " + Integer.toHexString(rgb));
+                assertEquals(linear.nearest(rgb), actual[0]);
+            }
+            assertEquals(1, metric.indexFactory(ColorIndex.KD_TREE).build(new int[]{0x102030}).nearest(0, 8, actual));
+        }
+    }
+
+    @Test
+    void filteredNearestMatchesTheLinearScan() {
+        Random random = new Random(11);
+        int[] library = random.ints(400, 0, 0x1000000).toArray();
+        IntPredicate everyThird = i -> i % 3 == 0;
+        for (ColorMetric metric : new ColorMetric[]{ColorMetric.RGB, ColorMetric.REDMEAN, ColorMetric.LAB_DE76}) {
+            ColorIndex linear = metric.indexFactory(ColorIndex.LINEAR).build(library);
+            ColorIndex tree = metric.indexFactory(ColorIndex.KD_TREE).build(library);
+            for (int q = 0; q < 2000; q++) {
+                int rgb = random.nextInt(0x1000000);
+                int expected = linear.nearest(rgb, everyThird);
+                assertEquals(0, expected % 3);
+                assertEquals(expected, tree.nearest(rgb, everyThird), metric.toString());
+            }
+            assertEquals(-1, tree.nearest(0, i -> false));
+        }
+    }
+
+    @Test
+    void metricTreesReturnSameMatchesAsLinearScan() {
+        Random random = new Random(4);
+        for (ColorMetric metric : new ColorMetric[]{ColorMetric.REDMEAN, ColorMetric.LAB_DE76}) {
+            for (int size : new int[]{1, 7, 500}) {
+                int[] library = new int[size];
+                for (int i = 0; i < size; i++) {
+                    library[i] = random.nextInt(3) == 0 ? 0x808080 : random.nextInt(0x1000000);
+                }
+                ColorIndex linear = metric.indexFactory(ColorIndex.LINEAR).build(library);
+                ColorIndex tree = metric.indexFactory(ColorIndex.KD_TREE).build(library);
+
+                for (int q = 0; q < 3000; q++) {
+                    int rgb = random.nextInt(0x1000000);
+                    assertEquals(linear.nearest(rgb), tree.nearest(rgb), metric + ", library size " + size);
+                }
+            }
+        }
+    }
+
+    @Test
+    void ciede2000MatchesPublishedTestData() {
+        // pairs from Sharma, Wu and Dalal's CIEDE2000 test data
+        double[][] pairs = {
+                {50.0000, 2.6772, -79.7751, 50.0000, 0.0000, -82.7485, 2.0425},
+                {50.0000, -1.3802, -84.2814, 50.0000, 0.0000, -82.7485, 1.0000},
+                {50.0000, 2.4900, -0.0010, 50.0000, -2.4900, 0.0009, 7.1792},
+                {50.0000, 2.4900, -0.0010, 50.0000, -2.4900, 0.0011, 7.2195},
+                {50.0000, 2.5000, 0.0000, 73.0000, 25.0000, -18.0000, 27.1492},
+                {50.0000, 0.0000, 0.0000, 50.0000, -1.0000, 2.0000, 2.3669},
+                {60.2574, -34.0099, 36.2677, 60.4626, -34.1751, 39.4387, 1.2644},
+                {22.7233, 20.0904, -46.6940, 23.0331, 14.9730, -42.5619, 2.0373},
+                {90.9257, -0.5406, -0.9208, 88.6381, -0.8985, -0.7239, 1.5381},
+        };
+        for (double[] p : pairs) {
+            assertEquals(p[6], LabColor.deltaE2000(p[0], p[1], p[2], p[3], p[4], p[5]), 1e-4);
+        }
+    }
+
+    @Test
+    void ciede2000TreeAgreesWithTheScanOnMostLookups() {
+        // the tree re-ranks CIE76 candidates, so it may miss a far-off CIEDE2000 optimum now and then
+        Random random = new Random(5);
+        int[] library = random.ints(1000, 0, 0x1000000).toArray();
+        ColorIndex linear = ColorMetric.CIEDE2000.indexFactory(ColorIndex.LINEAR).build(library);
+        ColorIndex tree = ColorMetric.CIEDE2000.indexFactory(ColorIndex.KD_TREE).build(library);
+        int same = 0;
+        for (int q = 0; q < 2000; q++) {
+            int rgb = random.nextInt(0x1000000);
+            if (linear.nearest(rgb) == tree.nearest(rgb)) {
+                same++;
+            }
+        }
+        assertTrue(same >= 1900, same + " of 2000");
+    }
+}
@@ -0,0 +1,49 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IntegralImageTests {
+
+    @Test
+    void meanMatchesDirectAverageForRandomRectangles() {
+        Random random = new Random(11);
+        BufferedImage image = new BufferedImage(61, 47, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+
+        IntegralImage table = IntegralImage.of(image);
+        for (int i = 0; i < 500; i++) {
+            int x = random.nextInt(image.getWidth());
+            int y = random.nextInt(image.getHeight());
+            int w = 1 + random.nextInt(image.getWidth() - x);
+            int h = 1 + random.nextInt(image.getHeight() - y);
+            assertEquals(ColorAverager.averageRGB(image, x, y, w, h), table.meanRGB(x, y, w, h));
+        }
+    }
+
+    @Test
+    void tileColorsCoverTheSameTilesAsSplitImage() {
+        BufferedImage image = new BufferedImage(35, 22, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, (x * 7) << 16 | (y * 11) << 8 | (x + y));
+            }
+        }
+
+        // the full tiles only, as splitImage has no partial ones
+        int[] fromTable = ImageSplitter.tileColors(IntegralImage.of(image), CellLayout.grid(30, 20, 10, 10));
+        int[] fromSplit = ImageMatcher.averageColors(ImageSplitter.splitImage(image, 10, 10));
+        assertEquals(fromSplit.length, fromTable.length);
+        for (int i = 0; i < fromSplit.length; i++) {
+            assertEquals(fromSplit[i], fromTable[i]);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class MosaicBuilderTests {
+
+    private static ExecutorService pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void parallelMatchAndBuildArePixelIdenticalToSequential() {
+        Random random = new Random(5);
+        List<BufferedImage> library = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            library.add(randomImage(random, 8, 6));
+        }
+        int[] targetColors = random.ints(23 * 17, 0, 0x1000000).toArray();
+        ColorIndex index = ColorIndex.KD_TREE.build(ImageMatcher.averageColors(library));
+
+        int[] sequentialMatches = ImageMatcher.matchColors(targetColors, index);
+        int[] parallelMatches = ImageMatcher.matchColors(targetColors, index, pool, 7);
+        assertArrayEquals(sequentialMatches, parallelMatches);
+
+        TileSource source = source(library.stream().map(MosaicBuilderTests::pixels).toArray(int[][]::new));
+        CellLayout layout = CellLayout.grid(23 * 8, 17 * 6, 8, 6);
+        BufferedImage sequential = MosaicBuilder.buildMosaic(sequentialMatches,
+                new BlurredTileSource(source, BoxBlur.DEFAULT_RADIUS), layout, null, 1);
+        BufferedImage parallel = MosaicBuilder.buildMosaic(parallelMatches,
+                new BlurredTileSource(source, BoxBlur.DEFAULT_RADIUS), layout, pool, 7);
+        assertArrayEquals(pixels(sequential), pixels(parallel));
+    }
+
+    @Test
+    void rasterCopyIsPixelIdenticalToDrawImage() {
+        Random random = new Random(13);
+        int[][] library = new int[9][];
+        for (int t = 0; t < library.length; t++) {
+            library[t] = random.ints(8 * 6, 0, 0x1000000).toArray();
+        }
+        int[] matches = random.ints(11 * 7, 0, library.length).toArray();
+
+        BufferedImage expected = new BufferedImage(11 * 8, 7 * 6, BufferedImage.TYPE_INT_RGB);
+        BufferedImage tile = new BufferedImage(8, 6, BufferedImage.TYPE_INT_RGB);
+        Graphics g = expected.getGraphics();
+        for (int t = 0; t < matches.length; t++) {
+            tile.setRGB(0, 0, 8, 6, library[matches[t]], 0, 8);
+            g.drawImage(tile, t % 11 * 8, t / 11 * 6, null);
+        }
+        g.dispose();
+        assertArrayEquals(pixels(expected),
+                pixels(MosaicBuilder.buildMosaic(matches, source(library), CellLayout.grid(11 * 8, 7 * 6, 8, 6), pool, 3)));
+    }
+
+    @Test
+    void everyCellOfALayoutShowsItsTileScaledAndClippedToTheCell() {
+        Random random = new Random(15);
+        int[][] library = new int[9][];
+        for (int t = 0; t < library.length; t++) {
+            library[t] = random.ints(8 * 6, 0, 0x1000000).toArray();
+        }
+        TileSource source = source(library);
+        BufferedImage target = randomImage(random, 101, 61);
+        target.getGraphics().fillRect(0, 0, 64, 48); // flat, merged into larger cells
+        CellLayout layout = CellLayout.quadtree(IntegralImage.of(target), 8, 6, 4, 0);
+        int[] matches = random.ints(layout.size(), 0, library.length).toArray();
+
+        BufferedImage expected = new BufferedImage(101, 61, BufferedImage.TYPE_INT_RGB);
+        BufferedImage tile = new BufferedImage(8, 6, BufferedImage.TYPE_INT_RGB);
+        for (int t = 0; t < layout.size(); t++) {
+            tile.setRGB(0, 0, 8, 6, library[matches[t]], 0, 8);
+            int s = layout.getScale(t);
+            Graphics g = expected.getGraphics();
+            g.clipRect(layout.getX(t), layout.getY(t), layout.getCellWidth(t), layout.getCellHeight(t));
+            g.drawImage(tile, layout.getX(t), layout.getY(t), 8 * s, 6 * s, null);
+            g.dispose();
+        }
+        assertArrayEquals(pixels(expected), pixels(MosaicBuilder.buildMosaic(matches, source, layout, pool, 3)));
+    }
+
+    private static TileSource source(int[][] library) {
+        return new TileSource() {
+            public int getTileWidth() { return 8; }
+            public int getTileHeight() { return 6; }
+            public int size() { return library.length; }
+            public void readTile(int index, int[] dst, int offset) {
+                System.arraycopy(library[index], 0, dst, offset, 8 * 6);
+            }
+        };
+    }
+
+    private static BufferedImage randomImage(Random random, int w, int h) {
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+}
@@ -0,0 +1,97 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TileAssignerTests {
+
+    private static final int COLS = 30, ROWS = 20;
+
+    @Test
+    void nearestAssignmentIsPlainMatching() {
+        Random random = new Random(8);
+        int[] library = random.ints(50, 0, 0x1000000).toArray();
+        int[] target = random.ints(COLS * ROWS, 0, 0x1000000).toArray();
+        ColorIndex index = ColorIndex.KD_TREE.build(library);
+        assertArrayEquals(ImageMatcher.matchColors(target, index),
+                TileAssigner.assign(target, COLS, index, ColorIndex.KD_TREE, library, TileAssignment.NEAREST));
+    }
+
+    @Test
+    void usesAreCappedUntilTheLibraryRunsOut() {
+        Random random = new Random(9);
+        int[] library = random.ints(40, 0, 0x1000000).toArray();
+        int[] flat = new int[COLS * ROWS];
+        Arrays.fill(flat, 0x336699);
+        ColorIndex index = ColorIndex.KD_TREE.build(library);
+
+        int[] matches = TileAssigner.assign(flat, COLS, index, ColorIndex.KD_TREE, library,
+                TileAssignment.NEAREST.withMaxUses(15));
+        int[] uses = new int[library.length];
+        for (int m : matches) {
+            uses[m]++;
+        }
+        // 600 cells and 40 tiles: every tile is used exactly up to the cap
+        assertTrue(Arrays.stream(uses).allMatch(u -> u == 15), Arrays.toString(uses));
+    }
+
+    @Test
+    void noTileRepeatsWithinTheExclusionRadius() {
+        Random random = new Random(10);
+        int[] library = random.ints(60, 0, 0x1000000).toArray();
+        int[] target = new int[COLS * ROWS];
+        for (int t = 0; t < target.length; t++) {
+            target[t] = random.nextInt(4) == 0 ? random.nextInt(0x1000000) : 0x808080;
+        }
+        int radius = 2;
+        int[] matches = TileAssigner.assign(target, COLS, ColorIndex.KD_TREE.build(library), ColorIndex.KD_TREE,
+                library, TileAssignment.NEAREST.withExclusionRadius(radius));
+        for (int t = 0; t < matches.length; t++) {
+            for (int u = t + 1; u < matches.length; u++) {
+                if (Math.abs(t / COLS - u / COLS) <= radius && Math.abs(t % COLS - u % COLS) <= radius) {
+                    assertNotEquals(matches[t], matches[u], "cells " + t + " and " + u);
+                }
+            }
+        }
+    }
+
+    @Test
+    void ditheringKeepsTheAreaMeanOfAFlatTarget() {
+        // 0x60 is nearest to 0x80 everywhere; diffusion mixes in black for a quarter of the cells
+        int[] library = {0x000000, 0x808080};
+        int[] flat = new int[COLS * ROWS];
+        Arrays.fill(flat, 0x606060);
+        ColorIndex index = ColorIndex.KD_TREE.build(library);
+
+        int[] matches = TileAssigner.assign(flat, COLS, index, ColorIndex.KD_TREE, library,
+                TileAssignment.NEAREST.withDither(true));
+        double mean = Arrays.stream(matches).map(m -> library[m] & 0xff).average().orElseThrow();
+        assertEquals(0x60, mean, 2.0);
+        assertTrue(Arrays.stream(ImageMatcher.matchColors(flat, index)).allMatch(m -> m == 1));
+    }
+
+    @Test
+    void rowsAssignedInPartsMatchOnePass() {
+        Random random = new Random(11);
+        int[] library = random.ints(40, 0, 0x1000000).toArray();
+        int[] target = random.ints(COLS * ROWS, 0, 0x1000000).toArray();
+        ColorIndex index = ColorIndex.KD_TREE.build(library);
+        TileAssignment assignment = new TileAssignment(12, 1, true);
+
+        // bands of 7 rows, as a striped render feeds them
+        TileAssigner assigner = new TileAssigner(COLS, index, ColorIndex.KD_TREE, library, assignment);
+        int[] parts = new int[target.length];
+        for (int from = 0; from < target.length; from += 7 * COLS) {
+            int to = Math.min(target.length, from + 7 * COLS);
+            System.arraycopy(assigner.assign(Arrays.copyOfRange(target, from, to)), 0, parts, from, to - from);
+        }
+        assertArrayEquals(TileAssigner.assign(target, COLS, index, ColorIndex.KD_TREE, library, assignment), parts);
+    }
+}
@@ -0,0 +1,73 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TileDecoderTests {
+
+    @Test
+    void centreCropKeepsTheTileAspectRatio() {
+        assertEquals(new Rectangle(150, 0, 100, 100), TileDecoder.centreCrop(400, 100, 10, 10));
+        assertEquals(new Rectangle(0, 25, 100, 50), TileDecoder.centreCrop(100, 100, 20, 10));
+        assertEquals(new Rectangle(0, 0, 60, 30), TileDecoder.centreCrop(60, 30, 2, 1));
+        assertEquals(new Rectangle(0, 499, 1, 1), TileDecoder.centreCrop(1, 1000, 1, 1));
+        // never empty, even where the ratio rounds to zero pixels
+        assertEquals(new Rectangle(499, 0, 1, 1), TileDecoder.centreCrop(1000, 1, 1, 10));
+    }
+
+    @Test
+    void readsOnlyTheCentreRegion() throws IOException {
+        // red | green | red, only the green square matches a square tile
+        BufferedImage image = new BufferedImage(300, 100, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < 300; x++) {
+                image.setRGB(x, y, x >= 100 && x < 200 ? 0x00ff00 : 0xff0000);
+            }
+        }
+        BufferedImage tile = TileDecoder.decode(new ByteArrayInputStream(png(image)), 10, 10);
+
+        assertEquals(10, tile.getWidth());
+        assertEquals(10, tile.getHeight());
+        assertEquals(BufferedImage.TYPE_INT_RGB, tile.getType());
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 10; x++) {
+                assertEquals(0x00ff00, tile.getRGB(x, y) & 0xffffff, "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void subsamplesLargeSourcesWhileDecoding() throws IOException {
+        // 200x200 for a 10x10 tile reads every 10th column from the region origin: all blue ones.
+        // Decoding at full size would average them with the white columns in between.
+        BufferedImage image = new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 200; y++) {
+            for (int x = 0; x < 200; x++) {
+                image.setRGB(x, y, x % 10 == 0 ? 0x0000ff : 0xffffff);
+            }
+        }
+        BufferedImage tile = TileDecoder.decode(new ByteArrayInputStream(png(image)), 10, 10);
+
+        assertEquals(0x0000ff, ColorAverager.averageRGB(tile));
+    }
+
+    @Test
+    void unreadableDataIsNotATile() throws IOException {
+        assertNull(TileDecoder.decode(new ByteArrayInputStream(new byte[]{1, 2, 3, 4}), 10, 10));
+    }
+
+    private static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,77 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TileDescriptorsTests {
+
+    private static final int W = 8, H = 6;
+
+    private static TileSource tiles(int[][] pixels) {
+        return new TileSource() {
+            public int getTileWidth() { return W; }
+            public int getTileHeight() { return H; }
+            public int size() { return pixels.length; }
+            public void readTile(int index, int[] dst, int offset) {
+                System.arraycopy(pixels[index], 0, dst, offset, W * H);
+            }
+        };
+    }
+
+    // the tiles side by side, one tile row
+    private static BufferedImage row(int[][] pixels, int... order) {
+        BufferedImage image = new BufferedImage(W * order.length, H, BufferedImage.TYPE_INT_RGB);
+        for (int i = 0; i < order.length; i++) {
+            image.setRGB(i * W, 0, W, H, pixels[order[i]], 0, W);
+        }
+        return image;
+    }
+
+    @Test
+    void cellCutFromATileHasThatTilesDescriptor() {
+        Random random = new Random(7);
+        int[][] pixels = new int[5][];
+        for (int t = 0; t < pixels.length; t++) {
+            pixels[t] = random.ints(W * H, 0, 0x1000000).toArray();
+        }
+        for (ColorMetric metric : new ColorMetric[]{ColorMetric.RGB, ColorMetric.CIEDE2000}) {
+            for (int grid = 1; grid <= 3; grid++) { // 3 does not divide the tile evenly
+                TileDescriptors library = TileDescriptors.of(tiles(pixels), grid, metric);
+                TileDescriptors cells = TileDescriptors.ofCells(
+                        IntegralImage.of(row(pixels, 3, 0, 4)), CellLayout.grid(3 * W, H, W, H), grid, metric);
+                assertEquals(3, cells.size());
+                assertEquals(0f, cells.distance(0, library, 3));
+                assertEquals(0f, cells.distance(1, library, 0));
+                assertEquals(0f, cells.distance(2, library, 4));
+            }
+        }
+    }
+
+    @Test
+    void descriptorsSeparateTilesWithTheSameMeanColor() {
+        int[] flat = new int[W * H];
+        int[] split = new int[W * H];
+        for (int p = 0; p < W * H; p++) {
+            flat[p] = 0x7f7f7f;
+            split[p] = p % W < W / 2 ? 0x000000 : 0xffffff; // mean 0x7f7f7f as well
+        }
+        int[][] pixels = {flat, split};
+        IntegralImage table = IntegralImage.of(row(pixels, 1, 0));
+        CellLayout layout = CellLayout.grid(2 * W, H, W, H);
+        int[] targetColors = ImageSplitter.tileColors(table, layout);
+        int[] libraryColors = {0x7f7f7f, 0x7f7f7f};
+        ColorIndex index = ColorIndex.KD_TREE.build(libraryColors);
+
+        assertArrayEquals(new int[]{0, 0}, ImageMatcher.matchColors(targetColors, index));
+        int[] matches = ImageMatcher.matchDescriptors(targetColors,
+                TileDescriptors.ofCells(table, layout, 2, ColorMetric.RGB), index,
+                TileDescriptors.of(tiles(pixels), 2, ColorMetric.RGB),
+                ImageMatcher.neighbourTable(libraryColors, index, 2), null, 1);
+        assertArrayEquals(new int[]{1, 0}, matches);
+    }
+}
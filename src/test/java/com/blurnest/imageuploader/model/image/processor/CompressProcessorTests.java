@@ -0,0 +1,99 @@
+package com.blurnest.imageuploader.model.image.processor;
+
+import com.blurnest.imageuploader.model.image.codec.DeflateCodec;
+import com.blurnest.imageuploader.model.image.codec.EncoderSettings;
+import com.blurnest.imageuploader.model.image.codec.ImageEncoder;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressProcessorTests {
+
+    private final CompressProcessor compress = new CompressProcessor();
+    private final DecompressProcessor decompress = new DecompressProcessor();
+
+    static byte[] png(int w, int h) throws Exception {
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(21);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static ByteArrayOutputStream run(ImageProcessor processor, byte[] input, Map<String, String> params,
+                                             String extension) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(extension, processor.process(List.of(new ByteArrayResource(input)), params, out));
+        return out;
+    }
+
+    @Test
+    void lossyModeEncodesWithTheRequestedQualityAndSubsampling() throws Exception {
+        byte[] input = png(64, 48);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(input));
+
+        byte[] jpg = run(compress, input, Map.of("quality", "30", "subsampling", "444"), "jpg").toByteArray();
+        EncoderSettings settings = EncoderSettings.DEFAULT.withJpegQuality(30).withChromaSubsampling(false);
+        assertArrayEquals(ImageEncoder.toBytes(decoded, "jpg", settings), jpg);
+
+        // defaults: quality 75, 4:2:0
+        assertArrayEquals(ImageEncoder.toBytes(decoded, "jpg", EncoderSettings.DEFAULT),
+                run(compress, input, Map.of(), "jpg").toByteArray());
+        BufferedImage restored = ImageIO.read(new ByteArrayInputStream(jpg));
+        assertEquals(64, restored.getWidth());
+        assertEquals(48, restored.getHeight());
+    }
+
+    @Test
+    void losslessModeRestoresTheExactPixels() throws Exception {
+        byte[] input = png(40, 30);
+        byte[] bnz = run(compress, input, Map.of("mode", "lossless", "level", "9"), DeflateCodec.EXTENSION)
+                .toByteArray();
+        assertTrue(DeflateCodec.isContainer(bnz));
+
+        // the container remembers the original format, which becomes the extension again
+        byte[] restored = run(decompress, bnz, Map.of(), "png").toByteArray();
+        assertArrayEquals(input, restored);
+        BufferedImage original = ImageIO.read(new ByteArrayInputStream(input));
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(restored));
+        for (int y = 0; y < original.getHeight(); y++) {
+            for (int x = 0; x < original.getWidth(); x++) {
+                assertEquals(original.getRGB(x, y), decoded.getRGB(x, y), x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void invalidParametersAreRejected() throws Exception {
+        byte[] input = png(8, 8);
+        // the controller turns these into 400
+        for (Map<String, String> params : List.of(
+                Map.of("mode", "zip"),
+                Map.of("quality", "101"),
+                Map.of("quality", "-1"),
+                Map.of("quality", "high"),
+                Map.of("subsampling", "422"),
+                Map.of("mode", "lossless", "level", "10"))) {
+            assertThrows(IllegalArgumentException.class, () -> run(compress, input, params, "jpg"), params.toString());
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> run(compress, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12}, Map.of("mode", "lossless"), "bnz"));
+    }
+}
@@ -0,0 +1,43 @@
+package com.blurnest.imageuploader.model.image.processor;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DecompressProcessorTests {
+
+    private final DecompressProcessor decompress = new DecompressProcessor();
+
+    @Test
+    void plainImagesAreWrittenLosslesslyAsPng() throws Exception {
+        byte[] input = CompressProcessorTests.png(30, 20);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals("png", decompress.process(List.of(new ByteArrayResource(input)), Map.of("level", "1"), out));
+
+        BufferedImage original = ImageIO.read(new ByteArrayInputStream(input));
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        for (int y = 0; y < original.getHeight(); y++) {
+            for (int x = 0; x < original.getWidth(); x++) {
+                assertEquals(original.getRGB(x, y), decoded.getRGB(x, y), x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void inputThatIsNeitherBnzNorAnImageIsRejected() throws Exception {
+        byte[] input = CompressProcessorTests.png(8, 8);
+        assertThrows(IllegalArgumentException.class, () -> decompress.process(
+                List.of(new ByteArrayResource("not an image".getBytes())), Map.of(), new ByteArrayOutputStream()));
+        assertThrows(IllegalArgumentException.class, () -> decompress.process(
+                List.of(new ByteArrayResource(input)), Map.of("level", "10"), new ByteArrayOutputStream()));
+    }
+}
@@ -0,0 +1,161 @@
+package com.blurnest.imageuploader.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutputStorageTests {
+
+    @TempDir
+    File root;
+
+    private OutputStorage storage;
+
+    @AfterEach
+    void tearDown() {
+        if (storage != null) {
+            storage.shutdown();
+        }
+    }
+
+    @Test
+    void resultsAndTheirCompanionsShareAShardNamedAfterTheirFirstCharacters() throws IOException {
+        storage = start(DataSize.ofMegabytes(1), Duration.ofHours(1));
+
+        File shard = new File(root, "ab/cd");
+        assertEquals(shard, storage.directoryFor("abcdef"));
+        assertTrue(shard.isDirectory());
+        assertEquals(new File(shard, "abcdef.jpg"), storage.resolve("abcdef.jpg"));
+        assertEquals(new File(shard, "abcdef_files/10/0_0.jpg"), storage.resolve("abcdef_files/10/0_0.jpg"));
+        assertEquals(new File(shard, "abcdef_variants/preview.jpg"), storage.resolve("abcdef_variants/preview.jpg"));
+        assertNull(storage.resolve("abc.jpg"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWithCompanionsOnceOverQuota() throws IOException {
+        storage = start(DataSize.ofBytes(250), Duration.ofHours(1));
+        File a = write("aaaa0001.jpg", 100);
+        write("aaaa0001_variants/preview.jpg", 50);
+        storage.register(a, null);
+        File b = write("bbbb0002.jpg", 100);
+        storage.register(b, null);
+        assertEquals(250, storage.totalBytes());
+
+        assertEquals("aaaa0001.jpg", storage.find("aaaa0001")); // b is now least recently used
+        File c = write("cccc0003.jpg", 100);
+        storage.register(c, null);
+        assertFalse(b.exists());
+        assertTrue(a.exists());
+        assertEquals(250, storage.totalBytes());
+
+        storage.touch("cccc0003.jpg");
+        File d = write("dddd0004.dzi", 10);
+        write("dddd0004_files/0/0_0.jpg", 90);
+        storage.register(d, null);
+        assertFalse(a.exists());
+        assertFalse(OutputStorage.variantsOf(a).exists());
+        assertTrue(c.exists());
+        assertTrue(d.exists());
+        assertEquals(2, storage.size());
+        assertEquals(200, storage.totalBytes());
+
+        // a result larger than the whole quota is still kept
+        File e = write("eeee0005.jpg", 300);
+        storage.register(e, null);
+        assertTrue(e.exists());
+        assertFalse(c.exists());
+        assertFalse(new File(d.getParentFile(), "dddd0004_files").exists());
+        assertEquals(300, storage.totalBytes());
+    }
+
+    @Test
+    void sweepDeletesExpiredResultsWithTheirTiles() throws Exception {
+        storage = start(DataSize.ofMegabytes(1), Duration.ofMillis(200));
+        File old = write("aaaa0001.dzi", 10);
+        File tiles = write("aaaa0001_files/0/0_0.jpg", 10).getParentFile().getParentFile();
+        storage.register(old, null);
+        Thread.sleep(300);
+
+        File fresh = write("bbbb0002.jpg", 10);
+        storage.register(fresh, null); // also drops what has expired
+        assertFalse(old.exists());
+        assertFalse(tiles.exists());
+        assertNull(storage.find("aaaa0001"));
+        assertEquals(1, storage.size());
+
+        Thread.sleep(300);
+        storage.sweep();
+        assertFalse(fresh.exists());
+        assertEquals(0, storage.size());
+        assertEquals(0, storage.totalBytes());
+    }
+
+    @Test
+    void startupMovesFlatResultsIntoShardsAndDropsUnfinishedWrites() throws IOException {
+        file(new File(root, "abcd1234.jpg"), 40);
+        file(new File(root, "abcd1234_files/0/0_0.jpg"), 20);
+        file(new File(root, "abcd9999.part"), 5);
+        file(new File(root, "12/34/1234abcd.png"), 30);
+        file(new File(root, "12/34/1234ffff.part"), 5);
+        file(new File(root, "12/34/1234abcd_variants.part/preview.jpg"), 5);
+
+        storage = start(DataSize.ofMegabytes(1), Duration.ofHours(1));
+
+        assertTrue(new File(root, "ab/cd/abcd1234.jpg").isFile());
+        assertTrue(new File(root, "ab/cd/abcd1234_files/0/0_0.jpg").isFile());
+        assertFalse(new File(root, "abcd1234.jpg").exists());
+        assertFalse(new File(root, "abcd1234_files").exists());
+        assertFalse(new File(root, "abcd9999.part").exists());
+        assertFalse(new File(root, "12/34/1234ffff.part").exists());
+        assertFalse(new File(root, "12/34/1234abcd_variants.part").exists());
+
+        assertEquals(2, storage.size());
+        assertEquals(90, storage.totalBytes());
+        assertEquals("abcd1234.jpg", storage.find("abcd1234"));
+        assertEquals("1234abcd.png", storage.find("1234abcd"));
+    }
+
+    @Test
+    void digestsComeFromRegistrationOrAreTakenOfResultsFoundAtStartup() throws Exception {
+        File found = file(new File(root, "ab/cd/abcd1234.jpg"), 40);
+        storage = start(DataSize.ofMegabytes(1), Duration.ofHours(1));
+        String expected = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(new byte[40]));
+        assertEquals(expected, storage.contentDigest("abcd1234.jpg"));
+        assertEquals(found, storage.resolve("abcd1234.jpg"));
+
+        // the one handed over is kept, the file is not read for it
+        storage.register(write("1234abcd.png", 30), "given");
+        assertEquals("given", storage.contentDigest("1234abcd_variants/preview.jpg"));
+        assertNull(storage.contentDigest("ffff0000.jpg"));
+    }
+
+    private OutputStorage start(DataSize maxBytes, Duration maxAge) {
+        OutputStorage started = new OutputStorage(root, maxBytes, maxAge, Duration.ofHours(1));
+        started.start();
+        return started;
+    }
+
+    // a file of the given size in the shard of its first path segment, as the service writes it
+    private File write(String path, int bytes) throws IOException {
+        return file(storage.resolve(path), bytes);
+    }
+
+    private static File file(File file, int bytes) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), new byte[bytes]);
+        return file;
+    }
+}
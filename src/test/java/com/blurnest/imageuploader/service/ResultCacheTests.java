@@ -0,0 +1,106 @@
+package com.blurnest.imageuploader.service;
+
+import com.blurnest.imageuploader.model.image.engine.MosaicModelEngine;
+import com.blurnest.imageuploader.model.image.processor.CompressProcessor;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class ResultCacheTests {
+
+    private static final List<ByteArrayResource> INPUTS =
+            List.of(new ByteArrayResource(new byte[]{1, 2, 3}), new ByteArrayResource(new byte[]{4, 5}));
+
+    @Test
+    void keyIgnoresParameterOrderButFollowsSettingsAndInputs() throws Exception {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("op", "mosaic");
+        params.put("output", "dzi");
+        Map<String, String> reversed = new LinkedHashMap<>();
+        reversed.put("output", "dzi");
+        reversed.put("op", "mosaic");
+
+        String plain;
+        String blurred;
+        try (MosaicModelEngine a = MosaicModelEngine.builder().build();
+             MosaicModelEngine b = MosaicModelEngine.builder().userChooseBlur(true).build()) {
+            plain = a.settingsFingerprint();
+            blurred = b.settingsFingerprint();
+        }
+        String key = ResultCache.key("mosaic", params, plain, INPUTS);
+
+        assertEquals(key, ResultCache.key("mosaic", reversed, plain, INPUTS));
+        assertEquals(64, key.length());
+        assertNotEquals(key, ResultCache.key("mosaic", params, blurred, INPUTS));
+        assertNotEquals(key, ResultCache.key("compress", params, plain, INPUTS));
+        // same bytes, other boundaries
+        assertNotEquals(key, ResultCache.key("mosaic", params, plain,
+                List.of(new ByteArrayResource(new byte[]{1, 2}), new ByteArrayResource(new byte[]{3, 4, 5}))));
+    }
+
+    @Test
+    void onlyParametersTheResultDependsOnAreKeyed() {
+        CompressProcessor compress = new CompressProcessor();
+        Map<String, String> keyed = ImageProcessingService.keyParams(compress, Map.of("quality", "80"));
+
+        assertEquals(Map.of("quality", "80", "output", "image"), keyed);
+        assertEquals(keyed, ImageProcessingService.keyParams(compress,
+                Map.of("op", "compress", "quality", "80", "_", "1700000000000", "output", "image")));
+        assertNotEquals(keyed, ImageProcessingService.keyParams(compress, Map.of("quality", "70")));
+        assertNotEquals(keyed, ImageProcessingService.keyParams(compress, Map.of("quality", "80", "output", "dzi")));
+    }
+
+    @Test
+    void concurrentIdenticalRequestsShareOneComputation() throws Exception {
+        ResultCache cache = new ResultCache(true, mock(OutputStorage.class));
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        ResultCache.Producer producer = key -> {
+            runs.incrementAndGet();
+            started.countDown();
+            release.join();
+            return key + ".jpg";
+        };
+
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+        Thread a = caller(cache, producer, first);
+        a.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        Thread b = caller(cache, producer, second);
+        b.start();
+        // parked on the first caller's computation
+        while (b.getState() != Thread.State.WAITING) {
+            assertTrue(b.isAlive());
+            Thread.onSpinWait();
+        }
+        release.complete(null);
+
+        assertEquals("k.jpg", first.get(10, TimeUnit.SECONDS));
+        assertEquals("k.jpg", second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+    }
+
+    private static Thread caller(ResultCache cache, ResultCache.Producer producer, CompletableFuture<String> result) {
+        return new Thread(() -> {
+            try {
+                result.complete(cache.getOrProduce("k", producer));
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+    }
+}
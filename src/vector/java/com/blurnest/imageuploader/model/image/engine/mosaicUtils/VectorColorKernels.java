@@ -0,0 +1,101 @@
+package com.blurnest.imageuploader.model.image.engine.mosaicUtils;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link ColorKernels} on the incubating Vector API, one lane per library color or pixel.
+ * Only compiled with the {@code vector} profile, see {@link ColorKernels#current()}.
+ * <p>
+ * nearest keeps a running minimum distance and its index per lane, updated where a lane finds a
+ * strictly smaller distance, so every lane holds its first minimum; the lanes are then reduced to
+ * the smallest distance and, among equal ones, the smallest index, the same tie rule as the scan.
+ */
+final class VectorColorKernels implements ColorKernels {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    VectorColorKernels() {
+        if (SPECIES.length() < 4) {
+            throw new UnsupportedOperationException("No usable int vector shape: " + SPECIES);
+        }
+    }
+
+    @Override
+    public int nearest(int[] red, int[] green, int[] blue, int count, int rgb) {
+        int r = (rgb >>> 16) & 0xff, g = (rgb >>> 8) & 0xff, b = rgb & 0xff;
+        int lanes = SPECIES.length();
+        int bound = SPECIES.loopBound(count);
+
+        int minDistance = Integer.MAX_VALUE;
+        int bestMatchIndex = -1;
+        if (bound > 0) {
+            IntVector qr = IntVector.broadcast(SPECIES, r);
+            IntVector qg = IntVector.broadcast(SPECIES, g);
+            IntVector qb = IntVector.broadcast(SPECIES, b);
+            IntVector best = IntVector.broadcast(SPECIES, Integer.MAX_VALUE);
+            IntVector bestIndex = IntVector.zero(SPECIES);
+            IntVector index = IntVector.zero(SPECIES).addIndex(1);
+            IntVector step = IntVector.broadcast(SPECIES, lanes);
+            for (int i = 0; i < bound; i += lanes) {
+                IntVector dr = IntVector.fromArray(SPECIES, red, i).sub(qr);
+                IntVector dg = IntVector.fromArray(SPECIES, green, i).sub(qg);
+                IntVector db = IntVector.fromArray(SPECIES, blue, i).sub(qb);
+                IntVector dist = dr.mul(dr).add(dg.mul(dg)).add(db.mul(db));
+                VectorMask<Integer> closer = dist.lt(best);
+                best = best.blend(dist, closer);
+                bestIndex = bestIndex.blend(index, closer);
+                index = index.add(step);
+            }
+            minDistance = best.reduceLanes(VectorOperators.MIN);
+            bestMatchIndex = bestIndex
+                    .blend(IntVector.broadcast(SPECIES, Integer.MAX_VALUE), best.compare(VectorOperators.NE, minDistance))
+                    .reduceLanes(VectorOperators.MIN);
+        }
+        // the tail has higher indexes, so only a strictly smaller distance wins
+        for (int i = bound; i < count; i++) {
+            int dr = r - red[i], dg = g - green[i], db = b - blue[i];
+            int dist = dr * dr + dg * dg + db * db;
+            if (dist < minDistance) {
+                minDistance = dist;
+                bestMatchIndex = i;
+            }
+        }
+        return bestMatchIndex;
+    }
+
+    @Override
+    public void sumPacked(int[] data, int from, int to, int redShift, int blueShift, long[] sums) {
+        int lanes = SPECIES.length();
+        int end = from + SPECIES.loopBound(to - from);
+        IntVector red = IntVector.zero(SPECIES);
+        IntVector green = IntVector.zero(SPECIES);
+        IntVector blue = IntVector.zero(SPECIES);
+        int i = from;
+        for (; i < end; i += lanes) {
+            IntVector p = IntVector.fromArray(SPECIES, data, i);
+            red = red.add(p.lanewise(VectorOperators.LSHR, redShift).and(0xff));
+            green = green.add(p.lanewise(VectorOperators.LSHR, 8).and(0xff));
+            blue = blue.add(p.lanewise(VectorOperators.LSHR, blueShift).and(0xff));
+        }
+        int rowRed = red.reduceLanes(VectorOperators.ADD);
+        int rowGreen = green.reduceLanes(VectorOperators.ADD);
+        int rowBlue = blue.reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) {
+            int p = data[i];
+            rowRed += (p >>> redShift) & 0xff;
+            rowGreen += (p >>> 8) & 0xff;
+            rowBlue += (p >>> blueShift) & 0xff;
+        }
+        sums[0] += rowRed;
+        sums[1] += rowGreen;
+        sums[2] += rowBlue;
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + SPECIES.vectorBitSize();
+    }
+}